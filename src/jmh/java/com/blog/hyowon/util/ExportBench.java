@@ -0,0 +1,140 @@
+package com.blog.hyowon.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * export 종단 벤치마크 (로컬 Notion 대역 StubNotionServer 상대, 네트워크/토큰 없이 반복 가능)
+ * 런마다 빈 폴더로 전체 export → 페이지/초, 소요 시간, API 요청/재시도 수, 마지막에 변경 없는 증분 export 1회
+ *
+ * ./gradlew exportBench -PbenchArgs="pages=500 depth=3 blocks=30 latency=50 throttle=40 rate=1000 concurrency=8"
+ * 인자(key=value):
+ *   pages depth blocks seed  가짜 워크스페이스 크기 (기본 200 3 30 1)
+ *   latency                  요청마다 지연 ms (기본 0), throttle=N  N번째 요청마다 429 (retry-after=ms, 기본 200)
+ *   rate concurrency         NotionClient 초당 요청 수 / 동시 요청 수 (기본 1000 4, 실제 Notion 흉내는 rate=3)
+ *   runs warmup              측정 런 수 / 버리는 런 수 (기본 5 2)
+ *   streaming                false 면 페이지 블록을 전부 받은 뒤 렌더 (기본 true, 커서 페이지마다 렌더)
+ *   record=dir token=.. root=..  실제 Notion 응답을 dir 에 녹화 (upstream=.. 기본 api.notion.com)
+ *   replay=dir [root=..]         녹화한 응답으로 벤치마크 (root 생략 시 dir/root.txt)
+ */
+public class ExportBench {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0)
+                opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int concurrency = Integer.parseInt(opt.getOrDefault("concurrency", "4"));
+        double rate = Double.parseDouble(opt.getOrDefault("rate", "1000"));
+        boolean streaming = Boolean.parseBoolean(opt.getOrDefault("streaming", "true"));
+
+        if (opt.containsKey("record")) {
+            record(opt, concurrency, rate);
+            return;
+        }
+
+        StubNotionServer stub;
+        String root;
+        String token = "bench";
+        if (opt.containsKey("replay")) {
+            Path dir = Path.of(opt.get("replay"));
+            stub = StubNotionServer.replay(dir);
+            root = opt.containsKey("root") ? opt.get("root") : Files.readString(dir.resolve("root.txt")).trim();
+        } else {
+            stub = StubNotionServer.start();
+            root = stub.workspace(Integer.parseInt(opt.getOrDefault("pages", "200")),
+                    Integer.parseInt(opt.getOrDefault("depth", "3")),
+                    Integer.parseInt(opt.getOrDefault("blocks", "30")),
+                    Long.parseLong(opt.getOrDefault("seed", "1")));
+        }
+        stub.latency(Duration.ofMillis(Long.parseLong(opt.getOrDefault("latency", "0"))))
+                .throttle(Integer.parseInt(opt.getOrDefault("throttle", "0")),
+                        Duration.ofMillis(Long.parseLong(opt.getOrDefault("retry-after", "200"))));
+
+        int runs = Integer.parseInt(opt.getOrDefault("runs", "5"));
+        int warmup = Integer.parseInt(opt.getOrDefault("warmup", "2"));
+        Path work = Files.createTempDirectory("export-bench");
+        double[] pagesPerSec = new double[runs];
+        long[] elapsed = new long[runs];
+        try (stub; NotionClient client = new NotionClient(stub.baseUrl(), token, concurrency, rate,
+                Duration.ofSeconds(30), 6)) {
+            for (int i = -warmup; i < runs; i++) {
+                Path out = work.resolve("run" + (i + warmup));
+                stub.resetCounts();
+                int retries = client.retries(), throttled = client.throttled();
+                long allocated = allocatedBytes();
+                long t = System.nanoTime();
+                NotionExporter.Result r = new NotionExporter(client, concurrency).streaming(streaming)
+                        .exportSite(root, out);
+                long ms = (System.nanoTime() - t) / 1_000_000;
+                double pps = r.rendered() * 1000.0 / Math.max(1, ms);
+                long allocMb = (allocatedBytes() - allocated) >> 20;
+                System.out.printf("[BENCH] %s %d: pages=%d elapsed=%dms pages/s=%.1f requests=%d retries=%d throttled=%d alloc=%dMB%n",
+                        i < 0 ? "warmup" : "run", i < 0 ? i + warmup + 1 : i + 1, r.rendered(), ms, pps,
+                        stub.totalRequests(), client.retries() - retries, client.throttled() - throttled, allocMb);
+                if (i >= 0) {
+                    pagesPerSec[i] = pps;
+                    elapsed[i] = ms;
+                }
+            }
+
+            // 마지막 결과 위에 변경 없는 증분 export (메타 확인만)
+            Path last = work.resolve("run" + (runs + warmup - 1));
+            stub.resetCounts();
+            long t = System.nanoTime();
+            NotionExporter.Result r = new NotionExporter(client, concurrency).incremental(true).exportSite(root, last);
+            System.out.printf("[BENCH] unchanged incremental: skipped=%d elapsed=%dms requests=%d%n", r.skipped(),
+                    (System.nanoTime() - t) / 1_000_000, stub.totalRequests());
+        } finally {
+            delete(work);
+        }
+        Arrays.sort(pagesPerSec);
+        Arrays.sort(elapsed);
+        System.out.printf("[BENCH] median of %d: pages/s=%.1f elapsed=%dms (concurrency=%d rate=%.0f latency=%sms throttle=%s streaming=%s)%n",
+                runs, pagesPerSec[runs / 2], elapsed[runs / 2], concurrency, rate, opt.getOrDefault("latency", "0"),
+                opt.getOrDefault("throttle", "0"), streaming);
+    }
+
+    /** 실제 Notion 앞에 녹화 프록시를 세우고 전체 + 증분 export 를 한 번씩 (두 경로의 요청을 모두 남김) */
+    /** JVM 전체 할당량 (스텁 서버 포함, 런끼리 비교용) */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean())
+                .getTotalThreadAllocatedBytes();
+    }
+
+    private static void record(Map<String, String> opt, int concurrency, double rate) throws Exception {
+        Path dir = Path.of(opt.get("record"));
+        String root = opt.get("root");
+        String token = opt.get("token");
+        if (root == null || token == null)
+            throw new IllegalArgumentException("record needs root=<page id> token=<integration token>");
+        Path out = Files.createTempDirectory("export-record");
+        try (StubNotionServer proxy = StubNotionServer.record(dir,
+                opt.getOrDefault("upstream", NotionClient.DEFAULT_BASE_URL));
+                NotionClient client = new NotionClient(proxy.baseUrl(), token, concurrency, Math.min(rate, 3),
+                        Duration.ofSeconds(30), 6)) {
+            NotionExporter.Result r = new NotionExporter(client, concurrency).exportSite(root, out);
+            new NotionExporter(client, concurrency).incremental(true).exportSite(root, out);
+            Files.writeString(dir.resolve("root.txt"), root);
+            System.out.printf("[BENCH] recorded %d pages, %d requests → %s%n", r.rendered(), proxy.totalRequests(), dir);
+        } finally {
+            delete(out);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.blog.hyowon.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 페이지/요청마다 불리는 작은 헬퍼들
+ * ./gradlew jmh -PjmhIncludes=HelperBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HelperBenchmark {
+
+    private final String plainText = "스프링 배치에서 청크 단위 트랜잭션을 쓰는 이유와 주의할 점 정리";
+    private final String escapeHeavy = "if (a < b && c > d) { x = \"it's\"; } <T> a & b 'q' \"dq\"";
+    private final String title = "Spring Batch Chunk 트랜잭션 정리 (2024)";
+    private final String idNoHyphen = "24bf466a1b2c4d5e8f9a0b1c2d3e4f50";
+    private final String idHyphen = "24bf466a-1b2c-4d5e-8f9a-0b1c2d3e4f50";
+    private final HtmlWriter out = new HtmlWriter(1024);
+    private final String[] langs = { "Java", "Plain Text", "Shell", "C++", "yml", "PostgreSQL", "kotlin" };
+
+    /** esc 대체: HtmlWriter.text (escape 없는 한글 문장) */
+    @Benchmark
+    public int escapePlain() {
+        return out.clear().text(plainText).length();
+    }
+
+    /** esc 대체: HtmlWriter.text (escape 대상 문자 많은 문장) */
+    @Benchmark
+    public int escapeHeavy() {
+        return out.clear().text(escapeHeavy).length();
+    }
+
+    @Benchmark
+    public String slug() {
+        return NotionExporter.slug(title, idHyphen);
+    }
+
+    /** API 호출마다 불림 */
+    @Benchmark
+    public void hyphenize(Blackhole bh) {
+        bh.consume(NotionExporter.hyphenize(idNoHyphen));
+        bh.consume(NotionExporter.hyphenize(idHyphen));
+    }
+
+    @Benchmark
+    public void prismLang(Blackhole bh) {
+        for (String l : langs)
+            bh.consume(NotionExporter.prismLang(l));
+    }
+}
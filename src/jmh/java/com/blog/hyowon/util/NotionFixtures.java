@@ -0,0 +1,192 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 벤치마크용 합성 Notion 블록 JSON (API 응답의 results[] 와 같은 모양)
+ * - 실제 응답처럼 {"results":[...]} 로 감싸서 NotionJson 으로 파싱 → NotionBlock
+ * - json() 은 파싱 벤치용 원본 바이트
+ * - 시드 고정이라 실행마다 같은 입력
+ * - 한글/escape 대상 문자/주석(annotations)/링크를 섞어서 실제 글과 비슷하게
+ */
+final class NotionFixtures {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final String[] WORDS = {
+            "스프링", "배치", "트랜잭션", "인덱스", "<T>", "a & b", "\"quoted\"", "it's", "JPA",
+            "쿼리", "캐시", "성능", "Notion", "export", "블로그", "효원" };
+
+    private static final String[] CODE_LINES = {
+            "public List<String> findAll(Map<String, Object> params) {",
+            "    return jdbc.query(\"SELECT * FROM post WHERE id > ?\", rs -> rs.getString(1));",
+            "if (a < b && b > c) { log.info(\"x='{}'\", x); }",
+            "SELECT p.id, p.title FROM post p JOIN tag t ON t.post_id = p.id WHERE t.name = 'java';",
+            "kubectl get pods -n blog | grep -v Running && echo \"done\"",
+            "}" };
+
+    private NotionFixtures() {
+    }
+
+    /** 문단/제목/리스트/인용/콜아웃/to-do/코드가 섞인 일반 페이지 */
+    static List<NotionBlock> page(int blocks, long seed) {
+        Random r = new Random(seed);
+        String[] types = { "paragraph", "paragraph", "paragraph", "heading_2", "bulleted_list_item",
+                "bulleted_list_item", "numbered_list_item", "quote", "callout", "to_do", "code", "divider" };
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < blocks; i++) {
+            if (i > 0)
+                json.append(',');
+            String type = types[r.nextInt(types.length)];
+            if ("code".equals(type))
+                codeBlock(json, i, 8 + r.nextInt(12), r);
+            else if ("divider".equals(type))
+                json.append("{\"object\":\"block\",\"id\":\"").append(id(i)).append("\",\"type\":\"divider\",\"divider\":{}}");
+            else
+                textBlock(json, i, type, 1 + r.nextInt(4), 0.3, r);
+        }
+        return parse(json.append(']'));
+    }
+
+    /** 코드 블록만 (언어 섞어서) */
+    static List<NotionBlock> codeHeavy(int blocks, int linesPerBlock, long seed) {
+        Random r = new Random(seed);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < blocks; i++) {
+            if (i > 0)
+                json.append(',');
+            codeBlock(json, i, linesPerBlock, r);
+        }
+        return parse(json.append(']'));
+    }
+
+    /** 한 문단에 run 이 잔뜩, 대부분 주석이 여러 개 겹친 rich_text */
+    static List<NotionBlock> annotated(int blocks, int runsPerBlock, long seed) {
+        Random r = new Random(seed);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < blocks; i++) {
+            if (i > 0)
+                json.append(',');
+            textBlock(json, i, "paragraph", runsPerBlock, 0.9, r);
+        }
+        return parse(json.append(']'));
+    }
+
+    /** table 블록 하나 (renderTableRows 용으로 table_row 자식 목록과 함께) */
+    static NotionBlock table(int cols, boolean colHeader, boolean rowHeader) {
+        return parse(new StringBuilder("[{\"object\":\"block\",\"id\":\"").append(id(999_999))
+                .append("\",\"type\":\"table\",\"has_children\":true,\"table\":{\"table_width\":").append(cols)
+                .append(",\"has_column_header\":").append(colHeader)
+                .append(",\"has_row_header\":").append(rowHeader).append("}}]")).get(0);
+    }
+
+    static List<NotionBlock> tableRows(int rows, int cols, long seed) {
+        Random r = new Random(seed);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"object\":\"block\",\"id\":\"").append(id(i))
+                    .append("\",\"type\":\"table_row\",\"table_row\":{\"cells\":[");
+            for (int c = 0; c < cols; c++) {
+                if (c > 0)
+                    json.append(',');
+                richText(json, 1 + r.nextInt(2), 0.2, r);
+            }
+            json.append("]}}");
+        }
+        return parse(json.append(']'));
+    }
+
+    /** rich_text 배열 하나 (renderText 단독 측정용) */
+    static List<NotionBlock.TextRun> richText(int runs, double annotatedRatio, long seed) {
+        StringBuilder json = new StringBuilder("[");
+        textBlock(json, 0, "paragraph", runs, annotatedRatio, new Random(seed));
+        return parse(json.append(']')).get(0).text();
+    }
+
+    /** /blocks/{id}/children 응답 한 페이지 분량의 원본 JSON 바이트 */
+    static byte[] json(int blocks, long seed) {
+        StringBuilder json = new StringBuilder("[");
+        Random r = new Random(seed);
+        for (int i = 0; i < blocks; i++) {
+            if (i > 0)
+                json.append(',');
+            textBlock(json, i, i % 7 == 0 ? "bulleted_list_item" : "paragraph", 1 + r.nextInt(4), 0.3, r);
+        }
+        return wrap(json.append(']'));
+    }
+
+    /* ===================== JSON 조립 ===================== */
+
+    private static void textBlock(StringBuilder json, int i, String type, int runs, double annotatedRatio, Random r) {
+        json.append("{\"object\":\"block\",\"id\":\"").append(id(i)).append("\",\"type\":\"").append(type)
+                .append("\",\"has_children\":false,\"").append(type).append("\":{\"rich_text\":");
+        richText(json, runs, annotatedRatio, r);
+        if ("to_do".equals(type))
+            json.append(",\"checked\":").append(r.nextBoolean());
+        json.append(",\"color\":\"default\"}}");
+    }
+
+    private static void codeBlock(StringBuilder json, int i, int lines, Random r) {
+        String[] langs = { "java", "sql", "shell", "yaml", "javascript", "json", "plain text" };
+        StringBuilder code = new StringBuilder();
+        for (int l = 0; l < lines; l++)
+            code.append(CODE_LINES[r.nextInt(CODE_LINES.length)]).append('\n');
+        json.append("{\"object\":\"block\",\"id\":\"").append(id(i))
+                .append("\",\"type\":\"code\",\"has_children\":false,\"code\":{\"language\":\"")
+                .append(langs[r.nextInt(langs.length)]).append("\",\"rich_text\":[");
+        run(json, code.toString(), false, false, false, false, false, null);
+        json.append("]}}");
+    }
+
+    private static void richText(StringBuilder json, int runs, double annotatedRatio, Random r) {
+        json.append('[');
+        for (int k = 0; k < runs; k++) {
+            if (k > 0)
+                json.append(',');
+            StringBuilder text = new StringBuilder();
+            int words = 3 + r.nextInt(10);
+            for (int w = 0; w < words; w++)
+                text.append(WORDS[r.nextInt(WORDS.length)]).append(' ');
+            boolean ann = r.nextDouble() < annotatedRatio;
+            run(json, text.toString(), ann && r.nextBoolean(), ann && r.nextBoolean(), ann && r.nextInt(4) == 0,
+                    ann && r.nextInt(3) == 0, ann && r.nextInt(5) == 0,
+                    ann && r.nextInt(6) == 0 ? "https://example.com/post?id=" + k + "&ref=bench" : null);
+        }
+        json.append(']');
+    }
+
+    private static void run(StringBuilder json, String text, boolean bold, boolean italic, boolean strike,
+            boolean underline, boolean code, String href) {
+        String t = OM.getNodeFactory().textNode(text).toString();
+        String h = href == null ? "null" : OM.getNodeFactory().textNode(href).toString();
+        json.append("{\"type\":\"text\",\"text\":{\"content\":").append(t).append(",\"link\":null}")
+                .append(",\"annotations\":{\"bold\":").append(bold).append(",\"italic\":").append(italic)
+                .append(",\"strikethrough\":").append(strike).append(",\"underline\":").append(underline)
+                .append(",\"code\":").append(code).append(",\"color\":\"default\"}")
+                .append(",\"plain_text\":").append(t).append(",\"href\":").append(h).append('}');
+    }
+
+    private static String id(int i) {
+        return String.format("%08x-0000-4000-8000-%012x", i, i);
+    }
+
+    private static byte[] wrap(CharSequence results) {
+        return ("{\"object\":\"list\",\"results\":" + results + ",\"next_cursor\":null,\"has_more\":false}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<NotionBlock> parse(CharSequence results) {
+        try {
+            return NotionJson.readBlocks(new ByteArrayInputStream(wrap(results))).results();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
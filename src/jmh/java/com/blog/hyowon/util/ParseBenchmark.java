@@ -0,0 +1,40 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /blocks/{id}/children 응답 100개짜리 한 페이지 파싱
+ * - tree: 예전 방식 (바이트 → String → readTree)
+ * - streaming: NotionJson (바이트 → NotionBlock)
+ * ./gradlew jmh -PjmhIncludes=ParseBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        body = NotionFixtures.json(100, 11);
+    }
+
+    @Benchmark
+    public JsonNode tree() throws Exception {
+        return om.readTree(new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public NotionJson.Batch<NotionBlock> streaming() throws Exception {
+        return NotionJson.readBlocks(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,55 @@
+package com.blog.hyowon.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 페이지 렌더 경로 벤치마크 (처리량 + gc 프로파일러로 op 당 할당량)
+ * fixture 와 무관한 표 / rich_text 단위 렌더는 RenderPartsBenchmark (여기 두면 fixture 수만큼 같은 측정을 반복)
+ * ./gradlew jmh -PjmhIncludes=RenderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderBenchmark {
+
+    /** small/medium/huge: 일반 페이지, code: 코드 블록 위주, annotated: 주석 겹친 rich_text 위주 */
+    @Param({ "small", "medium", "huge", "code", "annotated" })
+    public String fixture;
+
+    private NotionExporter exporter;
+    private List<NotionBlock> blocks;
+    // 렌더 비용만 보려고 같은 버퍼 재사용 (실제 export 는 페이지마다 HtmlWriter.forPage)
+    private final HtmlWriter out = new HtmlWriter(64 * 1024);
+
+    @Setup
+    public void setup() {
+        exporter = new NotionExporter("bench");
+        blocks = switch (fixture) {
+            case "small" -> NotionFixtures.page(20, 1);
+            case "medium" -> NotionFixtures.page(300, 2);
+            case "huge" -> NotionFixtures.page(3000, 3);
+            case "code" -> NotionFixtures.codeHeavy(200, 40, 4);
+            case "annotated" -> NotionFixtures.annotated(500, 24, 5);
+            default -> throw new IllegalArgumentException(fixture);
+        };
+    }
+
+    @Benchmark
+    public int renderBlocks() {
+        out.clear();
+        exporter.renderBlocks(blocks, out, new HashSet<>());
+        return out.length();
+    }
+
+    /** 렌더 + UTF-8 인코딩 (파일로 나가기 직전까지) */
+    @Benchmark
+    public byte[] renderBlocksToBytes() {
+        out.clear();
+        exporter.renderBlocks(blocks, out, new HashSet<>());
+        return out.toUtf8();
+    }
+}
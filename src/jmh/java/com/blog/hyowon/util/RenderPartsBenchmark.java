@@ -0,0 +1,44 @@
+package com.blog.hyowon.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 페이지 하나가 아니라 렌더 단위 하나씩 (표, rich_text), 입력이 고정이라 @Param 없음
+ * ./gradlew jmh -PjmhIncludes=RenderPartsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderPartsBenchmark {
+
+    private NotionBlock table;
+    private List<NotionBlock> tableRows;
+    private List<NotionBlock.TextRun> richText;
+    private final HtmlWriter out = new HtmlWriter(64 * 1024);
+
+    @Setup
+    public void setup() {
+        table = NotionFixtures.table(6, true, true);
+        tableRows = NotionFixtures.tableRows(200, 6, 6);
+        richText = NotionFixtures.richText(64, 0.9, 7);
+    }
+
+    /** 200행 x 6열 표 */
+    @Benchmark
+    public int renderTable() {
+        out.clear();
+        NotionExporter.renderTableRows(table, tableRows, out);
+        return out.length();
+    }
+
+    /** 주석/링크가 섞인 run 64개짜리 rich_text 하나 */
+    @Benchmark
+    public int renderText() {
+        out.clear();
+        NotionExporter.renderText(richText, out);
+        return out.length();
+    }
+}
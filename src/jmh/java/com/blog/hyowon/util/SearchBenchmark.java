@@ -0,0 +1,69 @@
+package com.blog.hyowon.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색 색인 조회 지연 (mmap 으로 연 색인, 요청 1건 = search 1회)
+ * ./gradlew jmh -PjmhIncludes=SearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    /** 페이지 수 (페이지당 블록 200개) */
+    @Param({ "100", "1000" })
+    public int pages;
+
+    private SearchIndex index;
+    private Path dir;
+
+    @Setup
+    public void setup() throws Exception {
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        List<PageManifest.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            String id = String.format("%08x-0000-4000-8000-%012x", i, i);
+            StringBuilder text = new StringBuilder();
+            NotionExporter.plainText(NotionFixtures.page(200, i), Map.of(), text);
+            builder.add(id, "p" + i + ".html", "글 " + i + " 스프링 배치", text);
+            entries.add(new PageManifest.Entry(id, "글 " + i, "p" + i + ".html", null, null, null, List.of(),
+                    List.of(), List.of(), List.of()));
+        }
+        dir = Files.createTempDirectory("search-bench");
+        Files.write(dir.resolve(SearchIndex.FILE_NAME), builder.build(entries, SearchIndex.empty()));
+        index = SearchIndex.open(dir);
+        System.out.printf("%n[SEARCH] pages=%d terms=%d bytes=%d%n", pages, index.terms(),
+                Files.size(dir.resolve(SearchIndex.FILE_NAME)));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(dir.resolve(SearchIndex.FILE_NAME));
+        Files.deleteIfExists(dir);
+    }
+
+    /** 한글 두 단어 (2-gram 6개) */
+    @Benchmark
+    public Object koreanPhrase() {
+        return index.search("트랜잭션 인덱스", 10);
+    }
+
+    /** 한 글자 (그 글자로 시작하는 2-gram 전부) */
+    @Benchmark
+    public Object singleSyllable() {
+        return index.search("캐", 10);
+    }
+
+    @Benchmark
+    public Object englishWord() {
+        return index.search("export", 10);
+    }
+}
@@ -0,0 +1,113 @@
+package com.blog.hyowon.util;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 떠 있는 서버에 닫힌 루프 부하 (워커마다 응답 받으면 바로 다음 요청)
+ * notion.export.serving=memory / static 으로 각각 띄워서 같은 인자로 돌리고 비교
+ *
+ * ./gradlew loadTest -PloadArgs="http://localhost:8080/notion_export/ index.html,1-24bf466a.html 32 20 gzip"
+ * 인자: baseUrl paths(콤마) workers seconds [gzip]
+ */
+public class ServeLoadTest {
+
+    private record WorkerResult(long[] latencies, int count, long bytes, int errors, int notModified) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080/notion_export/";
+        String[] paths = (args.length > 1 ? args[1] : "index.html").split(",");
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        boolean gzip = args.length > 4 && "gzip".equals(args[4]);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String p : paths) {
+            var req = HttpRequest.newBuilder(URI.create(base + p.trim())).timeout(Duration.ofSeconds(10));
+            if (gzip)
+                req.header("Accept-Encoding", "gzip");
+            requests.add(req.build());
+        }
+
+        // 워밍업 (JIT, 커넥션)
+        run(http, requests, workers, Math.max(2, seconds / 4));
+        List<WorkerResult> results = run(http, requests, workers, seconds);
+
+        int count = 0, errors = 0, notModified = 0;
+        long bytes = 0;
+        for (WorkerResult r : results) {
+            count += r.count();
+            errors += r.errors();
+            notModified += r.notModified();
+            bytes += r.bytes();
+        }
+        long[] all = new long[count];
+        int at = 0;
+        for (WorkerResult r : results) {
+            System.arraycopy(r.latencies(), 0, all, at, r.count());
+            at += r.count();
+        }
+        Arrays.sort(all);
+        System.out.printf("[LOAD] %s paths=%d workers=%d %ds gzip=%s%n", base, paths.length, workers, seconds, gzip);
+        System.out.printf("[LOAD] requests=%d rps=%.0f errors=%d 304=%d MB/s=%.1f%n", count, count / (double) seconds,
+                errors, notModified, bytes / 1e6 / seconds);
+        System.out.printf("[LOAD] latency us p50=%d p90=%d p99=%d p999=%d max=%d%n", pct(all, 0.50), pct(all, 0.90),
+                pct(all, 0.99), pct(all, 0.999), all.length == 0 ? 0 : all[all.length - 1] / 1000);
+    }
+
+    private static List<WorkerResult> run(HttpClient http, List<HttpRequest> requests, int workers, int seconds)
+            throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<WorkerResult>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                int offset = w;
+                futures.add(exec.submit(() -> {
+                    long[] lat = new long[1 << 16];
+                    int n = 0, errors = 0, notModified = 0;
+                    long bytes = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest req = requests.get((offset + n) % requests.size());
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> res = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
+                            if (res.statusCode() == 304)
+                                notModified++;
+                            else if (res.statusCode() != 200)
+                                errors++;
+                            bytes += res.body().length;
+                        } catch (Exception e) {
+                            errors++;
+                        }
+                        if (n == lat.length)
+                            lat = Arrays.copyOf(lat, n * 2);
+                        lat[n++] = System.nanoTime() - t0;
+                    }
+                    return new WorkerResult(lat, n, bytes, errors, notModified);
+                }));
+            }
+            List<WorkerResult> out = new ArrayList<>();
+            for (Future<WorkerResult> f : futures)
+                out.add(f.get());
+            return out;
+        }
+    }
+
+    private static long pct(long[] sorted, double q) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * q))] / 1000;
+    }
+}
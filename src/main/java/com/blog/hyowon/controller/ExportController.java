@@ -0,0 +1,122 @@
+package com.blog.hyowon.controller;
+
+import com.blog.hyowon.util.PageStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * /notion_export/** 를 PageStore 스냅샷에서 바로 응답
+ * (파일 시스템 / 클래스패스 리소스 조회 없이 미리 계산한 바이트, ETag, Cache-Control 사용)
+ * 사이트가 여럿이면 /notion_export/<사이트>/**
+ */
+@Controller
+@ConditionalOnProperty(name = "notion.export.serving", havingValue = "memory", matchIfMissing = true)
+public class ExportController {
+
+    private static final String PREFIX = "/notion_export/";
+
+    private final PageStore pageStore;
+
+    public ExportController(PageStore pageStore) {
+        this.pageStore = pageStore;
+    }
+
+    @RequestMapping(value = { "/notion_export", "/notion_export/**" }, method = { RequestMethod.GET,
+            RequestMethod.HEAD })
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        String path = uri.length() <= PREFIX.length() ? "" : uri.substring(PREFIX.length());
+        if (pageStore.isSite(path)) {
+            response.sendRedirect(request.getContextPath() + PREFIX + path + "/");
+            return;
+        }
+        if (path.isEmpty() || path.endsWith("/"))
+            path += "index.html";
+
+        PageStore.Page page = pageStore.get(path);
+        if (page == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean gzip = page.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? page.gzipEtag() : page.etag();
+        ByteBuffer body = gzip ? page.gzip() : page.body();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, page.cacheControl());
+        if (page.gzip() != null)
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(page.contentType());
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentLength(body.remaining());
+        if ("HEAD".equals(request.getMethod()))
+            return;
+
+        ByteBuffer buf = body.duplicate(); // 스냅샷 버퍼는 공유라 position 은 복사본으로
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (buf.hasRemaining())
+            out.write(buf);
+    }
+
+    /**
+     * Accept-Encoding: gzip / x-gzip 의 q 가 0 보다 크면, 없으면 * 의 q (둘 다 없으면 안 보냄)
+     * "gzip;q=0", "identity, gzip;q=0" 은 거절, q 를 못 읽으면 거절로 (원본은 항상 보낼 수 있으니까)
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        Double gzip = null, any = null;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip"))
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            else if (coding.equals("*"))
+                any = q;
+        }
+        Double q = gzip != null ? gzip : any;
+        return q != null && q > 0;
+    }
+
+    /** If-None-Match: "a", W/"b", * */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/"))
+                c = c.substring(2);
+            if (c.equals("*") || c.equals(etag))
+                return true;
+        }
+        return false;
+    }
+}
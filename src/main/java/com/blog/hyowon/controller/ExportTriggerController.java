@@ -0,0 +1,54 @@
+package com.blog.hyowon.controller;
+
+import com.blog.hyowon.util.NotionConfig;
+import com.blog.hyowon.util.NotionExportScheduler;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 변경 감지를 기다리지 않고 바로 export (Notion 에서 고친 직후 등)
+ * notion.export.trigger-token 이 설정돼 있고 X-Export-Token 헤더가 같을 때만 동작
+ * ?site=blog 면 그 사이트만, 없으면 모든 사이트
+ */
+@RestController
+public class ExportTriggerController {
+
+    private final NotionConfig notionConfig;
+    private final NotionExportScheduler scheduler;
+
+    public ExportTriggerController(NotionConfig notionConfig, NotionExportScheduler scheduler) {
+        this.notionConfig = notionConfig;
+        this.scheduler = scheduler;
+    }
+
+    @PostMapping("/admin/export")
+    public ResponseEntity<String> trigger(@RequestHeader(value = "X-Export-Token", required = false) String token,
+            @RequestParam(value = "site", required = false) String site) {
+        String expected = notionConfig.getExportTriggerToken();
+        if (expected == null || expected.isBlank())
+            return ResponseEntity.notFound().build();
+        if (token == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8)))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+
+        // export 는 오래 걸리니 요청은 바로 돌려보냄
+        // 이미 돌고 있으면 끝난 뒤 한 번 더 돌게 됨
+        if (site != null && notionConfig.getSites().stream().noneMatch(s -> s.name().equals(site)))
+            return ResponseEntity.notFound().build();
+        boolean queued = scheduler.isExporting();
+        Thread.ofVirtual().name("export-manual").start(() -> {
+            if (site != null)
+                scheduler.triggerExport(site);
+            else
+                scheduler.triggerExport();
+        });
+        return ResponseEntity.accepted().body(queued ? "export queued\n" : "export started\n");
+    }
+}
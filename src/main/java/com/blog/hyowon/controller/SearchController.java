@@ -0,0 +1,45 @@
+package com.blog.hyowon.controller;
+
+import com.blog.hyowon.util.SearchIndex;
+import com.blog.hyowon.util.SiteSearch;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 전문 검색: GET /search?q=트랜잭션&limit=10 (사이트가 여럿이면 &site=blog, 없으면 첫 사이트)
+ * 결과는 점수 순, url 은 export 페이지 경로
+ */
+@RestController
+public class SearchController {
+
+    private static final int MAX_QUERY = 200;
+
+    public record Result(String title, String url, String excerpt, double score) {
+    }
+
+    public record Response(String query, long tookMicros, List<Result> results) {
+    }
+
+    private final SiteSearch siteSearch;
+
+    public SearchController(SiteSearch siteSearch) {
+        this.siteSearch = siteSearch;
+    }
+
+    @GetMapping("/search")
+    public Response search(@RequestParam(value = "q", defaultValue = "") String q,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "site", required = false) String site) {
+        long started = System.nanoTime();
+        String query = q.length() > MAX_QUERY ? q.substring(0, MAX_QUERY) : q;
+        List<SearchIndex.Hit> hits = siteSearch.search(site, query, Math.max(1, Math.min(50, limit)));
+        String prefix = "/notion_export/" + siteSearch.urlPrefix(site);
+        List<Result> results = hits.stream()
+                .map(h -> new Result(h.title(), prefix + h.file(), h.excerpt(), h.score()))
+                .toList();
+        return new Response(query, (System.nanoTime() - started) / 1000, results);
+    }
+}
@@ -0,0 +1,691 @@
+package com.blog.hyowon.util;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * export 시점 코드 하이라이트 → Prism 과 같은 마크업 (token 클래스 span + line-numbers 줄 번호 칸)
+ * 브라우저는 Prism 테마 CSS 만 적용하면 되고, 스크립트로 다시 토큰화하지 않음
+ * - java / javascript / json / yaml / bash / sql, none(plain text)
+ * - 정규식 없이 문자 단위로 한 번 훑는 lexer. Prism 문법을 다 따라 하진 않고
+ *   테마가 색을 입히는 것 위주 (주석, 문자열, 숫자, 키워드, 함수, 연산자 ...)
+ * - 그 밖의 언어는 예전처럼 브라우저의 Prism (SiteAssets)
+ */
+final class CodeHighlighter {
+
+    private static final Set<String> SUPPORTED = Set.of("java", "javascript", "json", "yaml", "bash", "sql", "none");
+
+    /** C 계열(java / javascript / json) 사이의 차이 */
+    private record Grammar(Words words, boolean names, boolean annotations, boolean chars,
+            boolean textBlocks, boolean templates, boolean regex, boolean properties) {
+    }
+
+    private static final Grammar JAVA = new Grammar(new Words(false,
+            "keyword", "abstract assert boolean break byte case catch char class const continue default do double"
+                    + " else enum extends final finally float for goto if implements import instanceof int interface"
+                    + " long native new null package permits private protected public record return sealed short"
+                    + " static strictfp super switch synchronized this throw throws transient try var void volatile"
+                    + " while yield",
+            "boolean", "true false"), true, true, true, true, false, false, false);
+
+    private static final Grammar JAVASCRIPT = new Grammar(new Words(false,
+            "keyword", "as async await break case catch class const continue debugger default delete do else enum"
+                    + " export extends finally for from function if implements import in instanceof interface let"
+                    + " new null of package private protected public return static super switch this throw try"
+                    + " typeof undefined var void while with yield",
+            "boolean", "true false",
+            "number", "NaN Infinity"), true, false, false, false, true, true, false);
+
+    private static final Grammar JSON = new Grammar(new Words(false,
+            "boolean", "true false",
+            "null keyword", "null"), false, false, false, false, false, false, true);
+
+    /** 뒤에 / 가 오면 나눗셈인 키워드 */
+    private static final Words VALUE_WORDS = new Words(false, "value", "this super null undefined");
+
+    private static final String OPERATORS = "+-*/%=&|^!~<>?:";
+    private static final String PUNCTUATION = "{}[]();,.";
+
+    /** keyword / boolean 은 어디서나, builtin / function(명령어)은 명령 자리에서만 */
+    private static final Words BASH_WORDS = new Words(false,
+            "keyword", "case do done elif else esac fi for function if in select then until while",
+            "boolean", "true false",
+            "builtin class-name", ". : alias bind break builtin cd command continue declare echo eval exec exit export"
+                    + " getopts hash let local printf pwd read readonly return set shift source test trap type ulimit"
+                    + " umask unalias unset",
+            "function", "apt apt-get awk aws brew cat chmod chown cp curl cut date df diff docker du find git gradle"
+                    + " grep gzip head helm java jq kill kubectl less ln ls make mkdir mv mvn node npm npx ping pip ps"
+                    + " python python3 rm rsync scp sed sort ssh sudo systemctl tail tar tee touch tr uniq unzip vim"
+                    + " wc wget xargs yarn zip");
+
+    private static final Words SQL_WORDS = new Words(true,
+            "keyword", "ACTION ADD AFTER ALL ALTER ANALYZE ANY AS ASC AUTO_INCREMENT BEGIN BIGINT BINARY BIT BLOB"
+                    + " BOOLEAN BY CASCADE CASE CAST CHAR CHECK COALESCE COLLATE COLUMN COMMIT CONSTRAINT CREATE CROSS"
+                    + " CURRENT_DATE CURRENT_TIMESTAMP DATABASE DATE DATETIME DECIMAL DEFAULT DELETE DESC DISTINCT"
+                    + " DOUBLE DROP EACH ELSE END ENGINE ESCAPE EXCEPT EXISTS EXPLAIN FLOAT FOR FOREIGN FROM FULL"
+                    + " FUNCTION GRANT GROUP HAVING IF IGNORE INDEX INNER INSERT INT INTEGER INTERSECT INTO JOIN JSON"
+                    + " KEY LEFT LIMIT LOCK MERGE NATURAL NO NUMERIC OFFSET ON ORDER OUTER OVER PARTITION PRIMARY"
+                    + " PROCEDURE REAL RECURSIVE REFERENCES RENAME REPLACE RETURNING RETURNS REVOKE RIGHT ROLLBACK"
+                    + " ROW ROWS SAVEPOINT SCHEMA SELECT SET SHOW SMALLINT TABLE TEMPORARY TEXT THEN TIME TIMESTAMP"
+                    + " TINYINT TO TOP TRANSACTION TRIGGER TRUNCATE UNION UNIQUE UNSIGNED UPDATE USE USING VALUES"
+                    + " VARCHAR VIEW WHEN WHERE WINDOW WITH",
+            "boolean", "TRUE FALSE NULL",
+            "operator", "AND BETWEEN DIV ILIKE IN IS LIKE NOT OR REGEXP RLIKE XOR");
+    private static final Words SQL_FUNCTIONS = new Words(true,
+            "function", "AVG CONCAT COUNT FIRST FORMAT IFNULL LAST LCASE LEN LENGTH LOWER MAX MID MIN MOD NOW ROUND"
+                    + " SUBSTRING SUM TRIM UCASE UPPER");
+
+    private CodeHighlighter() {
+    }
+
+    static boolean supports(String lang) {
+        return SUPPORTED.contains(lang);
+    }
+
+    static boolean supportsAll(Collection<String> langs) {
+        return SUPPORTED.containsAll(langs);
+    }
+
+    /** <code> 안쪽 내용: 토큰 + 줄 번호 칸 (lang 은 prismLang 결과) */
+    static void render(String lang, String code, HtmlWriter out) {
+        Tokens t = new Tokens(code, out);
+        switch (lang) {
+            case "java" -> clike(t, JAVA);
+            case "javascript" -> clike(t, JAVASCRIPT);
+            case "json" -> clike(t, JSON);
+            case "yaml" -> yaml(t);
+            case "bash" -> bash(t);
+            case "sql" -> sql(t);
+            default -> {
+            }
+        }
+        t.flush(code.length());
+        lineNumbers(code, out);
+    }
+
+    /** line-numbers 플러그인이 만드는 것과 같은 줄 번호 칸 (끝의 줄바꿈은 줄로 안 셈) */
+    private static void lineNumbers(String code, HtmlWriter out) {
+        int lines = 1;
+        for (int k = code.indexOf('\n'); k >= 0 && k < code.length() - 1; k = code.indexOf('\n', k + 1))
+            lines++;
+        out.append("<span aria-hidden='true' class='line-numbers-rows'>");
+        for (int k = 0; k < lines; k++)
+            out.append("<span></span>");
+        out.append("</span>");
+    }
+
+    /** 토큰 사이의 평문은 모아 뒀다가 한 번에 escape */
+    private static final class Tokens {
+        final String s;
+        final HtmlWriter out;
+        int flushed;
+
+        Tokens(String s, HtmlWriter out) {
+            this.s = s;
+            this.out = out;
+        }
+
+        void token(String cls, int from, int to) {
+            open(cls, from);
+            close(to);
+        }
+
+        /** 안에 다른 토큰이 들어가는 span (문자열 속 변수 등) */
+        void open(String cls, int from) {
+            flush(from);
+            out.append("<span class='token ").append(cls).append("'>");
+        }
+
+        void close(int to) {
+            flush(to);
+            out.append("</span>");
+        }
+
+        void flush(int to) {
+            if (to > flushed) {
+                out.text(s, flushed, to);
+                flushed = to;
+            }
+        }
+    }
+
+    /* ===================== java / javascript / json ===================== */
+
+    private static void clike(Tokens t, Grammar g) {
+        String s = t.s;
+        int n = s.length();
+        boolean value = false; // 직전 토큰이 값(이름/숫자/문자열/닫는 괄호)이면 다음 '/' 는 나눗셈
+        for (int i = 0, end; i < n; i = end) {
+            char c = s.charAt(i);
+            char next = i + 1 < n ? s.charAt(i + 1) : 0;
+            if (c == '/' && next == '/') {
+                end = lineEnd(s, i);
+                t.token("comment", i, end);
+            } else if (c == '/' && next == '*') {
+                end = s.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                t.token("comment", i, end);
+            } else if (c == '"' || c == '\'' || c == '`' && g.templates()) {
+                if (g.textBlocks() && s.startsWith("\"\"\"", i)) {
+                    end = s.indexOf("\"\"\"", i + 3);
+                    end = end < 0 ? n : end + 3;
+                } else {
+                    end = quoted(s, i, c == '`');
+                }
+                t.token(c == '\'' && g.chars() ? "char"
+                        : g.properties() && nextChar(s, end) == ':' ? "property" : "string", i, end);
+                value = true;
+            } else if (isDigit(c) || c == '.' && isDigit(next) || c == '-' && g.properties() && isDigit(next)) {
+                end = number(s, i);
+                t.token("number", i, end);
+                value = true;
+            } else if (c == '@' && g.annotations() && Character.isJavaIdentifierStart(next)) {
+                end = word(s, i + 1);
+                t.token("annotation punctuation", i, end);
+                value = false;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                end = word(s, i);
+                String cls = g.words().get(s, i, end);
+                if (cls == null && g.names())
+                    cls = name(s, i, end);
+                if (cls != null)
+                    t.token(cls, i, end);
+                value = !"keyword".equals(cls) || VALUE_WORDS.get(s, i, end) != null;
+            } else if (c == '/' && g.regex() && !value && (end = regex(s, i)) > i) {
+                t.token("regex", i, end);
+                value = true;
+            } else if (OPERATORS.indexOf(c) >= 0) {
+                end = i + 1;
+                while (end < n && OPERATORS.indexOf(s.charAt(end)) >= 0 && !commentAt(s, end))
+                    end++;
+                t.token("operator", i, end);
+                value = false;
+            } else if (PUNCTUATION.indexOf(c) >= 0) {
+                end = i + 1;
+                t.token("punctuation", i, end);
+                value = c == ')' || c == ']' || c == '}';
+            } else {
+                end = i + 1; // 공백 등은 평문 (value 유지)
+            }
+        }
+    }
+
+    /** 키워드가 아닌 이름: 대문자로 시작하면 class-name (전부 대문자면 constant), 뒤에 ( 가 오면 function */
+    private static String name(String s, int from, int to) {
+        if (Character.isUpperCase(s.charAt(from))) {
+            for (int k = from + 1; k < to; k++)
+                if (Character.isLowerCase(s.charAt(k)))
+                    return "class-name";
+            return to - from > 1 ? "constant" : "class-name";
+        }
+        return nextChar(s, to) == '(' ? "function" : null;
+    }
+
+    /** '/.../flags' 끝 위치, 한 줄 안에서 안 닫히면 -1 (그럼 나눗셈) */
+    private static int regex(String s, int from) {
+        boolean inClass = false;
+        for (int k = from + 1; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '\n')
+                return -1;
+            if (c == '\\')
+                k++;
+            else if (c == '[')
+                inClass = true;
+            else if (c == ']')
+                inClass = false;
+            else if (c == '/' && !inClass) {
+                k++;
+                while (k < s.length() && Character.isLetter(s.charAt(k)))
+                    k++;
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean commentAt(String s, int k) {
+        return s.charAt(k) == '/' && k + 1 < s.length() && (s.charAt(k + 1) == '/' || s.charAt(k + 1) == '*');
+    }
+
+    /* ===================== yaml ===================== */
+
+    private static void yaml(Tokens t) {
+        String s = t.s;
+        int n = s.length();
+        int block = -1; // | > 블록 스칼라를 연 줄의 들여쓰기 (그보다 깊은 줄은 통째로 문자열)
+        for (int i = 0, eol; i < n; i = eol + 1) {
+            eol = lineEnd(s, i);
+            int indent = skipSpaces(s, i, eol);
+            if (block >= 0) {
+                if (indent == eol || indent - i > block) {
+                    if (indent < eol)
+                        t.token("scalar string", indent, eol);
+                    continue;
+                }
+                block = -1;
+            }
+            if (yamlLine(t, s, indent, eol))
+                block = indent - i;
+        }
+    }
+
+    /** 한 줄 (리스트 표시 → 키 → 값), 블록 스칼라를 열면 true */
+    private static boolean yamlLine(Tokens t, String s, int i, int eol) {
+        if (i == eol)
+            return false;
+        if (s.charAt(i) == '#') {
+            t.token("comment", i, eol);
+            return false;
+        }
+        if ((s.startsWith("---", i) || s.startsWith("...", i)) && (i + 3 == eol || s.charAt(i + 3) == ' ')) {
+            t.token("punctuation", i, i + 3);
+            i = skipSpaces(s, i + 3, eol);
+        }
+        while (i < eol && s.charAt(i) == '-' && (i + 1 == eol || s.charAt(i + 1) == ' ')) {
+            t.token("punctuation", i, i + 1);
+            i = skipSpaces(s, i + 1, eol);
+        }
+        int colon = yamlKey(s, i, eol);
+        if (colon > i) {
+            int keyEnd = colon;
+            while (keyEnd > i && s.charAt(keyEnd - 1) == ' ')
+                keyEnd--;
+            t.token("key atrule", i, keyEnd);
+            t.token("punctuation", colon, colon + 1);
+            i = skipSpaces(s, colon + 1, eol);
+        }
+        return yamlValue(t, s, i, eol);
+    }
+
+    /** "키:" 의 ':' 위치 (뒤에 공백이나 줄 끝), 키가 아니면 -1 */
+    private static int yamlKey(String s, int i, int eol) {
+        if (i == eol || "[{&*!|>#%@`".indexOf(s.charAt(i)) >= 0)
+            return -1;
+        int k = i;
+        if (s.charAt(i) == '"' || s.charAt(i) == '\'') {
+            k = Math.min(quoted(s, i, false), eol);
+            while (k < eol && s.charAt(k) == ' ')
+                k++;
+            return k < eol && s.charAt(k) == ':' && (k + 1 == eol || s.charAt(k + 1) == ' ') ? k : -1;
+        }
+        for (; k < eol; k++) {
+            char c = s.charAt(k);
+            if (c == ':' && (k + 1 == eol || s.charAt(k + 1) == ' '))
+                return k;
+            if (c == '#' && s.charAt(k - 1) == ' ')
+                return -1;
+        }
+        return -1;
+    }
+
+    private static boolean yamlValue(Tokens t, String s, int i, int eol) {
+        int flow = 0; // [ ] { } 안이면 , ] } 에서 값이 끝남
+        boolean block = false;
+        while (i < eol) {
+            char c = s.charAt(i);
+            int end;
+            if (c == '#' && (i == 0 || s.charAt(i - 1) == ' ')) {
+                t.token("comment", i, eol);
+                break;
+            } else if (c == '"' || c == '\'') {
+                end = Math.min(quoted(s, i, false), eol);
+                t.token("string", i, end);
+            } else if ((c == '&' || c == '*' || c == '!') && i + 1 < eol && s.charAt(i + 1) != ' ') {
+                end = i + 1;
+                while (end < eol && s.charAt(end) != ' ' && ",]}".indexOf(s.charAt(end)) < 0)
+                    end++;
+                t.token(c == '!' ? "tag" : "important", i, end);
+            } else if ((c == '|' || c == '>') && flow == 0 && blockHeader(s, i + 1, eol)) {
+                end = i + 1;
+                while (end < eol && s.charAt(end) != ' ')
+                    end++;
+                block = true;
+            } else if ("[]{},".indexOf(c) >= 0) {
+                flow += c == '[' || c == '{' ? 1 : c == ']' || c == '}' ? -1 : 0;
+                end = i + 1;
+                t.token("punctuation", i, end);
+            } else {
+                end = i;
+                while (end < eol && !(s.charAt(end) == '#' && s.charAt(end - 1) == ' ')
+                        && !(flow > 0 && ",]}".indexOf(s.charAt(end)) >= 0))
+                    end++;
+                int last = end;
+                while (last > i && s.charAt(last - 1) == ' ')
+                    last--;
+                String cls = yamlScalar(s, i, last);
+                if (cls != null)
+                    t.token(cls, i, last);
+            }
+            i = skipSpaces(s, end, eol);
+        }
+        return block;
+    }
+
+    /** | 나 > 뒤에 들여쓰기/chomping 표시와 주석만 있으면 블록 스칼라 */
+    private static boolean blockHeader(String s, int k, int eol) {
+        while (k < eol && (s.charAt(k) == '+' || s.charAt(k) == '-' || isDigit(s.charAt(k))))
+            k++;
+        k = skipSpaces(s, k, eol);
+        return k == eol || s.charAt(k) == '#';
+    }
+
+    private static String yamlScalar(String s, int from, int to) {
+        if (to - from == 1 && s.charAt(from) == '~' || s.regionMatches(true, from, "null", 0, 4) && to - from == 4)
+            return "null important";
+        if (to - from == 4 && s.regionMatches(true, from, "true", 0, 4)
+                || to - from == 5 && s.regionMatches(true, from, "false", 0, 5))
+            return "boolean important";
+        int k = from < to && (s.charAt(from) == '-' || s.charAt(from) == '+') ? from + 1 : from;
+        if (k < to && isDigit(s.charAt(k)) && number(s, k) == to)
+            return "number";
+        return null;
+    }
+
+    /* ===================== bash ===================== */
+
+    private static void bash(Tokens t) {
+        String s = t.s;
+        int n = s.length();
+        boolean command = true; // 명령 자리(줄 처음, ; | && 다음) → 내장 명령/명령어 인식
+        int i = 0;
+        if (s.startsWith("#!")) {
+            i = lineEnd(s, 0);
+            t.token("shebang important", 0, i);
+        }
+        for (int end; i < n; i = end) {
+            char c = s.charAt(i);
+            if (c == '\n') {
+                end = i + 1;
+                command = true;
+            } else if (c == ' ' || c == '\t') {
+                end = i + 1;
+            } else if (c == '#') {
+                end = lineEnd(s, i);
+                t.token("comment", i, end);
+            } else if (c == '\'') {
+                end = s.indexOf('\'', i + 1);
+                end = end < 0 ? n : end + 1;
+                t.token("string", i, end);
+                command = false;
+            } else if (c == '"') {
+                end = doubleQuoted(t, s, i);
+                command = false;
+            } else if (c == '$' || c == '`') {
+                end = c == '`' ? i + 1 : variable(s, i);
+                if (end > i + 1 || c == '`')
+                    t.token("variable", i, end);
+                command = c == '`' || s.charAt(end - 1) == '(';
+            } else if (c == '\\') {
+                end = Math.min(n, i + 2);
+                t.token("punctuation", i, i + 1);
+            } else if (c == ';' || c == '|' || c == '&') {
+                end = i + 1;
+                while (end < n && ";|&".indexOf(s.charAt(end)) >= 0)
+                    end++;
+                t.token(c == ';' ? "punctuation" : "operator", i, end);
+                command = true;
+            } else if (c == '<' || c == '>') {
+                end = i + 1;
+                while (end < n && "<>&".indexOf(s.charAt(end)) >= 0)
+                    end++;
+                t.token("operator", i, end);
+                command = false;
+            } else if ("(){}[]".indexOf(c) >= 0) {
+                end = i + 1;
+                t.token("punctuation", i, end);
+                command = c == '(' || c == '{';
+            } else {
+                end = i;
+                while (end < n && " \t\n;|&<>(){}'\"$`\\=".indexOf(s.charAt(end)) < 0)
+                    end++;
+                if (end < n && s.charAt(end) == '=' && isName(s, i, end)) { // NAME=, export NAME=
+                    t.token("assign-left variable", i, end);
+                    t.token("operator", end, end + 1);
+                    end++;
+                    command = false;
+                    continue;
+                }
+                if (end == i) { // 이름 없이 나온 '='
+                    end = i + 1;
+                    continue;
+                }
+                String cls = BASH_WORDS.get(s, i, end);
+                if (cls != null && !command && !"keyword".equals(cls) && !"boolean".equals(cls))
+                    cls = null;
+                if (cls == null && !command && isDigit(c) && number(s, i) == end)
+                    cls = "number";
+                if (cls != null)
+                    t.token(cls, i, end);
+                command = "keyword".equals(cls);
+            }
+        }
+    }
+
+    private static boolean isName(String s, int from, int to) {
+        if (to == from || isDigit(s.charAt(from)))
+            return false;
+        for (int k = from; k < to; k++)
+            if (!Character.isLetterOrDigit(s.charAt(k)) && s.charAt(k) != '_')
+                return false;
+        return true;
+    }
+
+    /** "..." 안의 $변수는 문자열 span 안에 중첩 (Prism 과 같게) */
+    private static int doubleQuoted(Tokens t, String s, int from) {
+        int n = s.length(), k = from + 1;
+        t.open("string", from);
+        while (k < n && s.charAt(k) != '"') {
+            if (s.charAt(k) == '\\') {
+                k += 2;
+            } else if (s.charAt(k) == '$' && variable(s, k) > k + 1 && s.charAt(k + 1) != '(') {
+                int end = variable(s, k);
+                t.token("variable", k, end);
+                k = end;
+            } else {
+                k++;
+            }
+        }
+        int end = Math.min(n, k + 1);
+        t.close(end);
+        return end;
+    }
+
+    /** $NAME, ${...}, $1, $?, $( 의 끝 위치 ($ 만 있으면 from + 1) */
+    private static int variable(String s, int from) {
+        int n = s.length(), k = from + 1;
+        if (k >= n)
+            return k;
+        char c = s.charAt(k);
+        if (c == '{') {
+            int close = s.indexOf('}', k);
+            return close < 0 ? n : close + 1;
+        }
+        if (c == '(' || "0123456789?@#$!*-".indexOf(c) >= 0)
+            return k + 1;
+        while (k < n && (Character.isLetterOrDigit(s.charAt(k)) || s.charAt(k) == '_'))
+            k++;
+        return k;
+    }
+
+    /* ===================== sql ===================== */
+
+    private static void sql(Tokens t) {
+        String s = t.s;
+        int n = s.length();
+        for (int i = 0, end; i < n; i = end) {
+            char c = s.charAt(i);
+            char next = i + 1 < n ? s.charAt(i + 1) : 0;
+            if (c == '-' && next == '-' || c == '#') {
+                end = lineEnd(s, i);
+                t.token("comment", i, end);
+            } else if (c == '/' && next == '*') {
+                end = s.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                t.token("comment", i, end);
+            } else if (c == '\'' || c == '"') {
+                end = sqlString(s, i);
+                t.token("string", i, end);
+            } else if (c == '`') {
+                end = s.indexOf('`', i + 1);
+                t.open("identifier", i);
+                t.token("punctuation", i, i + 1);
+                if (end > 0)
+                    t.token("punctuation", end, end + 1);
+                end = end < 0 ? n : end + 1;
+                t.close(end);
+            } else if (c == '@') {
+                end = i + 1;
+                while (end < n && (Character.isLetterOrDigit(s.charAt(end)) || "_.$@".indexOf(s.charAt(end)) >= 0))
+                    end++;
+                t.token("variable", i, end);
+            } else if (isDigit(c)) {
+                end = number(s, i);
+                t.token("number", i, end);
+            } else if (Character.isLetter(c) || c == '_') {
+                end = i + 1;
+                while (end < n && (Character.isLetterOrDigit(s.charAt(end)) || s.charAt(end) == '_'))
+                    end++;
+                String cls = nextChar(s, end) == '(' ? SQL_FUNCTIONS.get(s, i, end) : null;
+                if (cls == null)
+                    cls = SQL_WORDS.get(s, i, end);
+                if (cls != null)
+                    t.token(cls, i, end);
+            } else if ("-+*/=%^~&|!<>".indexOf(c) >= 0) {
+                end = i + 1;
+                while (end < n && "=<>|&".indexOf(s.charAt(end)) >= 0)
+                    end++;
+                t.token("operator", i, end);
+            } else if (";[](),.".indexOf(c) >= 0) {
+                end = i + 1;
+                t.token("punctuation", i, end);
+            } else {
+                end = i + 1;
+            }
+        }
+    }
+
+    /** '...' 또는 "..." ('' 두 번 쓰기와 \ escape 둘 다) */
+    private static int sqlString(String s, int from) {
+        char q = s.charAt(from);
+        for (int k = from + 1; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '\\')
+                k++;
+            else if (c == q) {
+                if (k + 1 < s.length() && s.charAt(k + 1) == q)
+                    k++;
+                else
+                    return k + 1;
+            }
+        }
+        return s.length();
+    }
+
+    /* ===================== 공통 ===================== */
+
+    /** 따옴표 문자열의 끝 (\ escape, multiline 아니면 줄 끝에서 멈춤) */
+    private static int quoted(String s, int from, boolean multiline) {
+        char q = s.charAt(from);
+        for (int k = from + 1; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '\\')
+                k++;
+            else if (c == q)
+                return k + 1;
+            else if (c == '\n' && !multiline)
+                return k;
+        }
+        return s.length();
+    }
+
+    /** from 에서 시작하는 숫자의 끝 (0x.., 1_000, 1.5e-3f 같은 접미사 포함) */
+    private static int number(String s, int from) {
+        boolean hex = s.startsWith("0x", from) || s.startsWith("0X", from);
+        int k = from + 1;
+        while (k < s.length()) {
+            char c = s.charAt(k);
+            if (Character.isLetterOrDigit(c) || c == '_'
+                    || c == '.' && k + 1 < s.length() && isDigit(s.charAt(k + 1))
+                    || (c == '+' || c == '-') && !hex && (s.charAt(k - 1) == 'e' || s.charAt(k - 1) == 'E'))
+                k++;
+            else
+                break;
+        }
+        return k;
+    }
+
+    private static int word(String s, int k) {
+        while (k < s.length() && Character.isJavaIdentifierPart(s.charAt(k)))
+            k++;
+        return k;
+    }
+
+    /** k 부터 공백을 건너뛴 첫 글자 (없으면 0) */
+    private static char nextChar(String s, int k) {
+        while (k < s.length() && Character.isWhitespace(s.charAt(k)))
+            k++;
+        return k < s.length() ? s.charAt(k) : 0;
+    }
+
+    private static int skipSpaces(String s, int k, int end) {
+        while (k < end && (s.charAt(k) == ' ' || s.charAt(k) == '\t'))
+            k++;
+        return k;
+    }
+
+    private static int lineEnd(String s, int k) {
+        int eol = s.indexOf('\n', k);
+        return eol < 0 ? s.length() : eol;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 단어 → 토큰 클래스 ("클래스", "단어 단어 ..." 쌍으로 만듦)
+     * 코드 문자열의 구간으로 바로 조회 (식별자마다 substring / HashMap 조회 없이)
+     */
+    private static final class Words {
+        private final String[] keys;
+        private final String[] classes;
+        private final boolean ignoreCase;
+
+        Words(boolean ignoreCase, String... pairs) {
+            int count = 0;
+            for (int k = 1; k < pairs.length; k += 2)
+                count += pairs[k].split(" ").length;
+            int size = Integer.highestOneBit(Math.max(4, count * 2)) << 1;
+            this.keys = new String[size];
+            this.classes = new String[size];
+            this.ignoreCase = ignoreCase;
+            for (int k = 0; k < pairs.length; k += 2)
+                for (String w : pairs[k + 1].split(" ")) {
+                    int slot = hash(w, 0, w.length()) & (size - 1);
+                    while (keys[slot] != null)
+                        slot = (slot + 1) & (size - 1);
+                    keys[slot] = w;
+                    classes[slot] = pairs[k];
+                }
+        }
+
+        String get(String s, int from, int to) {
+            int len = to - from;
+            for (int slot = hash(s, from, to) & (keys.length - 1);; slot = (slot + 1) & (keys.length - 1)) {
+                String key = keys[slot];
+                if (key == null)
+                    return null;
+                if (key.length() == len && key.regionMatches(ignoreCase, 0, s, from, len))
+                    return classes[slot];
+            }
+        }
+
+        private int hash(String s, int from, int to) {
+            int h = 0;
+            for (int k = from; k < to; k++)
+                h = 31 * h + (ignoreCase ? Character.toUpperCase(s.charAt(k)) : s.charAt(k));
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.blog.hyowon.util;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 동시에 도는 사이트 export 들이 같이 쓰는 한도 (앱 전체에 하나)
+ * - api: 전체 사이트 합쳐서 동시에 나가 있는 Notion 요청 수
+ *        (초당 요청 수는 토큰마다 NotionClient 가 따로 지킴, 같은 토큰 쓰는 사이트는 클라이언트 공유)
+ * - cpu: 동시에 렌더 + 색인하는 페이지 수 (API 대기 중에는 안 잡음)
+ * 사이트 안의 동시 요청 수(notion.export.concurrency)는 exporter 가 따로 제한, 이건 그 위에 한 번 더
+ */
+public final class ExportBudget {
+
+    private static final ExportBudget UNLIMITED = new ExportBudget(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final Semaphore api;
+    private final Semaphore cpu;
+
+    public ExportBudget(int apiInFlight, int cpuThreads) {
+        this.api = new Semaphore(Math.max(1, apiInFlight));
+        this.cpu = new Semaphore(Math.max(1, cpuThreads));
+    }
+
+    /** 사이트 하나, 벤치마크 등 */
+    public static ExportBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    void acquireApi() {
+        api.acquireUninterruptibly();
+    }
+
+    void releaseApi() {
+        api.release();
+    }
+
+    void acquireCpu() {
+        cpu.acquireUninterruptibly();
+    }
+
+    void releaseCpu() {
+        cpu.release();
+    }
+}
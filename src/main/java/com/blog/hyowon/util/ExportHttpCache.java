@@ -0,0 +1,92 @@
+package com.blog.hyowon.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.resource.HttpResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * /notion_export/** 캐시 헤더 (static 서빙 모드용, memory 모드는 PageStore 가 같은 규칙으로 미리 계산)
+ * - 내용 해시가 파일명에 들어간 파일(assets/images|css|js/<sha256>...) → 1년 + immutable (재검증 요청 자체가 없음)
+ * - 나머지(html, 예전 이름의 이미지) → no-cache + ETag 로 재검증 (안 바뀌었으면 304)
+ * - html 의 ETag 는 매니페스트에 기록된 페이지 해시 (파일을 다시 읽지 않음)
+ * .gz 사본은 표현이 다르니 ETag 에 -gz 를 붙임
+ */
+public class ExportHttpCache implements HandlerInterceptor {
+
+    private static final Pattern HASHED = Pattern.compile("[0-9a-f]{64}(-w\\d+)?\\.[a-z0-9]+(\\.gz)?");
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+            .getHeaderValue();
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    /** 매니페스트 파일(실제 경로 + mtime) 기준으로 한 번만 읽어서 파일명 → 해시 */
+    private record Hashes(Path file, FileTime modified, Map<String, String> byFile) {
+    }
+
+    private final Path exportDir;
+    private volatile Hashes hashes = new Hashes(null, null, Map.of());
+
+    public ExportHttpCache(Path exportDir) {
+        this.exportDir = exportDir;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String uri = request.getRequestURI();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(uri.substring(uri.lastIndexOf('/') + 1)));
+        return true;
+    }
+
+    /** 파일명 기준 Cache-Control 값 */
+    static String cacheControl(String name) {
+        return HASHED.matcher(name).matches() ? IMMUTABLE : REVALIDATE;
+    }
+
+    /** 해시 파일명이면 확장자 뺀 이름(= ETag 로 쓸 값), 아니면 null */
+    static String hashedTag(String name) {
+        return HASHED.matcher(name).matches() ? name.substring(0, name.indexOf('.')) : null;
+    }
+
+    /** ResourceHttpRequestHandler 용 ETag (모르는 파일이면 null → Last-Modified 만 사용) */
+    public String etag(Resource resource) {
+        String name = resource.getFilename();
+        if (name == null)
+            return null;
+        // EncodedResourceResolver 가 고른 .gz 는 이름은 원본 그대로고 Content-Encoding 헤더로만 구분됨
+        boolean gz = name.endsWith(".gz") || resource instanceof HttpResource encoded
+                && encoded.getResponseHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+        String plain = name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+        String tag = hashedTag(plain);
+        if (tag == null)
+            tag = pageHashes().get(plain);
+        return tag == null ? null : "\"" + tag + (gz ? "-gz" : "") + "\"";
+    }
+
+    private Map<String, String> pageHashes() {
+        try {
+            Path file = exportDir.resolve(PageManifest.FILE_NAME).toRealPath(); // 링크 교체 후엔 다른 버전 폴더
+            FileTime modified = Files.getLastModifiedTime(file);
+            Hashes cur = hashes;
+            if (file.equals(cur.file()) && modified.equals(cur.modified()))
+                return cur.byFile();
+            Map<String, String> byFile = new HashMap<>();
+            for (PageManifest.Entry e : PageManifest.load(file.getParent()).previousEntries())
+                byFile.put(e.file(), e.hash());
+            hashes = new Hashes(file, modified, Map.copyOf(byFile));
+            return byFile;
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.UnaryOperator;
+
+/**
+ * 여러 노드가 같은 export 볼륨을 쓸 때 사이트마다 export 하는 노드를 하나로 (notion.export.coordination=lease)
+ * - .<폴더>.lease: 주인 노드, 만료 시각, 마지막 export 기준(watermark, 시작 시각), 다른 노드의 수동 요청 표시
+ * - lease 파일을 읽고 고치는 동안만 .<폴더>.lock 에 FileChannel 잠금 (OS 잠금이라 프로세스가 죽으면 풀림)
+ * - 주인은 확인 주기마다, export 중에는 ttl/3 마다 연장. 주인이 죽거나 멈추면 ttl 뒤에 다른 노드가 가져감
+ * - 발행 직전에 한 번 더 연장해서 확인 (만료 뒤에 늦게 끝난 export 가 새 주인 결과를 덮지 않게)
+ * - 주인이 바뀌어도 변경 감지 기준을 이어받아서 새 주인이 처음부터 전체 export 하지 않음
+ * - 쓰기는 잠금 안에서 .<폴더>.lease.tmp 하나에 쓰고 rename (쓰다 죽은 노드가 남긴 tmp 는 다음 쓰기가 덮어씀)
+ */
+public class ExportLease {
+
+    /** lease 파일 내용 (owner 가 null 이면 주인 없음) */
+    public record State(String owner, long expiresAt, String watermark, String lastExportStarted,
+            boolean requested) {
+
+        Instant exportStarted() {
+            return lastExportStarted == null ? null : Instant.parse(lastExportStarted);
+        }
+    }
+
+    private static final ObjectMapper OM = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path leaseFile;
+    private final Path tmpFile;
+    private final Path lockFile;
+    private final String nodeId;
+    private final Duration ttl;
+    private boolean cleaned; // 예전 tmp 정리는 잠금 안에서 한 번
+
+    public ExportLease(Path exportDir, String nodeId, Duration ttl) {
+        Path dir = exportDir.toAbsolutePath().normalize();
+        this.leaseFile = dir.resolveSibling("." + dir.getFileName() + ".lease");
+        this.tmpFile = dir.resolveSibling("." + dir.getFileName() + ".lease.tmp");
+        this.lockFile = dir.resolveSibling("." + dir.getFileName() + ".lock");
+        this.nodeId = nodeId;
+        this.ttl = ttl;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /** 주인이 없거나 만료됐거나 내 것이면 가져가거나 연장하고 현재 내용 반환, 남의 것이면 null */
+    public State acquire() throws IOException {
+        long now = System.currentTimeMillis();
+        State s = update(cur -> cur == null ? new State(nodeId, now + ttl.toMillis(), null, null, false)
+                : free(cur, now) ? new State(nodeId, now + ttl.toMillis(), cur.watermark(), cur.lastExportStarted(),
+                        cur.requested())
+                        : cur);
+        return nodeId.equals(s.owner()) ? s : null;
+    }
+
+    /** 아직 내 것이면 연장 (만료돼서 남이 가져갔거나 파일을 못 읽으면 false) */
+    public boolean renew() {
+        try {
+            long now = System.currentTimeMillis();
+            State s = update(cur -> cur != null && nodeId.equals(cur.owner())
+                    ? new State(nodeId, now + ttl.toMillis(), cur.watermark(), cur.lastExportStarted(), cur.requested())
+                    : cur);
+            return s != null && nodeId.equals(s.owner());
+        } catch (IOException e) {
+            System.out.println("[LEASE] renew failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** export 성공: 다음 주인도 이어 쓰게 기준 기록 + 수동 요청 표시 해제 */
+    public void recordExport(String watermark, Instant started) throws IOException {
+        update(cur -> cur != null && nodeId.equals(cur.owner())
+                ? new State(nodeId, cur.expiresAt(), watermark, started.toString(), false)
+                : cur);
+    }
+
+    /** 주인이 아닌 노드로 들어온 수동 export: 주인이 다음 확인 때 돌림 */
+    public void request() throws IOException {
+        update(cur -> cur == null ? new State(null, 0, null, null, true)
+                : new State(cur.owner(), cur.expiresAt(), cur.watermark(), cur.lastExportStarted(), true));
+    }
+
+    /** 내려갈 때: 내 것이면 바로 만료 (다음 노드가 ttl 을 기다리지 않게) */
+    public void release() {
+        try {
+            update(cur -> cur != null && nodeId.equals(cur.owner())
+                    ? new State(null, 0, cur.watermark(), cur.lastExportStarted(), cur.requested())
+                    : cur);
+        } catch (IOException e) {
+            System.out.println("[LEASE] release failed: " + e.getMessage());
+        }
+    }
+
+    /** 지금 파일 내용 (없으면 null) */
+    public State read() throws IOException {
+        return update(cur -> cur);
+    }
+
+    /**
+     * 예전 이름(.lease.tmp-<노드 해시>)으로 남은 tmp 정리: 노드 이름이 배포마다 바뀌면 계속 쌓였음
+     * 잠금 안에서만 부름 (예전 버전 노드도 같은 잠금 안에서 씀)
+     */
+    private void removeOldTmpFiles() {
+        String prefix = leaseFile.getFileName() + ".tmp-";
+        try (var stream = Files.list(leaseFile.getParent())) {
+            for (Path p : (Iterable<Path>) stream.filter(p -> p.getFileName().toString().startsWith(prefix))::iterator)
+                Files.deleteIfExists(p);
+        } catch (IOException e) {
+            System.out.println("[LEASE] old tmp cleanup failed: " + e.getMessage());
+        }
+    }
+
+    private boolean free(State s, long now) {
+        return s.owner() == null || nodeId.equals(s.owner()) || s.expiresAt() <= now;
+    }
+
+    /** 잠금 잡고 읽기 → 바꾸기 → (바뀌었으면) tmp 에 쓰고 rename, 바뀐 뒤 내용 반환 */
+    private State update(UnaryOperator<State> change) throws IOException {
+        return FileLocks.withLock(lockFile, () -> {
+            if (!cleaned) {
+                removeOldTmpFiles();
+                cleaned = true;
+            }
+            State cur = null;
+            if (Files.isRegularFile(leaseFile)) {
+                try {
+                    cur = OM.readValue(leaseFile.toFile(), State.class);
+                } catch (IOException e) {
+                    System.out.println("[LEASE] unreadable lease, treating as free: " + e.getMessage());
+                }
+            }
+            State next = change.apply(cur);
+            if (next != null && !next.equals(cur)) {
+                // 잠금 안이라 tmp 는 한 번에 한 노드만 씀 (이름 하나, 남아 있던 내용은 잘라내고 씀)
+                OM.writeValue(tmpFile.toFile(), next);
+                Files.move(tmpFile, leaseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return next;
+        });
+    }
+}
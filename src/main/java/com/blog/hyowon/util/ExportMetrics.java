@@ -0,0 +1,99 @@
+package com.blog.hyowon.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * export 파이프라인 지표 (Micrometer → /actuator/metrics)
+ * - notion.export{result}                 export 1회 전체 시간
+ * - notion.export.phase{phase}            단계별 시간
+ *     fetch  : Notion API 호출 (병렬 크롤링이면 스레드들 합)
+ *     render : HTML 만들기 (표 자식 조회 같은 중간 fetch 는 뺌, 스레드들 합)
+ *     image  : 렌더 끝난 뒤 남은 이미지 다운로드 대기 + 자리표시 치환
+ *     index  : 검색 색인용 토큰화 + 색인 파일 생성
+ *     write  : 페이지 파일/.gz 기록, manifest 저장
+ *     cleanup: 안 쓰는 이미지 삭제, 발행(링크 교체 + 지난 버전 삭제)
+ * - notion.api.requests{endpoint,status}  API 요청 1번(재시도 포함 각각)의 시간
+ * - notion.api.retries{reason}            throttled / server / network
+ * - notion.export.pages{result}           rendered / skipped
+ * - notion.export.images{cache}           hit-disk / hit-mem / hit-shared / not-modified / downloaded / dedup / failed / timeout
+ * - notion.export.image.bytes             새로 받은 이미지 바이트
+ * - notion.export.last.duration / last.success  마지막 성공 export 의 소요 시간 / 끝난 시각(epoch 초)
+ */
+@Component
+public class ExportMetrics {
+
+    public static final String FETCH = "fetch", RENDER = "render", IMAGE = "image", INDEX = "index",
+            WRITE = "write", CLEANUP = "cleanup";
+
+    private final MeterRegistry registry;
+    private final Counter imageBytes;
+    private final AtomicLong lastDurationNanos = new AtomicLong();
+    private final AtomicLong lastSuccessEpoch = new AtomicLong();
+
+    public ExportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.imageBytes = Counter.builder("notion.export.image.bytes").baseUnit("bytes")
+                .description("newly downloaded image bytes").register(registry);
+        TimeGauge.builder("notion.export.last.duration", lastDurationNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("duration of the last successful export").register(registry);
+        Gauge.builder("notion.export.last.success", lastSuccessEpoch, AtomicLong::get).baseUnit("seconds")
+                .description("epoch seconds when the last successful export finished").register(registry);
+    }
+
+    /** 스프링 밖(벤치마크 등)에서 만들 때: 어디에도 안 남김 */
+    public static ExportMetrics noop() {
+        return new ExportMetrics(new CompositeMeterRegistry());
+    }
+
+    public void phase(String phase, long nanos) {
+        registry.timer("notion.export.phase", "phase", phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** uri 첫 구간(search / pages / blocks / databases)을 endpoint 로, status 는 숫자 또는 error */
+    public void api(String uri, String status, long nanos) {
+        registry.timer("notion.api.requests", "endpoint", endpoint(uri), "status", status)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void retry(String reason) {
+        registry.counter("notion.api.retries", "reason", reason).increment();
+    }
+
+    public void pages(String result) {
+        registry.counter("notion.export.pages", "result", result).increment();
+    }
+
+    public void image(String cache) {
+        registry.counter("notion.export.images", "cache", cache).increment();
+    }
+
+    public void imageBytes(long bytes) {
+        imageBytes.increment(bytes);
+    }
+
+    public void exported(boolean success, long nanos) {
+        Timer.builder("notion.export").tag("result", success ? "success" : "failure").register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            lastDurationNanos.set(nanos);
+            lastSuccessEpoch.set(System.currentTimeMillis() / 1000);
+        }
+    }
+
+    private static String endpoint(String uri) {
+        int from = uri.startsWith("/") ? 1 : 0;
+        int end = from;
+        while (end < uri.length() && uri.charAt(end) != '/' && uri.charAt(end) != '?')
+            end++;
+        return uri.substring(from, end);
+    }
+}
@@ -0,0 +1,229 @@
+package com.blog.hyowon.util;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * export 결과를 스테이징 폴더에 만든 뒤 한 번에 공개
+ *
+ * live 경로(notion_export)는 버전 폴더를 가리키는 심볼릭 링크:
+ *   notion_export → .notion_export.versions/v<timestamp>
+ * - stage(): 현재 버전을 하드링크로 복제한 스테이징 폴더 생성 (내용 같은 파일은 inode/mtime 그대로)
+ * - write(): 내용이 같으면 건너뜀, 다르면 tmp 에 쓰고 rename (하드링크로 공유 중인 live 파일은 안 건드림)
+ * - publish(): 이번 실행에서 안 만든 html 삭제 후 링크를 원자적으로 교체
+ * - 텍스트 파일(html/css/js/svg)은 .gz 사본도 같이 둠 (서버가 요청마다 압축하지 않게, 내용이 바뀐 파일만 다시 압축)
+ *
+ * 심볼릭 링크를 못 쓰는 환경이면 폴더 rename 두 번으로 교체 (짧은 공백 있음)
+ */
+public class ExportPublisher {
+
+    /** 미리 압축해 둘 확장자 */
+    private static final List<String> COMPRESSIBLE = List.of(".html", ".css", ".js", ".svg", ".json", ".txt");
+
+    private final Path live;
+    private final Path versions;
+    private final Path staging;
+    private final Set<String> produced = new ConcurrentSkipListSet<>();
+    private int written, unchanged, compressed;
+
+    private ExportPublisher(Path live, Path versions, Path staging) {
+        this.live = live;
+        this.versions = versions;
+        this.staging = staging;
+    }
+
+    /** 현재 공개 버전을 복제해 스테이징 폴더를 준비 */
+    public static ExportPublisher stage(Path live) throws IOException {
+        live = live.toAbsolutePath().normalize();
+        Path versions = live.resolveSibling("." + live.getFileName() + ".versions");
+        Files.createDirectories(versions);
+        Path staging = versions.resolve("v" + System.currentTimeMillis());
+        while (Files.exists(staging))
+            staging = versions.resolve(staging.getFileName() + "-1");
+        Files.createDirectories(staging);
+        if (Files.isDirectory(live))
+            seed(live.toRealPath(), staging);
+        return new ExportPublisher(live, versions, staging);
+    }
+
+    public Path staging() {
+        return staging;
+    }
+
+    /** 스테이징 기준 상대경로로 파일 기록. 기존 내용과 같으면 쓰지 않음(mtime 유지) */
+    public boolean write(String relative, byte[] bytes) throws IOException {
+        Path target = staging.resolve(relative);
+        produced.add(normalize(relative));
+        if (Files.isRegularFile(target) && Files.size(target) == bytes.length
+                && Arrays.equals(Files.readAllBytes(target), bytes)) {
+            synchronized (this) {
+                unchanged++;
+            }
+            gzip(relative, bytes, false);
+            return false;
+        }
+        put(target, bytes);
+        synchronized (this) {
+            written++;
+        }
+        gzip(relative, bytes, true);
+        return true;
+    }
+
+    /** 이번 실행에서 다시 쓰지는 않았지만 여전히 유효한 파일 (증분 모드에서 건너뛴 페이지) */
+    public void keep(String relative) throws IOException {
+        produced.add(normalize(relative));
+        if (!compressible(relative))
+            return;
+        if (Files.isRegularFile(staging.resolve(relative + ".gz")))
+            produced.add(normalize(relative + ".gz"));
+        else
+            gzip(relative, Files.readAllBytes(staging.resolve(relative)), true); // 이전 버전에 사본이 없던 경우
+    }
+
+    /**
+     * relative + ".gz" 사본 갱신. 원본이 안 바뀌었고 사본이 있으면 그대로 둠
+     * 압축해도 안 줄어드는 파일은 사본을 두지 않음 (서버는 원본을 보냄)
+     */
+    private void gzip(String relative, byte[] bytes, boolean changed) throws IOException {
+        if (!compressible(relative))
+            return;
+        String gzRelative = relative + ".gz";
+        Path gz = staging.resolve(gzRelative);
+        if (!changed && Files.isRegularFile(gz)) {
+            produced.add(normalize(gzRelative));
+            return;
+        }
+        var buf = new java.io.ByteArrayOutputStream(bytes.length / 3 + 64);
+        // 요청마다 하는 압축이 아니라서 최고 압축률 (헤더의 mtime 은 0 이라 같은 입력이면 같은 결과)
+        try (var out = new GZIPOutputStream(buf) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(bytes);
+        }
+        if (buf.size() >= bytes.length) {
+            Files.deleteIfExists(gz);
+            return;
+        }
+        produced.add(normalize(gzRelative));
+        put(gz, buf.toByteArray());
+        synchronized (this) {
+            compressed++;
+        }
+    }
+
+    private static boolean compressible(String relative) {
+        String name = relative.toLowerCase();
+        return COMPRESSIBLE.stream().anyMatch(name::endsWith);
+    }
+
+    /** tmp 에 쓰고 rename (하드링크로 공유 중인 live 파일은 안 건드림) */
+    private static void put(Path target, byte[] bytes) throws IOException {
+        Files.createDirectories(target.getParent());
+        // createTempFile 은 권한이 600 이라 정적 서빙용으로는 일반 파일명으로 생성
+        Path tmp = target.resolveSibling("." + target.getFileName() + ".tmp-" + Thread.currentThread().threadId());
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** 스테이징의 html(.gz 포함) 중 이번 실행에서 만들지 않은 것 삭제 → 링크 교체 → 이전-이전 버전 정리 */
+    public void publish() throws IOException {
+        int removed = 0;
+        try (Stream<Path> files = Files.walk(staging)) {
+            for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String rel = normalize(staging.relativize(p).toString());
+                if ((rel.endsWith(".html") || rel.endsWith(".gz")) && !produced.contains(rel)) {
+                    Files.delete(p);
+                    removed++;
+                    System.out.println("[PUBLISH] removed stale → " + rel);
+                }
+            }
+        }
+
+        Path previous = Files.isSymbolicLink(live) ? live.toRealPath() : null;
+        swap();
+        System.out.printf("[PUBLISH] %s (written=%d, unchanged=%d, gzipped=%d, removed=%d)%n",
+                staging.getFileName(), written, unchanged, compressed, removed);
+
+        // 직전 버전은 읽는 중인 요청이 있을 수 있어 하나 남기고, 그보다 오래된 것만 삭제
+        try (Stream<Path> olds = Files.list(versions)) {
+            for (Path old : (Iterable<Path>) olds::iterator) {
+                if (!old.equals(staging) && !old.equals(previous))
+                    deleteTree(old);
+            }
+        }
+    }
+
+    /** 실패 시 스테이징 폐기 (live 는 그대로) */
+    public void abort() {
+        try {
+            deleteTree(staging);
+        } catch (IOException e) {
+            System.out.println("[PUBLISH] abort cleanup fail: " + e.getMessage());
+        }
+    }
+
+    private void swap() throws IOException {
+        Path target = live.getParent().relativize(staging);
+        if (Files.exists(live, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(live)) {
+            // 최초 1회: 실제 폴더였던 live 를 버전 폴더로 옮기고 링크로 전환 (다음 발행 때 정리됨)
+            Path legacy = versions.resolve("legacy-" + System.currentTimeMillis());
+            Files.move(live, legacy);
+            System.out.println("[PUBLISH] existing folder moved → " + legacy + " (replaced by version link)");
+        }
+        Path tmpLink = live.resolveSibling("." + live.getFileName() + ".link-" + System.nanoTime());
+        try {
+            Files.createSymbolicLink(tmpLink, target);
+        } catch (UnsupportedOperationException | IOException e) {
+            // 심볼릭 링크 불가 → rename 교체
+            Files.deleteIfExists(tmpLink);
+            if (Files.exists(live, LinkOption.NOFOLLOW_LINKS))
+                Files.move(live, versions.resolve("old-" + System.currentTimeMillis()));
+            Files.move(staging, live);
+            return;
+        }
+        // rename(2) 은 기존 링크를 원자적으로 덮어씀
+        Files.move(tmpLink, live, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void seed(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Path dest = to.resolve(from.relativize(p).toString());
+                if (Files.isDirectory(p)) {
+                    Files.createDirectories(dest);
+                } else if (Files.isRegularFile(p)) {
+                    try {
+                        Files.createLink(dest, p);
+                    } catch (UnsupportedOperationException | IOException e) {
+                        Files.copy(p, dest, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS))
+            return;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(p);
+        }
+    }
+
+    private static String normalize(String relative) {
+        return relative.replace('\\', '/');
+    }
+}
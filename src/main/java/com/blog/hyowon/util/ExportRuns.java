@@ -0,0 +1,72 @@
+package com.blog.hyowon.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 사이트 하나의 export 실행 묶기
+ * - 동시에 도는 건 하나. 도는 중에 들어온 요청은 queue 면 끝난 뒤 한 번으로 합침 (여러 번 와도 한 번)
+ * - 요청을 넣은 직후 도는 쪽이 이미 끝났으면 (넣기 전에 rerun 을 보고 나갔을 수 있음) 넣은 쪽이 다시 꺼내서 돌림
+ *   → 넣은 요청은 꺼낸 쪽이 반드시 돌리거나 다시 넣음, 잃어버리지 않음
+ * - 실패는 로그만 (이전 버전 서빙은 그대로)
+ */
+class ExportRuns {
+
+    @FunctionalInterface
+    interface Task {
+        void run(String reason) throws Exception;
+    }
+
+    private final String label;
+    private final Task task;
+    private final Runnable beforeQueue;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<String> rerun = new AtomicReference<>();
+
+    ExportRuns(String label, Task task) {
+        this(label, task, () -> {
+        });
+    }
+
+    /** beforeQueue: 실행 중을 확인한 뒤 요청을 넣기 직전에 불림 (테스트에서 이 사이에 실행이 끝나는 경합을 재현하려고) */
+    ExportRuns(String label, Task task, Runnable beforeQueue) {
+        this.label = label;
+        this.task = task;
+        this.beforeQueue = beforeQueue;
+    }
+
+    boolean isRunning() {
+        return running.get();
+    }
+
+    /** 이미 도는 중이면 기다리지 않고 반환. queue 면 끝난 뒤 한 번 더 돌게 표시 */
+    void run(String reason, boolean queue) {
+        String next = reason;
+        while (next != null) {
+            if (!running.compareAndSet(false, true)) {
+                if (!queue) {
+                    System.out.printf("[EXPORT] %s %s: export already running, skipped%n", label, next);
+                    return;
+                }
+                beforeQueue.run();
+                rerun.set(next);
+                if (running.get()) {
+                    // 도는 쪽은 running 을 내린 뒤 rerun 을 확인하니까 이 요청을 봄
+                    System.out.printf("[EXPORT] %s %s: export already running, queued%n", label, next);
+                    return;
+                }
+                next = rerun.getAndSet(null); // 도는 쪽이 그 사이 끝남 → 직접 (다른 쪽이 먼저 꺼냈으면 null)
+                continue;
+            }
+            try {
+                task.run(next);
+            } catch (Exception e) {
+                System.out.printf("[EXPORT] %s %s run failed, keeping previous version: %s%n", label, next, e);
+            } finally {
+                running.set(false);
+            }
+            next = rerun.getAndSet(null);
+            queue = true;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.blog.hyowon.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 여러 노드(JVM)가 같은 볼륨을 쓸 때 잠금 파일 하나로 임계 구역 (ExportLease, SharedImages)
+ * OS 잠금(FileChannel.lock)이라 프로세스가 죽으면 풀림
+ */
+final class FileLocks {
+
+    // 같은 JVM 안에서 같은 파일을 두 채널로 잠그면 OverlappingFileLockException → 파일마다 모니터 하나
+    private static final Map<Path, Object> LOCAL = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    interface Action<T> {
+        T run() throws IOException;
+    }
+
+    private FileLocks() {
+    }
+
+    /** lockFile 을 (없으면 만들어서) 잠그고 action 실행 */
+    static <T> T withLock(Path lockFile, Action<T> action) throws IOException {
+        Path key = lockFile.toAbsolutePath().normalize();
+        synchronized (LOCAL.computeIfAbsent(key, k -> new Object())) {
+            try (FileChannel ch = FileChannel.open(key, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock ignored = ch.lock()) {
+                return action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.blog.hyowon.util;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 이미지 백그라운드 다운로드
+ * - fetch() 는 바로 리턴 (렌더링은 기다리지 않음), 동시에 받는 건 maxInFlight 개까지
+ * - sendAsync + ofFile 로 본문을 힙에 올리지 않고 임시 파일(.part)로 스트리밍
+ * - ETag / Last-Modified 를 주면 조건부 요청 (안 바뀌었으면 304, 본문 없음)
+ * - 응답 헤더까지 HEADER_TIMEOUT, 본문까지 전체 DOWNLOAD_TIMEOUT (넘으면 요청 취소 → status -1, 슬롯 반환)
+ *   멈춘 이미지 호스트 하나가 동시 다운로드 슬롯을 계속 잡고 있지 않게
+ * - 받은 파일을 어디로 옮길지는 호출하는 쪽(ImageStore) 몫
+ */
+public class ImageDownloader {
+
+    /** status 가 2xx 일 때만 body(임시 파일) 있음. 나머지는 null */
+    public record Result(int status, Path body, String etag, String lastModified) {
+
+        public boolean ok() {
+            return status >= 200 && status < 300 && body != null;
+        }
+
+        public boolean notModified() {
+            return status == 304;
+        }
+    }
+
+    static final Duration HEADER_TIMEOUT = Duration.ofSeconds(30);
+    static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient http;
+    private final int maxInFlight;
+
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public ImageDownloader(HttpClient http, int maxInFlight) {
+        this.http = http;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /** 다운로드 예약. 실패(네트워크 오류 등)는 status -1 로 완료 */
+    public CompletableFuture<Result> fetch(String url, String etag, String lastModified, Path partDir) {
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        enqueue(() -> start(url, etag, lastModified, partDir, result));
+        return result;
+    }
+
+    private synchronized void enqueue(Runnable job) {
+        if (inFlight < maxInFlight) {
+            inFlight++;
+            job.run();
+        } else {
+            waiting.add(job);
+        }
+    }
+
+    private synchronized void finished() {
+        Runnable next = waiting.poll();
+        if (next != null)
+            next.run(); // 슬롯 그대로 넘겨받음
+        else
+            inFlight--;
+    }
+
+    private void start(String url, String etag, String lastModified, Path partDir, CompletableFuture<Result> result) {
+        try {
+            Path part = partDir.resolve(".download-" + System.nanoTime() + ".part");
+            var req = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(HEADER_TIMEOUT)
+                    .header("User-Agent", "Mozilla/5.0");
+            if (etag != null)
+                req.header("If-None-Match", etag);
+            if (lastModified != null)
+                req.header("If-Modified-Since", lastModified);
+            CompletableFuture<HttpResponse<Path>> exchange = http.sendAsync(req.build(),
+                    HttpResponse.BodyHandlers.ofFile(part));
+            // 헤더 뒤 본문이 끝없이 늘어지는 경우: 취소하면 교환도 중단됨
+            CompletableFuture.delayedExecutor(DOWNLOAD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> exchange.cancel(true));
+            exchange.handle((res, err) -> {
+                result.complete(complete(url, part, res, err));
+                finished();
+                return null;
+            });
+        } catch (Exception e) {
+            System.out.println("[IMG] error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+            result.complete(new Result(-1, null, null, null));
+            finished();
+        }
+    }
+
+    private static Result complete(String url, Path part, HttpResponse<Path> res, Throwable err) {
+        try {
+            if (err != null) {
+                System.out.println("[IMG] error: " + err.getClass().getSimpleName() + " - " + err.getMessage());
+                Files.deleteIfExists(part);
+                return new Result(-1, null, null, null);
+            }
+            int status = res.statusCode();
+            String etag = res.headers().firstValue("ETag").orElse(null);
+            String lastModified = res.headers().firstValue("Last-Modified").orElse(null);
+            if (status >= 200 && status < 300)
+                return new Result(status, part, etag, lastModified);
+            Files.deleteIfExists(part);
+            if (status != 304)
+                System.out.println("[IMG] fail " + status + " : " + url);
+            return new Result(status, null, etag, lastModified);
+        } catch (Exception e) {
+            System.out.println("[IMG] error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+            try {
+                Files.deleteIfExists(part);
+            } catch (Exception ignore) {
+            }
+            return new Result(-1, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 내용 주소 기반 이미지 저장소 (assets/images/<sha256>.<ext>)
+ * - 같은 그림이 여러 URL 로 올라와 있어도 파일은 하나
+ * - URL → 파일 인덱스를 .images.json 으로 실행 간 유지
+ *   (Notion 업로드는 서명 쿼리가 매번 바뀌니까 쿼리 뺀 경로로, 외부 URL 은 쿼리가 내용을 고르기도 하니까 그대로)
+ * - 외부 URL 은 ETag / Last-Modified 로 재검증 → 안 바뀌었으면 304 로 끝
+ *   증분 export 가 건너뛰는 페이지의 외부 이미지도 revalidate() 로 같은 경로를 탐 (바뀌었으면 페이지 다시 렌더)
+ *   (Notion 업로드 파일은 경로마다 내용이 고정이라 인덱스에 있으면 재검증 안 함)
+ * - 정리는 참조 카운트: 이번 export 의 페이지들이 참조하지 않는 파일만 삭제 (폭 제한 사본은 원본을 따라감)
+ * - 새로 받은 이미지는 ImageVariants 로 크기 확인 + 폭 제한 사본 생성, 결과는 인덱스에 같이 저장
+ * - 캐시 적중/다운로드 결과는 로그 대신 ExportMetrics 카운터로 (notion.export.images)
+ * - 사이트가 여럿이면 SharedImages 를 거침: 다른 사이트가 받았거나 받는 중인 URL 은 그 파일을 링크
+ *
+ * 렌더 시점에 아직 내용(=파일명)을 모르는 이미지는 자리표시 경로(pending-*)를 돌려주고,
+ * finish() 에서 최종 경로(또는 실패 시 원래 URL)로 바꿀 매핑을 돌려줌
+ * 기다리는 건 export 마감까지: 넘으면 갖고 있던 사본, 없으면 원래 URL (다운로드는 뒤에서 끝나도 이번 결과엔 안 씀)
+ */
+public class ImageStore {
+
+    public static final String INDEX_FILE = ".images.json";
+    public static final String PREFIX = "assets/images/";
+    private static final String PENDING = PREFIX + "pending-";
+
+    /**
+     * key: indexKey(), file: assets/images 안 파일명, width/height/variants: ImageVariants 결과
+     * url: 외부 이미지의 원래 URL (재검증 조건부 GET 에 씀, Notion 업로드와 예전 인덱스 항목은 null)
+     */
+    public record IndexEntry(String key, String file, String etag, String lastModified, boolean external,
+            int width, int height, List<Integer> variants, String url) {
+
+        ImageVariants.Info info() {
+            return new ImageVariants.Info(width, height, variants == null ? List.of() : variants);
+        }
+    }
+
+    private record Snapshot(List<IndexEntry> images, Map<String, Integer> refs) {
+    }
+
+    /**
+     * img 태그에 넣을 내용: src 는 최종 경로 / 원래 URL / 자리표시 경로, local 은 로컬 파일 여부
+     * info 는 로컬 파일일 때만 의미 있음 (크기 + 폭 제한 사본)
+     */
+    public record Resolution(String src, boolean local, ImageVariants.Info info) {
+
+        static Resolution remote(String url) {
+            return new Resolution(url, false, ImageVariants.Info.UNKNOWN);
+        }
+
+        /** 사본 경로 (원본과 같은 폴더) */
+        public String variant(int w) {
+            return ImageVariants.variantName(src, w);
+        }
+    }
+
+    /** fallback: 마감까지 안 끝났을 때 쓸 것 (재검증이면 갖고 있던 사본, 아니면 원래 URL) */
+    private record Pending(String placeholder, CompletableFuture<Resolution> done, Resolution fallback) {
+    }
+
+    private static final ObjectMapper OM = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path outDir;
+    private final Path imgDir;
+    private final ImageDownloader downloader;
+    private final ExportMetrics metrics;
+    private final SharedImages shared; // 사이트 하나면 null
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private ImageStore(Path outDir, ImageDownloader downloader, ExportMetrics metrics, SharedImages shared) {
+        this.outDir = outDir;
+        this.imgDir = outDir.resolve(PREFIX);
+        this.downloader = downloader;
+        this.metrics = metrics;
+        this.shared = shared;
+    }
+
+    public static ImageStore open(Path outDir, ImageDownloader downloader, ExportMetrics metrics) throws IOException {
+        return open(outDir, downloader, metrics, null);
+    }
+
+    /** export 폴더의 인덱스를 읽어서 저장소 준비 (없거나 깨졌으면 빈 인덱스) */
+    public static ImageStore open(Path outDir, ImageDownloader downloader, ExportMetrics metrics, SharedImages shared)
+            throws IOException {
+        ImageStore store = new ImageStore(outDir, downloader, metrics, shared);
+        Files.createDirectories(store.imgDir);
+        Path file = outDir.resolve(INDEX_FILE);
+        if (Files.isRegularFile(file)) {
+            try {
+                Snapshot snap = OM.readValue(file.toFile(), Snapshot.class);
+                if (snap.images() != null)
+                    for (IndexEntry e : snap.images())
+                        store.index.put(e.key(), e);
+            } catch (Exception e) {
+                System.out.println("[IMG] index unreadable, starting fresh: " + e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    public static boolean isPending(String src) {
+        return src.startsWith(PENDING);
+    }
+
+    /** 내용 해시 파일명인지 (예전 방식 이름이면 false → 해당 페이지는 다시 렌더해서 이전) */
+    public static boolean isContentAddressed(String src) {
+        return src.startsWith(PREFIX) && src.substring(PREFIX.length()).matches("[0-9a-f]{64}\\.[a-z0-9]+");
+    }
+
+    /**
+     * 렌더 시점에 넣을 내용
+     * - 인덱스에 있고 파일도 있는 Notion 업로드 → 최종 경로 바로
+     * - 다른 사이트가 이미 받은 URL → 그 파일 링크해서 최종 경로 바로
+     * - 그 외(처음 보는 URL, 외부 URL 재검증) → 자리표시 경로 + 백그라운드 다운로드 (isPending)
+     */
+    public Resolution resolve(String url, boolean external) {
+        String key = indexKey(url, external);
+        IndexEntry known = index.get(key);
+        boolean onDisk = known != null && Files.isRegularFile(imgDir.resolve(known.file()));
+        if (onDisk && !external) {
+            metrics.image("hit-disk");
+            IndexEntry entry = withVariants(known);
+            if (shared != null)
+                shared.share(entry, imgDir); // 저장소가 비었어도 다른 사이트가 이어받을 수 있게
+            return local(entry);
+        }
+        if (!onDisk && shared != null) {
+            IndexEntry adopted = shared.adopt(key, imgDir);
+            if (adopted != null) {
+                index.put(key, adopted);
+                metrics.image("hit-shared");
+                return local(adopted);
+            }
+        }
+        Pending p = pending.get(key);
+        if (p == null) {
+            Pending mine = new Pending(PENDING + sha256(key).substring(0, 16), new CompletableFuture<>(),
+                    onDisk ? local(known) : Resolution.remote(url));
+            p = pending.putIfAbsent(key, mine);
+            if (p == null)
+                return download(url, key, external, known, mine);
+        }
+        metrics.image("hit-mem");
+        return Resolution.remote(p.placeholder());
+    }
+
+    /**
+     * 이 URL 을 처음 맡은 호출: 백그라운드 다운로드 시작 (파일이 있으면 재검증)
+     * 다른 사이트가 같은 URL 을 받는 중이면 받지 않고 그 결과를 링크
+     */
+    private Resolution download(String url, String key, boolean external, IndexEntry known, Pending mine) {
+        boolean revalidate = known != null && Files.isRegularFile(imgDir.resolve(known.file()));
+        CompletableFuture<Resolution> result;
+        if (shared != null && !revalidate) {
+            CompletableFuture<IndexEntry> theirs = shared.claim(key, new CompletableFuture<>());
+            result = theirs != null
+                    ? theirs.thenCompose(e -> adoptOrFetch(url, key, external, e))
+                    : fetch(url, key, external, null).whenComplete((r, err) -> shared.done(key,
+                            err == null && r.local() ? index.get(key) : null, imgDir));
+        } else {
+            result = fetch(url, key, external, revalidate ? known : null);
+        }
+        result.whenComplete((r, err) -> mine.done().complete(err == null ? r : Resolution.remote(url)));
+        return Resolution.remote(mine.placeholder());
+    }
+
+    private CompletableFuture<Resolution> fetch(String url, String key, boolean external, IndexEntry known) {
+        return downloader.fetch(url, known != null ? known.etag() : null, known != null ? known.lastModified() : null,
+                imgDir).thenApply(res -> store(key, url, external, known, res));
+    }
+
+    /** 다른 사이트가 받은 파일을 링크, 그쪽이 실패했으면 직접 받음 */
+    private CompletableFuture<Resolution> adoptOrFetch(String url, String key, boolean external, IndexEntry theirs) {
+        IndexEntry adopted = theirs == null ? null : shared.adopt(key, imgDir);
+        if (adopted == null)
+            return fetch(url, key, external, null);
+        index.put(key, adopted);
+        metrics.image("hit-shared");
+        return CompletableFuture.completedFuture(local(adopted));
+    }
+
+    /**
+     * 건너뛰려는 페이지가 참조하는 외부 이미지 재검증 (렌더 때와 같은 조건부 GET, 같은 URL 은 실행당 한 번)
+     * Notion 업로드 파일은 경로마다 내용이 고정이라 안 봄
+     * @param srcs 이전 export 때 페이지가 참조한 이미지 경로 (PageManifest.Entry.images)
+     * @param deadline export 마감 (nanoTime), 넘으면 갖고 있던 사본 그대로로 봄
+     * @return 전부 그대로면 true, 내용이 바뀐 게 있으면 false (→ 새 파일명으로 다시 렌더해야 함)
+     */
+    public boolean revalidate(Collection<String> srcs, long deadline) {
+        for (String src : srcs) {
+            if (!src.startsWith(PREFIX))
+                continue;
+            String file = src.substring(PREFIX.length());
+            for (IndexEntry e : List.copyOf(index.values())) {
+                if (!e.external() || !e.file().equals(file))
+                    continue;
+                if (e.url() == null)
+                    return false; // 예전 인덱스 (쿼리 뺀 키라 원래 URL 을 모름) → 다시 렌더해서 새 키로
+                Resolution r = resolve(e.url(), true);
+                Pending p = pending.get(e.key());
+                if (isPending(r.src()) && p != null)
+                    r = await(p, deadline); // 실패면 갖고 있던 사본 → 그대로로 봄
+                if (!r.src().equals(src))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** 백그라운드 다운로드를 마감(nanoTime)까지 기다리고 자리표시 경로 → 최종 결과 매핑 반환 */
+    public Map<String, Resolution> finish(long deadline) {
+        Map<String, Resolution> out = new HashMap<>();
+        for (Pending p : pending.values())
+            out.put(p.placeholder(), await(p, deadline));
+        return out;
+    }
+
+    /** 마감까지만 기다림, 넘으면 fallback (멈춘 이미지 호스트 하나가 export 를 붙잡지 않게) */
+    private Resolution await(Pending p, long deadline) {
+        try {
+            return p.done().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            metrics.image("timeout");
+            System.out.println("[IMG] export deadline reached, using "
+                    + (p.fallback().local() ? "previous copy" : "remote url") + " → " + p.fallback().src());
+            return p.fallback();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return p.fallback();
+        } catch (ExecutionException e) {
+            return p.fallback();
+        }
+    }
+
+    private Resolution store(String key, String url, boolean external, IndexEntry known, ImageDownloader.Result res) {
+        try {
+            if (res.notModified() && known != null) {
+                metrics.image("not-modified");
+                return local(withVariants(known));
+            }
+            if (!res.ok()) {
+                metrics.image("failed");
+                // 재검증 실패면 갖고 있던 사본이라도 씀, 아예 없으면 원래 URL 로 폴백
+                if (known != null)
+                    return local(withVariants(known));
+                return Resolution.remote(url);
+            }
+            metrics.imageBytes(Files.size(res.body()));
+            String name = digest(res.body()) + extension(normalizedKey(url));
+            Path target = imgDir.resolve(name);
+            if (Files.isRegularFile(target)) {
+                Files.delete(res.body()); // 같은 내용이 이미 있음 (다른 URL 로 올라온 같은 그림 포함)
+                metrics.image("dedup");
+            } else {
+                Files.move(res.body(), target, StandardCopyOption.ATOMIC_MOVE);
+                metrics.image("downloaded");
+                System.out.println("[IMG] downloaded      → " + name);
+            }
+            ImageVariants.Info info = ImageVariants.ensure(imgDir, name);
+            IndexEntry entry = new IndexEntry(key, name, res.etag(), res.lastModified(), external,
+                    info.width(), info.height(), info.widths(), external ? url : null);
+            index.put(key, entry);
+            return local(entry);
+        } catch (Exception e) {
+            System.out.println("[IMG] error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+            metrics.image("failed");
+            return known != null ? local(known) : Resolution.remote(url);
+        }
+    }
+
+    private static Resolution local(IndexEntry e) {
+        return new Resolution(PREFIX + e.file(), true, e.info());
+    }
+
+    /** 사본 정보가 없는 예전 인덱스 항목이거나 사본 파일이 지워졌으면 다시 만들어서 갱신 */
+    private IndexEntry withVariants(IndexEntry e) {
+        ImageVariants.Info info = e.info();
+        boolean complete = info.known() && info.widths().stream()
+                .allMatch(w -> Files.isRegularFile(imgDir.resolve(ImageVariants.variantName(e.file(), w))));
+        if (complete)
+            return e;
+        info = ImageVariants.ensure(imgDir, e.file());
+        IndexEntry updated = new IndexEntry(e.key(), e.file(), e.etag(), e.lastModified(), e.external(),
+                info.width(), info.height(), info.widths(), e.url());
+        index.put(e.key(), updated);
+        return updated;
+    }
+
+    /**
+     * 참조 카운트 정리: 페이지들이 참조하는 파일만 남기고 삭제, 인덱스도 살아있는 파일만 유지
+     * @param referenced 이번 export 결과 페이지들의 이미지 경로 (페이지마다 한 번씩, 중복 허용)
+     * @return 남은 이미지 파일 수 (사본 포함)
+     */
+    public int collect(Collection<String> referenced) throws IOException {
+        Map<String, Integer> refs = new TreeMap<>();
+        for (String src : referenced)
+            if (src.startsWith(PREFIX))
+                refs.merge(src.substring(PREFIX.length()), 1, Integer::sum);
+
+        int kept = 0;
+        try (var stream = Files.list(imgDir)) {
+            for (Path p : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                String fname = p.getFileName().toString();
+                String source = ImageVariants.sourceOf(fname);
+                if (refs.containsKey(fname) || (source != null && refs.containsKey(source))) {
+                    kept++;
+                } else {
+                    try {
+                        Files.delete(p);
+                        System.out.println("[IMG] removed orphan → " + fname);
+                    } catch (Exception e) {
+                        System.out.println("[IMG] delete fail → " + fname + " : " + e.getMessage());
+                    }
+                }
+            }
+        }
+        index.values().removeIf(e -> !refs.containsKey(e.file()));
+
+        List<IndexEntry> entries = new ArrayList<>(index.values());
+        entries.sort(Comparator.comparing(IndexEntry::key));
+        Path tmp = outDir.resolve(INDEX_FILE + ".tmp");
+        OM.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new Snapshot(entries, refs));
+        Files.move(tmp, outDir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return kept;
+    }
+
+    /* ===================== Helpers ===================== */
+
+    private static String digest(Path file) throws IOException {
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha())) {
+            in.transferTo(java.io.OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest());
+        }
+    }
+
+    private static String sha256(String s) {
+        return HexFormat.of().formatHex(sha().digest(s.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 원래 파일명의 확장자 (없거나 이상하면 .bin) */
+    private static String extension(String key) {
+        String filename = key.substring(key.lastIndexOf('/') + 1);
+        int dot = filename.lastIndexOf('.');
+        String ext = (dot >= 0 && (filename.length() - dot) <= 5) ? filename.substring(dot).toLowerCase() : ".bin";
+        return ext.matches("\\.[a-z0-9]+") ? ext : ".bin";
+    }
+
+    /**
+     * 인덱스 / 다운로드 중복 제거 키
+     * Notion 업로드(서명 URL)는 쿼리가 매번 바뀌니까 경로만, 외부 URL 은 fragment 만 뺀 전체
+     * (image.php?id=..., 차트/배지 URL 처럼 쿼리가 내용을 고르는 경우 서로 다른 이미지)
+     */
+    static String indexKey(String url, boolean external) {
+        if (!external)
+            return normalizedKey(url);
+        int hash = url.indexOf('#');
+        return hash > -1 ? url.substring(0, hash) : url;
+    }
+
+    /** scheme://host + path 만 사용 (쿼리/fragment 무시: Notion 서명 URL 은 쿼리가 매번 바뀜) */
+    static String normalizedKey(String url) {
+        try {
+            var u = java.net.URI.create(url);
+            return new java.net.URI(u.getScheme(), u.getAuthority(), u.getPath(), null, null).toString();
+        } catch (Exception e) {
+            int q = url.indexOf('?');
+            return q > -1 ? url.substring(0, q) : url;
+        }
+    }
+}
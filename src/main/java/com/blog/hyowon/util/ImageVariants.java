@@ -0,0 +1,141 @@
+package com.blog.hyowon.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 원본 이미지의 폭 제한 사본(<digest>-w480.png ...) 생성 (JDK ImageIO 만 사용, 네이티브 의존성 없음)
+ * - 원본 파일명이 내용 해시라서, 사본 파일이 이미 있으면 다시 인코딩하지 않음
+ * - 줄였는데 원본보다 용량이 크면(단색 스크린샷 등) 그 사본은 버림
+ * - png / jpeg 만 변환 (gif 는 애니메이션일 수 있어서, webp 등은 ImageIO 가 못 읽어서 원본만 사용)
+ * - 크기(width/height)는 헤더만 읽어서 얻음
+ */
+public final class ImageVariants {
+
+    /** 만들 폭 후보 (원본보다 작은 것만) */
+    static final int[] WIDTHS = { 480, 960, 1600 };
+
+    private static final Set<String> RESIZABLE = Set.of("png", "jpeg");
+    private static final Pattern VARIANT = Pattern.compile("(.+)-w\\d+(\\.[a-z0-9]+)");
+
+    /** width/height 0 이면 읽지 못한 이미지. widths 는 만들어 둔 사본 폭 (작은 순) */
+    public record Info(int width, int height, List<Integer> widths) {
+
+        static final Info UNKNOWN = new Info(0, 0, List.of());
+
+        public boolean known() {
+            return width > 0 && height > 0;
+        }
+    }
+
+    private ImageVariants() {
+    }
+
+    /** 원본 파일명 → 폭 w 사본 파일명 */
+    public static String variantName(String file, int w) {
+        int dot = file.lastIndexOf('.');
+        return dot < 0 ? file + "-w" + w : file.substring(0, dot) + "-w" + w + file.substring(dot);
+    }
+
+    /** 사본 파일명이면 원본 파일명, 아니면 null */
+    public static String sourceOf(String file) {
+        Matcher m = VARIANT.matcher(file);
+        return m.matches() ? m.group(1) + m.group(2) : null;
+    }
+
+    /** imgDir/file 의 크기를 읽고, 없는 사본만 만들어서 결과 반환 (실패하면 UNKNOWN) */
+    public static Info ensure(Path imgDir, String file) {
+        Path src = imgDir.resolve(file);
+        try (ImageInputStream in = ImageIO.createImageInputStream(src.toFile())) {
+            if (in == null)
+                return Info.UNKNOWN;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                return Info.UNKNOWN;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                String format = reader.getFormatName().toLowerCase();
+                if (!RESIZABLE.contains(format))
+                    return new Info(width, height, List.of());
+
+                long srcSize = Files.size(src);
+                List<Integer> widths = new ArrayList<>();
+                BufferedImage decoded = null;
+                for (int w : WIDTHS) {
+                    if (w >= width)
+                        break;
+                    Path out = imgDir.resolve(variantName(file, w));
+                    if (!Files.isRegularFile(out)) {
+                        if (decoded == null)
+                            decoded = reader.read(0);
+                        write(scale(decoded, w, Math.max(1, Math.round((float) height * w / width)), format),
+                                format, out);
+                        if (Files.size(out) >= srcSize) {
+                            Files.delete(out);
+                            continue;
+                        }
+                        System.out.println("[IMG] variant         → " + out.getFileName());
+                    }
+                    widths.add(w);
+                }
+                return new Info(width, height, List.copyOf(widths));
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            System.out.println("[IMG] variant error: " + file + " - " + e.getMessage());
+            return Info.UNKNOWN;
+        }
+    }
+
+    /** 반씩 줄여가다가 마지막에 목표 크기로 (한 번에 크게 줄이면 계단 현상) */
+    private static BufferedImage scale(BufferedImage src, int w, int h, String format) {
+        int type = "jpeg".equals(format) || !src.getColorModel().hasAlpha()
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage cur = src;
+        int cw = src.getWidth(), ch = src.getHeight();
+        do {
+            cw = Math.max(w, cw / 2);
+            ch = Math.max(h, ch / 2);
+            BufferedImage next = new BufferedImage(cw, ch, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(cur, 0, 0, cw, ch, null);
+            } finally {
+                g.dispose();
+            }
+            cur = next;
+        } while (cw != w || ch != h);
+        return cur;
+    }
+
+    /** 임시 파일에 쓰고 rename (중간에 죽어도 반쪽 사본이 남지 않게) */
+    private static void write(BufferedImage img, String format, Path out) throws Exception {
+        Path tmp = out.resolveSibling("." + out.getFileName() + ".tmp-" + Thread.currentThread().threadId());
+        try {
+            if (!ImageIO.write(img, format, tmp.toFile()))
+                throw new IllegalStateException("no writer for " + format);
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.blog.hyowon.util;
+
+import java.util.List;
+
+/**
+ * 렌더러가 실제로 읽는 필드만 남긴 Notion 블록 (응답 JSON 트리는 들고 있지 않음)
+ * - text: rich_text (paragraph/heading/list/quote/callout/to_do/code)
+ * - language: code, checked: to_do
+ * - title: child_page / child_database 제목
+ * - imageUrl: image (external/file 중 실제 url), imageExternal: 외부 링크 이미지 여부
+ * - colHeader/rowHeader: table, cells: table_row
+ * - syncedFrom: synced_block 사본이면 원본 블록 id (자식은 원본에서 가져옴)
+ * 타입에 해당하지 않는 필드는 null/false/빈 리스트
+ */
+public record NotionBlock(String id, String type, boolean hasChildren, List<TextRun> text, String language,
+        boolean checked, String title, String imageUrl, boolean imageExternal, boolean colHeader, boolean rowHeader,
+        List<List<TextRun>> cells, String syncedFrom) {
+
+    /** rich_text 의 한 조각. annotations 는 비트 플래그 */
+    public record TextRun(String text, String href, int annotations) {
+
+        public static final int BOLD = 1;
+        public static final int ITALIC = 1 << 1;
+        public static final int STRIKETHROUGH = 1 << 2;
+        public static final int UNDERLINE = 1 << 3;
+        public static final int CODE = 1 << 4;
+
+        public boolean has(int flag) {
+            return (annotations & flag) != 0;
+        }
+    }
+}
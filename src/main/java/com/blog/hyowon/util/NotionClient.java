@@ -0,0 +1,273 @@
+package com.blog.hyowon.util;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Notion API 공용 클라이언트 (앱에서 하나만 만들어서 export 실행끼리 공유)
+ * - 토큰 버킷으로 초당 요청 수 제한 (Notion 평균 3 req/s)
+ * - 429 는 Retry-After 동안 버킷 전체를 멈추고 재시도, 5xx / 연결 오류 / 타임아웃은 지수 백오프 + 지터
+ * - 요청마다 타임아웃 (마감까지 남은 시간보다 길게는 안 기다림), 호출하는 쪽이 주는 마감 시각(export 단위)을 넘기면 DeadlineExceeded
+ * - 커넥션 풀(reactor-netty ConnectionProvider)을 실행 간 재사용
+ */
+public class NotionClient implements AutoCloseable {
+
+    /** notion.api.base-url 기본값 (테스트/벤치마크는 로컬 스텁 주소를 넘김) */
+    public static final String DEFAULT_BASE_URL = "https://api.notion.com/v1";
+
+    private static final String NOTION_VERSION = "2022-06-28";
+    private static final Set<Integer> RETRYABLE = Set.of(429, 500, 502, 503, 504);
+    private static final Duration BACKOFF_BASE = Duration.ofMillis(500);
+    private static final Duration BACKOFF_MAX = Duration.ofSeconds(20);
+
+    /** 응답 스트림 → 결과 (NotionJson::readBlocks 등) */
+    @FunctionalInterface
+    public interface JsonReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /** export 마감 시각을 넘김 (재시도 대기 포함) */
+    public static class DeadlineExceeded extends RuntimeException {
+        public DeadlineExceeded(String message) {
+            super(message);
+        }
+    }
+
+    /** 2xx 면 body (합친 응답 버퍼, 파싱은 block() 한 호출 스레드에서), 재시도 대상이면 status + Retry-After */
+    private record Response(DataBuffer body, int status, Duration retryAfter) {
+    }
+
+    private final ConnectionProvider pool;
+    private final WebClient http;
+    private final Duration requestTimeout;
+    private final int maxAttempts;
+    private final TokenBucket bucket;
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private ExportMetrics metrics = ExportMetrics.noop();
+
+    public NotionClient(String baseUrl, String token, int maxConnections) {
+        this(baseUrl, token, maxConnections, 3.0, Duration.ofSeconds(30), 6);
+    }
+
+    /**
+     * @param requestsPerSecond 평균 초당 요청 수 (버스트는 같은 값만큼 허용)
+     * @param maxAttempts 첫 시도 포함 최대 시도 횟수
+     */
+    public NotionClient(String baseUrl, String token, int maxConnections, double requestsPerSecond,
+            Duration requestTimeout, int maxAttempts) {
+        this.pool = ConnectionProvider.builder("notion")
+                .maxConnections(Math.max(1, maxConnections))
+                .pendingAcquireTimeout(Duration.ofSeconds(30))
+                .maxIdleTime(Duration.ofSeconds(30)) // 서버가 먼저 끊은 유휴 커넥션을 집어 들지 않게
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+        HttpClient client = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5_000)
+                .responseTimeout(requestTimeout)
+                .compress(true);
+        this.http = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(client))
+                .defaultHeader("Authorization", "Bearer " + token)
+                .defaultHeader("Notion-Version", NOTION_VERSION)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.bucket = new TokenBucket(requestsPerSecond, Math.max(1, (int) Math.ceil(requestsPerSecond)));
+    }
+
+    public NotionClient metrics(ExportMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public <T> T get(String uri, JsonReader<T> reader, long deadlineNanos) {
+        return exchange(HttpMethod.GET, uri, null, reader, deadlineNanos);
+    }
+
+    public <T> T post(String uri, String json, JsonReader<T> reader, long deadlineNanos) {
+        return exchange(HttpMethod.POST, uri, json, reader, deadlineNanos);
+    }
+
+    /** 마감 시각 계산용 */
+    public static long deadlineAfter(Duration d) {
+        return System.nanoTime() + d.toNanos();
+    }
+
+    /** 지금까지 재시도한 횟수 / 그 중 429 */
+    public int retries() {
+        return retries.get();
+    }
+
+    public int throttled() {
+        return throttled.get();
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    /* ===================== 재시도 루프 ===================== */
+
+    private <T> T exchange(HttpMethod method, String uri, String json, JsonReader<T> reader, long deadline) {
+        for (int attempt = 1;; attempt++) {
+            sleepUntil(bucket.reserve(), deadline, uri);
+            Duration wait;
+            long started = System.nanoTime();
+            long left = deadline - started;
+            if (left <= 0)
+                throw new DeadlineExceeded("export deadline exceeded before " + uri);
+            try {
+                Response res = send(method, uri, json, Duration.ofNanos(left)).block();
+                metrics.api(uri, res == null ? "204" : String.valueOf(res.status()), System.nanoTime() - started);
+                if (res == null || res.status() < 300)
+                    return res == null || res.body() == null ? null : decode(res.body(), reader);
+                if (attempt >= maxAttempts)
+                    throw new IllegalStateException("Notion " + res.status() + " after " + attempt + " attempts: " + uri);
+                wait = res.retryAfter() != null ? res.retryAfter() : backoff(attempt);
+                if (res.status() == 429) {
+                    throttled.incrementAndGet();
+                    bucket.pause(wait); // 다른 요청들도 같이 쉼
+                }
+                metrics.retry(res.status() == 429 ? "throttled" : "server");
+                System.out.printf("[NOTION] %d %s → retry %d in %dms%n", res.status(), uri, attempt, wait.toMillis());
+            } catch (RuntimeException e) {
+                Throwable cause = Exceptions.unwrap(e);
+                metrics.api(uri, e instanceof WebClientResponseException w ? String.valueOf(w.getStatusCode().value())
+                        : "error", System.nanoTime() - started);
+                boolean transientError = cause instanceof TimeoutException || e instanceof WebClientRequestException;
+                if (!transientError || attempt >= maxAttempts)
+                    throw e;
+                wait = backoff(attempt);
+                metrics.retry("network");
+                System.out.printf("[NOTION] %s %s → retry %d in %dms%n", cause.getClass().getSimpleName(), uri, attempt,
+                        wait.toMillis());
+            }
+            retries.incrementAndGet();
+            sleepUntil(System.nanoTime() + wait.toNanos(), deadline, uri);
+        }
+    }
+
+    /** untilDeadline: 응답 대기 / 전체 시도 타임아웃을 이보다 길게 잡지 않음 (시도 하나가 마감을 넘기지 않게) */
+    private Mono<Response> send(HttpMethod method, String uri, String json, Duration untilDeadline) {
+        Duration responseTimeout = min(requestTimeout, untilDeadline);
+        var req = http.method(method).uri(uri).accept(MediaType.APPLICATION_JSON)
+                .httpRequest(r -> r.<HttpClientRequest>getNativeRequest().responseTimeout(responseTimeout));
+        if (json != null)
+            req.contentType(MediaType.APPLICATION_JSON).bodyValue(json);
+        return req.exchangeToMono(res -> {
+            int status = res.statusCode().value();
+            if (res.statusCode().is2xxSuccessful())
+                return DataBufferUtils.join(res.bodyToFlux(DataBuffer.class))
+                        .map(buf -> new Response(buf, status, null))
+                        .switchIfEmpty(Mono.fromSupplier(() -> new Response(null, status, null)));
+            if (RETRYABLE.contains(status)) {
+                Duration retryAfter = retryAfter(res.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                return res.releaseBody().thenReturn(new Response(null, status, retryAfter));
+            }
+            return res.createException().flatMap(Mono::error); // 400/401/404 등은 재시도 없이 그대로
+        }).timeout(min(requestTimeout.plusSeconds(5), untilDeadline));
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * 응답 바이트를 String 으로 만들지 않고 바로 스트리밍 파서에 넘김 (버퍼는 읽고 나서 반환)
+     * event loop 가 아니라 호출 스레드에서 (큰 응답 파싱이 같은 루프의 다른 커넥션 I/O 를 막지 않게)
+     */
+    private static <T> T decode(DataBuffer buf, JsonReader<T> reader) {
+        try (InputStream in = buf.asInputStream(true)) {
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** 0.5s, 1s, 2s ... 최대 20s, 그 절반~전체 사이에서 랜덤 (동시에 실패한 요청들이 같이 몰리지 않게) */
+    private static Duration backoff(int attempt) {
+        long cap = Math.min(BACKOFF_MAX.toMillis(), BACKOFF_BASE.toMillis() << Math.min(attempt - 1, 16));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap / 2, cap + 1));
+    }
+
+    /** Retry-After: 초 단위 숫자만 (날짜 형식이면 백오프로) */
+    private static Duration retryAfter(String value) {
+        if (value == null)
+            return null;
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void sleepUntil(long wakeNanos, long deadline, String uri) {
+        if (wakeNanos - deadline > 0)
+            throw new DeadlineExceeded("export deadline exceeded before " + uri);
+        long left;
+        while ((left = wakeNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new DeadlineExceeded("interrupted while waiting for " + uri);
+            }
+        }
+    }
+
+    /**
+     * 토큰 버킷 (GCRA 형태): 요청 하나당 interval 만큼 다음 허용 시각을 밀어냄
+     * 다음 허용 시각이 지금보다 burst 개 이상 뒤처져 있으면 그만큼만 몰아서 허용
+     */
+    static final class TokenBucket {
+        private final long interval;
+        private final long burstWindow;
+        private long nextFree = System.nanoTime();
+
+        TokenBucket(double perSecond, int burst) {
+            this.interval = (long) (1_000_000_000L / Math.max(0.01, perSecond));
+            this.burstWindow = (burst - 1) * interval;
+        }
+
+        /** 토큰 하나 예약하고, 써도 되는 시각(nanoTime) 반환 */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long at = Math.max(nextFree, now - burstWindow);
+            nextFree = at + interval;
+            return Math.max(at, now);
+        }
+
+        /** 429: 지금부터 d 동안은 아무도 못 씀 */
+        synchronized void pause(Duration d) {
+            long until = System.nanoTime() + d.toNanos();
+            if (until - nextFree > 0)
+                nextFree = until;
+        }
+    }
+}
@@ -1,20 +1,254 @@
 package com.blog.hyowon.util;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 public class NotionConfig {
-    @Value("${notion.api.key}")
+
+    /**
+     * export 대상 사이트 하나
+     * - name: URL 구간 (/notion_export/<name>/), 예전 단일 설정이면 "" (/notion_export/)
+     * - pageId / apiKey: 루트 페이지, 토큰 (같은 토큰 쓰는 사이트끼리는 초당 요청 한도 공유)
+     * - exportDir: 결과 폴더, cron: 변경 확인 주기
+     */
+    public record Site(String name, String pageId, String apiKey, String exportDir, String cron) {
+
+        public java.nio.file.Path path() {
+            return java.nio.file.Paths.get(exportDir);
+        }
+
+        /** /notion_export/ 아래 경로 앞부분 ("" 또는 "<name>/") */
+        public String urlPrefix() {
+            return name.isEmpty() ? "" : name + "/";
+        }
+
+        /** 로그용 */
+        public String label() {
+            return name.isEmpty() ? "default" : name;
+        }
+    }
+
+    private final Environment environment;
+    private volatile List<Site> sites;
+
+    public NotionConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    // 단일 사이트 설정 (notion.sites 가 없을 때), 여러 사이트면 사이트마다 api-key 가 없을 때의 기본 토큰
+    @Value("${notion.api.key:}")
     private String apiKey;
 
-    @Value("${notion.page.id}")
+    @Value("${notion.page.id:}")
     private String pageId;
 
+    // Notion API 주소 (테스트에서는 로컬 스텁 서버)
+    @Value("${notion.api.base-url:https://api.notion.com/v1}")
+    private String apiBaseUrl;
+
+    // Notion 평균 허용량(약 3 req/s)에 맞춘 초당 요청 수, 요청 하나 타임아웃, 최대 시도 횟수(첫 시도 포함)
+    @Value("${notion.api.rate-limit:3}")
+    private double apiRateLimit;
+
+    @Value("${notion.api.request-timeout:PT30S}")
+    private java.time.Duration apiRequestTimeout;
+
+    @Value("${notion.api.max-attempts:6}")
+    private int apiMaxAttempts;
+
+    // 동시에 처리할 Notion API 요청 수 (1 = 기존 순차 크롤링)
+    @Value("${notion.export.concurrency:4}")
+    private int exportConcurrency;
+
+    // 증분 export (.manifest.json 기준으로 안 바뀐 페이지는 건너뜀)
+    @Value("${notion.export.incremental:true}")
+    private boolean exportIncremental;
+
+    // 페이지 블록을 커서 페이지(100개)마다 렌더하면서 다음 페이지를 미리 받음 (false = 전부 받은 뒤 렌더)
+    @Value("${notion.export.streaming:true}")
+    private boolean exportStreaming;
+
+    // export 결과 폴더 (정적 서빙도 이 경로 기준)
+    // 소스 트리 밖 (옆에 .<폴더>.versions 버전 폴더가 생기니까 src/main/resources 아래면 빌드 결과에 같이 패키징됨)
+    @Value("${notion.export.dir:var/notion_export}")
+    private String exportDir;
+
+    // export 1회 최대 시간 (재시도 대기 포함, 넘으면 이번 결과는 버리고 이전 버전 유지)
+    @Value("${notion.export.timeout:PT30M}")
+    private java.time.Duration exportTimeout;
+
+    // 변경 감지와 상관없이 전체 export 를 돌리는 주기 (삭제/권한 변경은 /search 최신 시각으로 안 잡힘)
+    @Value("${notion.export.full-interval:PT6H}")
+    private java.time.Duration exportFullInterval;
+
+    // 수동 export 트리거(POST /admin/export) 토큰. 비어 있으면 엔드포인트 비활성
+    @Value("${notion.export.trigger-token:}")
+    private String exportTriggerToken;
+
+    // 변경 확인 주기 기본값 (사이트마다 cron 으로 덮어씀)
+    @Value("${notion.export.cron:0 */1 * * * *}")
+    private String exportCron;
+
+    // 사이트 여럿이 같이 돌 때 앱 전체 한도: 동시에 나가 있는 Notion 요청 수, 동시에 렌더하는 페이지 수(0 = 코어 수)
+    @Value("${notion.export.api-budget:8}")
+    private int exportApiBudget;
+
+    @Value("${notion.export.cpu-budget:0}")
+    private int exportCpuBudget;
+
+    // 사이트 간 공유 이미지 저장소 (비어 있으면 export 폴더 옆 .notion_export.shared, 사이트가 하나면 안 씀)
+    @Value("${notion.export.shared-dir:}")
+    private String exportSharedDir;
+
+    // 여러 인스턴스 조정: none(노드마다 export) | lease(같은 볼륨의 lease 파일로 사이트마다 한 노드만 export)
+    @Value("${notion.export.coordination:none}")
+    private String exportCoordination;
+
+    // 주인 노드가 연장 없이 죽거나 멈췄을 때 다른 노드가 넘겨받기까지 시간 (확인 주기보다 길게)
+    @Value("${notion.export.lease-ttl:PT2M}")
+    private java.time.Duration exportLeaseTtl;
+
+    // lease 에 적히는 노드 이름 (비어 있으면 pid@호스트)
+    @Value("${notion.export.node-id:}")
+    private String exportNodeId;
+
     public String getApiKey() {
         return apiKey;
     }
     public String getPageId() {
         return pageId;
     }
+    public String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+    public double getApiRateLimit() {
+        return apiRateLimit;
+    }
+    public java.time.Duration getApiRequestTimeout() {
+        return apiRequestTimeout;
+    }
+    public int getApiMaxAttempts() {
+        return apiMaxAttempts;
+    }
+    public int getExportConcurrency() {
+        return exportConcurrency;
+    }
+    public boolean isExportIncremental() {
+        return exportIncremental;
+    }
+    public boolean isExportStreaming() {
+        return exportStreaming;
+    }
+    public java.nio.file.Path getExportDir() {
+        return java.nio.file.Paths.get(exportDir);
+    }
+    public java.time.Duration getExportTimeout() {
+        return exportTimeout;
+    }
+    public java.time.Duration getExportFullInterval() {
+        return exportFullInterval;
+    }
+    public String getExportTriggerToken() {
+        return exportTriggerToken;
+    }
+    public int getExportApiBudget() {
+        return exportApiBudget;
+    }
+    public int getExportCpuBudget() {
+        return exportCpuBudget > 0 ? exportCpuBudget : Runtime.getRuntime().availableProcessors();
+    }
+    public java.nio.file.Path getExportSharedDir() {
+        if (exportSharedDir != null && !exportSharedDir.isBlank())
+            return java.nio.file.Paths.get(exportSharedDir);
+        java.nio.file.Path dir = getExportDir().toAbsolutePath().normalize();
+        return dir.resolveSibling("." + dir.getFileName() + ".shared");
+    }
+
+    public boolean isExportLeased() {
+        if ("lease".equalsIgnoreCase(exportCoordination))
+            return true;
+        if (exportCoordination == null || exportCoordination.isBlank() || "none".equalsIgnoreCase(exportCoordination))
+            return false;
+        throw new IllegalStateException("notion.export.coordination must be none or lease: " + exportCoordination);
+    }
+    public java.time.Duration getExportLeaseTtl() {
+        return exportLeaseTtl;
+    }
+    public String getExportNodeId() {
+        if (exportNodeId != null && !exportNodeId.isBlank())
+            return exportNodeId;
+        String host;
+        try {
+            host = java.net.InetAddress.getLocalHost().getHostName();
+        } catch (java.io.IOException e) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+    /**
+     * notion.sites[i].name / page-id / api-key / export-dir / cron
+     * 없으면 예전 단일 설정(notion.page.id, notion.export.dir)으로 이름 없는 사이트 하나
+     * 빠진 값: api-key 는 notion.api.key, export-dir 는 notion.export.dir 옆 <폴더>-<name>, cron 은 notion.export.cron
+     */
+    public List<Site> getSites() {
+        List<Site> out = sites;
+        if (out == null) {
+            sites = out = bindSites();
+            for (Site site : out)
+                warnIfPackaged("export dir (" + site.label() + ")", site.path());
+            if (out.size() > 1)
+                warnIfPackaged("shared image dir", getExportSharedDir());
+        }
+        return out;
+    }
+
+    /**
+     * 사이트 폴더 / 공유 이미지 폴더가 리소스 트리 안이면 경고
+     * 버전 폴더, 하드링크 사본이 빌드 때 jar 로 들어가고 classpath 정적 핸들러로도 서빙됨
+     */
+    private static void warnIfPackaged(String what, java.nio.file.Path dir) {
+        java.nio.file.Path abs = dir.toAbsolutePath().normalize();
+        for (java.nio.file.Path p = abs; p != null && p.getParent() != null; p = p.getParent())
+            if (p.endsWith("src/main/resources")) {
+                System.out.printf("[CONFIG] %s %s is inside %s: versions and shared images get packaged "
+                        + "into the jar, move it out (default var/notion_export)%n", what, abs, p);
+                return;
+            }
+    }
+
+    private List<Site> bindSites() {
+        List<Site> raw = Binder.get(environment).bind("notion.sites", Bindable.listOf(Site.class)).orElse(List.of());
+        if (raw.isEmpty()) {
+            if (pageId == null || pageId.isBlank())
+                throw new IllegalStateException("notion.page.id or notion.sites[0].page-id is required");
+            return List.of(new Site("", pageId, apiKey, exportDir, exportCron));
+        }
+        List<Site> out = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        java.nio.file.Path base = getExportDir().toAbsolutePath().normalize();
+        for (Site s : raw) {
+            if (s.name() == null || !s.name().matches("[a-z0-9][a-z0-9-]*") || !names.add(s.name()))
+                throw new IllegalStateException("notion.sites: name must be unique [a-z0-9-]+ : " + s.name());
+            if (s.pageId() == null || s.pageId().isBlank())
+                throw new IllegalStateException("notion.sites: page-id is required for " + s.name());
+            String key = s.apiKey() != null && !s.apiKey().isBlank() ? s.apiKey() : apiKey;
+            if (key == null || key.isBlank())
+                throw new IllegalStateException("notion.sites: api-key is required for " + s.name());
+            String dir = s.exportDir() != null && !s.exportDir().isBlank() ? s.exportDir()
+                    : base.resolveSibling(base.getFileName() + "-" + s.name()).toString();
+            String cron = s.cron() != null && !s.cron().isBlank() ? s.cron() : exportCron;
+            out.add(new Site(s.name(), s.pageId(), key, dir, cron));
+        }
+        return List.copyOf(out);
+    }
 }
@@ -1,42 +1,301 @@
 package com.blog.hyowon.util;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
 
+/**
+ * 사이트(notion.sites, 없으면 단일 설정 하나)마다 변경 확인 → export
+ * - 사이트끼리는 동시에 돌고, 한 사이트가 실패해도 다른 사이트 / 이전 버전 서빙은 그대로
+ * - 같은 토큰 쓰는 사이트는 NotionClient(초당 요청 한도) 공유, 앱 전체 API / CPU 한도는 ExportBudget
+ * - 사이트가 여럿이면 이미지는 SharedImages 로 한 번만 받고 한 벌만 저장
+ * - notion.export.coordination=lease: 여러 인스턴스 중 사이트마다 lease 주인만 export,
+ *   나머지는 확인 주기마다 발행된 버전(링크 대상)이 바뀌었는지만 보고 바뀌었으면 다시 읽음
+ */
 @Component
-public class NotionExportScheduler {
+public class NotionExportScheduler implements SchedulingConfigurer {
 
     private final NotionConfig notionConfig;
+    // serving=static 이면 없음
+    private final java.util.Optional<PageStore> pageStore;
+    private final SiteSearch siteSearch;
+    // 클라이언트(커넥션 풀, 레이트 리밋 상태)와 exporter 는 실행마다 새로 만들지 않고 계속 씀
+    private final Map<String, NotionClient> clients = new LinkedHashMap<>(); // 토큰 → 클라이언트
+    private final Map<String, SiteExport> sites = new LinkedHashMap<>(); // 사이트 이름 → 상태
 
-    public NotionExportScheduler(NotionConfig notionConfig) {
+    public NotionExportScheduler(NotionConfig notionConfig, java.util.Optional<PageStore> pageStore,
+            ExportMetrics metrics, SiteSearch siteSearch) {
         this.notionConfig = notionConfig;
+        this.pageStore = pageStore;
+        this.siteSearch = siteSearch;
+        List<NotionConfig.Site> defs = notionConfig.getSites();
+        ExportBudget budget = defs.size() > 1
+                ? new ExportBudget(notionConfig.getExportApiBudget(), notionConfig.getExportCpuBudget())
+                : ExportBudget.unlimited();
+        SharedImages shared;
+        try {
+            shared = defs.size() > 1 ? new SharedImages(notionConfig.getExportSharedDir()) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("shared image dir unavailable", e);
+        }
+        for (NotionConfig.Site site : defs) {
+            NotionClient client = clients.computeIfAbsent(site.apiKey(), key -> new NotionClient(
+                    notionConfig.getApiBaseUrl(), key, notionConfig.getExportConcurrency(),
+                    notionConfig.getApiRateLimit(), notionConfig.getApiRequestTimeout(),
+                    notionConfig.getApiMaxAttempts()).metrics(metrics));
+            NotionExporter exporter = new NotionExporter(client, notionConfig.getExportConcurrency())
+                    .incremental(notionConfig.isExportIncremental())
+                    .streaming(notionConfig.isExportStreaming())
+                    .exportTimeout(notionConfig.getExportTimeout())
+                    .metrics(metrics)
+                    .budget(budget)
+                    .sharedImages(shared);
+            ExportLease lease = notionConfig.isExportLeased()
+                    ? new ExportLease(site.path(), notionConfig.getExportNodeId(), notionConfig.getExportLeaseTtl())
+                    : null;
+            if (lease != null)
+                exporter.publishGuard(lease::renew);
+            sites.put(site.name(), new SiteExport(site, exporter, lease));
+        }
     }
 
-    @PostConstruct
-    public void runOnStartup() throws Exception {
-        exportNotion();
+    @PreDestroy
+    public void close() {
+        for (SiteExport site : sites.values())
+            if (site.lease != null)
+                site.lease.release(); // 다음 노드가 ttl 을 기다리지 않고 바로 넘겨받게
+        clients.values().forEach(NotionClient::close);
     }
 
+    /**
+     * 기동은 export 를 기다리지 않음: 직전에 발행된 버전(PageStore / 정적 폴더)을 바로 서빙하고
+     * 첫 export 는 백그라운드에서 (Notion 이 안 되더라도 앱은 뜸)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void runOnStartup() {
+        System.out.printf("[EXPORT] startup export in background (sites=%d, serving %s)%n", sites.size(),
+                pageStore.map(s -> s.size() + " files from last snapshot").orElse("static files"));
+        for (SiteExport site : sites.values())
+            Thread.ofVirtual().name("export-startup-" + site.site.label()).start(() -> site.run("startup", true));
+    }
+
+    /**
+     * 사이트마다 cron(기본 1분)으로 변경 여부만 가볍게 확인 (/search 1건), 바뀐 게 있을 때만 전체 export
+     * 확인/export 는 사이트마다 가상 스레드라 느린 사이트가 다른 사이트 확인을 막지 않음
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        for (SiteExport site : sites.values())
+            registrar.addCronTask(() -> Thread.ofVirtual().name("export-check-" + site.site.label())
+                    .start(site::check), site.site.cron());
+    }
+
+    /** 모든 사이트 변경 확인을 지금 (동시에) 하고, 필요한 export 까지 끝날 때까지 기다림 */
+    public void exportNotion() {
+        List<Thread> threads = new ArrayList<>();
+        for (SiteExport site : sites.values())
+            threads.add(Thread.ofVirtual().name("export-check-" + site.site.label()).start(site::check));
+        join(threads);
+    }
+
+    /** 수동 트리거 (POST /admin/export), 모든 사이트 */
+    public void triggerExport() {
+        List<Thread> threads = new ArrayList<>();
+        for (SiteExport site : sites.values())
+            threads.add(Thread.ofVirtual().name("export-manual-" + site.site.label())
+                    .start(() -> site.run("manual", true)));
+        join(threads);
+    }
+
+    /** 수동 트리거, 사이트 하나 (모르는 이름이면 false) */
+    public boolean triggerExport(String name) {
+        SiteExport site = sites.get(name);
+        if (site == null)
+            return false;
+        site.run("manual", true);
+        return true;
+    }
+
+    private static void join(List<Thread> threads) {
+        try {
+            for (Thread t : threads)
+                t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 도는 export 는 그대로 끝까지 감
+        }
+    }
+
+    /** 지금 export 가 도는 사이트가 있는지 */
+    public boolean isExporting() {
+        return sites.values().stream().anyMatch(s -> s.runs.isRunning());
+    }
+
+    /** 사이트 하나의 변경 감지 기준 + 실행 상태 */
+    private final class SiteExport {
+
+        final NotionConfig.Site site;
+        final NotionExporter exporter;
+        final ExportLease lease; // coordination=none 이면 null
+
+        // 마지막으로 읽어 들인 발행 버전 폴더 (lease 모드에서 다른 노드가 발행했는지 비교)
+        volatile Path published;
+
+        // 변경 감지 기준: 직전 export 시작 직전에 본 최신 last_edited_time, 그 export 시작 시각
+        volatile String watermark;
+        volatile Instant lastExportStarted;
+        volatile boolean requested; // lease 모드: 다른 노드로 들어온 수동 export
+
+        // 동시에 도는 export 는 사이트마다 하나. 도는 중에 들어온 수동/시작 요청은 끝난 뒤 한 번으로 합침
+        final ExportRuns runs;
+
+        SiteExport(NotionConfig.Site site, NotionExporter exporter, ExportLease lease) {
+            this.site = site;
+            this.exporter = exporter;
+            this.lease = lease;
+            this.published = liveVersion();
+            this.runs = new ExportRuns(site.label(), next -> {
+                if (lease == null || lead())
+                    exportOnce(next);
+                else
+                    defer(next);
+            });
+        }
+
+        void check() {
+            if (runs.isRunning())
+                return; // 돌고 있는 export 가 끝나면 다음 확인에서 다시 봄
+            try {
+                if (lease != null) {
+                    follow(); // 주인이 막 바뀌었으면 직전 주인이 발행한 버전부터
+                    if (!lead())
+                        return;
+                }
+                String reason = changeReason();
+                if (reason != null)
+                    run(reason, false);
+            } catch (Exception e) {
+                System.out.printf("[EXPORT] %s: change check failed: %s%n", site.label(), e);
+            }
+        }
+
+        /** 전체 export 가 필요한 이유, 필요 없으면 null */
+        String changeReason() {
+            Instant last = lastExportStarted;
+            if (last == null)
+                return "first";
+            if (requested)
+                return "requested"; // 다른 노드로 들어온 수동 export
+            if (Instant.now().isAfter(last.plus(notionConfig.getExportFullInterval())))
+                return "full-interval"; // 삭제/권한 변경은 최신 시각으로 안 잡혀서 가끔은 전체
+            String latest = exporter.latestEditedTime();
+            if (!Objects.equals(latest, watermark))
+                return "edited " + latest;
+            // last_edited_time 은 분 단위: 직전 export 가 그 분이 끝나기 전에 시작했으면 같은 분의 후속 수정을 놓쳤을 수 있음
+            if (latest != null && !last.isAfter(Instant.parse(latest).plusSeconds(60)))
+                return "unsettled " + latest;
+            System.out.printf("[%s] Export 생략(%s) - 변경 없음 (latest=%s)%n", java.time.LocalDateTime.now(),
+                    site.label(), latest);
+            return null;
+        }
+
+        /**
+         * 이미 도는 중이면 기다리지 않고 반환. queue 면 끝난 뒤 한 번 더 돌게 표시 (여러 번 와도 한 번)
+         * 실패는 로그만 남기고 이 사이트의 이전 버전을 계속 서빙 (다른 사이트와 상관없음)
+         */
+        void run(String reason, boolean queue) {
+            runs.run(reason, queue);
+        }
+
+        private void exportOnce(String reason) throws Exception {
+            Path outDir = site.path();
+
+            Instant started = Instant.now();
+            String latest = exporter.latestEditedTime(); // export 중에 생긴 수정은 다음 확인에서 잡히도록 먼저 기록
+            NotionExporter.Result result;
+            Thread heartbeat = lease == null ? null
+                    : Thread.ofVirtual().name("export-lease-" + site.label()).start(this::heartbeat);
+            try {
+                result = exporter.exportSite(site.pageId(), outDir);
+            } finally {
+                if (heartbeat != null)
+                    heartbeat.interrupt();
+            }
+            pageStore.ifPresent(s -> s.reload(site.name())); // 새 버전으로 스냅샷 교체
+            siteSearch.reload(site.name());
+            published = liveVersion();
+            watermark = latest;
+            lastExportStarted = started;
+            requested = false;
+            if (lease != null)
+                lease.recordExport(latest, started);
+
+            // 개수는 exporter 가 센 값 (디스크를 다시 훑지 않음), 자세한 지표는 /actuator/metrics
+            System.out.printf("[%s] Export 완료(%s, %s) - HTML:%d, IMG:%d%n", java.time.LocalDateTime.now(),
+                    site.label(), reason, result.htmlFiles(), result.imageFiles());
+        }
+
+        /** lease 를 잡거나 연장, 주인이면 직전 주인이 남긴 변경 감지 기준을 이어받음 */
+        private boolean lead() throws IOException {
+            ExportLease.State s = lease.acquire();
+            if (s == null)
+                return false;
+            watermark = s.watermark();
+            lastExportStarted = s.exportStarted();
+            requested = s.requested();
+            return true;
+        }
 
-    // 테스트: 3분마다
-    @Scheduled(cron = "0 */1 * * * *")
-    // @Scheduled(cron = "0 0 3 * * *")
-    public void exportNotion() throws Exception {
-        String token  = notionConfig.getApiKey();
-        String pageId = notionConfig.getPageId();
+        /** 주인이 아닌 노드: 수동 요청은 lease 에 표시해서 주인에게 넘기고, 발행된 버전만 따라감 */
+        private void defer(String reason) throws IOException {
+            if ("manual".equals(reason)) {
+                lease.request();
+                System.out.printf("[LEASE] %s manual export handed to lease owner%n", site.label());
+            }
+            follow();
+        }
 
-        Path outDir = Paths.get("src/main/resources/static/notion_export");
-        new NotionExporter(token).exportSite(pageId, outDir);
+        /** 다른 노드가 새 버전을 발행했으면 (링크 대상이 바뀜) export 없이 스냅샷 / 검색만 다시 읽음 */
+        private void follow() {
+            Path live = liveVersion();
+            if (live == null || live.equals(published))
+                return;
+            published = live;
+            pageStore.ifPresent(s -> s.reload(site.name()));
+            siteSearch.reload(site.name());
+            System.out.printf("[LEASE] %s picked up %s%n", site.label(), live.getFileName());
+        }
 
-        long htmlCount = Files.walk(outDir).filter(p -> p.toString().endsWith(".html")).count();
-        long imgCount  = Files.exists(outDir.resolve("assets/images"))
-                ? Files.walk(outDir.resolve("assets/images")).filter(Files::isRegularFile).count() : 0;
+        /** export 가 길어도 lease 가 만료되지 않게 ttl/3 마다 연장 (못 하면 발행 직전 확인에서 실패) */
+        private void heartbeat() {
+            long every = Math.max(1, lease.ttl().toMillis() / 3);
+            try {
+                while (true) {
+                    Thread.sleep(every);
+                    if (!lease.renew())
+                        System.out.printf("[LEASE] %s lease lost during export%n", site.label());
+                }
+            } catch (InterruptedException e) {
+                // export 끝
+            }
+        }
 
-        System.out.printf("[%s] Export 완료 - HTML:%d, IMG:%d%n",
-                java.time.LocalDateTime.now(), htmlCount, imgCount);
+        /** 지금 발행된 버전 폴더 (아직 없으면 null) */
+        private Path liveVersion() {
+            try {
+                return site.path().toRealPath();
+            } catch (IOException e) {
+                return null;
+            }
+        }
     }
 }
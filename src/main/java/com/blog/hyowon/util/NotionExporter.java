@@ -1,11 +1,7 @@
 package com.blog.hyowon.util;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import org.springframework.http.MediaType;
-import org.springframework.web.reactive.function.client.WebClient;
-
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -18,29 +14,118 @@ import java.util.*;
  */
 public class NotionExporter {
 
-    // 리다이렉트 허용 + UA 세팅용
+    /** export 1회 결과 (파이프라인에서 센 값: html 파일 수 = manifest 페이지 수, 이미지 = 남은 파일 수) */
+    public record Result(int rendered, int skipped, int htmlFiles, int imageFiles) {
+    }
+
+    // 리다이렉트 허용 + UA 세팅용 (요청마다 타임아웃은 ImageDownloader)
     private final java.net.http.HttpClient plainHttp = java.net.http.HttpClient.newBuilder()
             .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+            .connectTimeout(java.time.Duration.ofSeconds(10))
             .build();
 
-    // 같은 실행 중 중복 다운로드 방지 (옵션)
-    private final java.util.Set<String> downloadedKeys = new java.util.concurrent.ConcurrentSkipListSet<>();
-
-    private final java.util.Set<String> touchedImages = new java.util.concurrent.ConcurrentSkipListSet<>();
+    // 이미지 다운로드는 백그라운드로 (동시 다운로드 수 제한), 저장/재검증/정리는 ImageStore
+    private final ImageDownloader imageDownloader;
+    private ImageStore imageStore;
+    // 다운로드 끝나야 src 가 정해지는 페이지: 페이지 id → 자리표시 경로가 들어간 HTML
+    private final Map<String, byte[]> deferredPages = new java.util.concurrent.ConcurrentHashMap<>();
 
-    private static final String NOTION_VERSION = "2022-06-28";
-
-    private final WebClient http;
+    // 레이트 리밋 / 재시도 / 타임아웃 / 커넥션 풀은 NotionClient (실행 간 공유)
+    private final NotionClient client;
+    private java.time.Duration exportTimeout = java.time.Duration.ofMinutes(30);
+    private long deadline; // 이번 실행의 마감 시각 (nanoTime)
     private final ObjectMapper om = new ObjectMapper();
 
-    private Path outputDir; // ▼ 추가
+    private Path outputDir; // ▼ 추가 (= 스테이징 폴더)
+    private ExportPublisher publisher;
+
+    // 동시 크롤링: 형제 서브트리를 가상 스레드로 병렬 처리, API 동시 요청 수는 concurrency 로 제한
+    private final int concurrency;
+    private final java.util.concurrent.Semaphore apiPermits;
+    // 여러 사이트가 같이 돌 때: 앱 전체 API / CPU 한도, 사이트 간 공유 이미지 저장소 (하나면 null)
+    private ExportBudget budget = ExportBudget.unlimited();
+    private SharedImages sharedImages;
+    // 발행 직전 확인 (여러 노드 조정 시 아직 lease 주인인지), false 면 발행하지 않고 실패 처리
+    private java.util.function.BooleanSupplier publishGuard = () -> true;
+    private java.util.concurrent.ExecutorService crawler; // concurrency == 1 이면 null (순차 모드)
+    private final java.util.concurrent.atomic.AtomicInteger pageCount = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.atomic.AtomicInteger skippedCount = new java.util.concurrent.atomic.AtomicInteger();
+
+    // 증분 모드: last_edited_time 이 그대로인 페이지는 블록 조회/렌더 생략
+    private boolean incremental = false;
+    // 최상위 블록을 커서 페이지(100개)마다 렌더하면서 다음 페이지를 미리 받음
+    private boolean streaming = true;
+    private PageManifest manifest = PageManifest.empty();
+    // 검색 색인: 이번에 렌더한 페이지만 토큰화, 건너뛴 페이지는 이전 색인에서
+    private SearchIndex.Builder searchIndex = new SearchIndex.Builder();
+    private SearchIndex previousIndex = SearchIndex.empty();
+    // export 1회 단위 요청 캐시: 페이지 메타(/pages, /search, DB query 결과로 채움), DB row 목록
+    private final RequestMemo<String, NotionPage> metaCache = new RequestMemo<>();
+    private final RequestMemo<String, List<String>> rowsCache = new RequestMemo<>();
+    private final java.util.concurrent.atomic.AtomicInteger apiCalls = new java.util.concurrent.atomic.AtomicInteger();
+    // 중첩 블록 조회 최대 깊이 (Notion 편집기에서 만들 수 있는 것보다 넉넉하게)
+    private static final int MAX_NESTING = 16;
+
+    // 단계별 시간 (ExportMetrics), 스레드별 API 대기 누계는 render 시간에서 빼려고
+    private final SiteAssets assets = SiteAssets.get();
+    private ExportMetrics metrics = ExportMetrics.noop();
+    private static final ThreadLocal<long[]> FETCH_NANOS = ThreadLocal.withInitial(() -> new long[1]);
 
     public NotionExporter(String token) {
-        this.http = WebClient.builder()
-                .baseUrl("https://api.notion.com/v1")
-                .defaultHeader("Authorization", "Bearer " + token)
-                .defaultHeader("Notion-Version", NOTION_VERSION)
-                .build();
+        this(token, 1);
+    }
+
+    public NotionExporter(String token, int concurrency) {
+        this(NotionClient.DEFAULT_BASE_URL, token, concurrency);
+    }
+
+    /** baseUrl: 테스트에서는 로컬 스텁 서버 */
+    public NotionExporter(String baseUrl, String token, int concurrency) {
+        this(new NotionClient(baseUrl, token, Math.max(1, concurrency)), concurrency);
+    }
+
+    public NotionExporter(NotionClient client, int concurrency) {
+        this.client = client;
+        this.concurrency = Math.max(1, concurrency);
+        this.apiPermits = new java.util.concurrent.Semaphore(this.concurrency);
+        this.imageDownloader = new ImageDownloader(plainHttp, this.concurrency);
+    }
+
+    public NotionExporter incremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public NotionExporter metrics(ExportMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public NotionExporter budget(ExportBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    public NotionExporter sharedImages(SharedImages sharedImages) {
+        this.sharedImages = sharedImages;
+        return this;
+    }
+
+    /** 최상위 블록을 커서 페이지 단위로 받으면서 렌더 (false 면 전부 받은 뒤 렌더) */
+    public NotionExporter streaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    public NotionExporter publishGuard(java.util.function.BooleanSupplier publishGuard) {
+        this.publishGuard = publishGuard;
+        return this;
+    }
+
+    /** 한 번의 export 가 API 대기/재시도를 포함해 쓸 수 있는 최대 시간 (넘으면 실패 → 스테이징 폐기) */
+    public NotionExporter exportTimeout(java.time.Duration exportTimeout) {
+        this.exportTimeout = exportTimeout;
+        return this;
     }
 
     // public void fileDown(String[] args) throws Exception {
@@ -67,95 +152,124 @@ public class NotionExporter {
     // }
     /* ===================== Public API ===================== */
 
-    /** 루트 페이지부터 시작해 사이트 형태로 폴더에 떨어뜨림 */
-    public void exportSite(String rootPageId, Path outDir) throws Exception {
-        Files.createDirectories(outDir);
-        this.outputDir = outDir;
+    /**
+     * 루트 페이지부터 시작해 사이트 형태로 폴더에 떨어뜨림
+     * - 실제로는 스테이징 폴더에 만들고, 다 끝나면 outDir 링크를 원자적으로 교체 (ExportPublisher)
+     */
+    public Result exportSite(String rootPageId, Path outDir) throws Exception {
+        long started = System.nanoTime();
+        ExportPublisher pub = ExportPublisher.stage(outDir);
+        this.publisher = pub;
+        this.outputDir = pub.staging();
+        Result result;
+        try {
+            result = exportInto(rootPageId, pub.staging());
+            long t = System.nanoTime();
+            if (!publishGuard.getAsBoolean())
+                throw new IllegalStateException("publish refused (export lease lost)");
+            pub.publish();
+            if (sharedImages != null)
+                sharedImages.sweep(); // 지난 버전이 지워지면서 아무도 안 쓰게 된 공유 이미지
+            metrics.phase(ExportMetrics.CLEANUP, System.nanoTime() - t);
+        } catch (Exception e) {
+            pub.abort();
+            metrics.exported(false, System.nanoTime() - started);
+            throw e;
+        }
+        metrics.exported(true, System.nanoTime() - started);
+        System.out.println("DONE → " + outDir.toAbsolutePath());
+        return result;
+    }
 
+    private Result exportInto(String rootPageId, Path outDir) throws Exception {
         // ▼ 이번 실행 기록 초기화
-        touchedImages.clear();
-
-        writePageFile(hyphenize(rootPageId), outDir, "index.html", 1);
-
-        // ▼ 사용되지 않은(고아) 이미지 삭제
-        cleanupOrphanImages(); // <-- 추가
+        deferredPages.clear();
+        imageStore = ImageStore.open(outDir, imageDownloader, metrics, sharedImages);
+        pageCount.set(0);
+        skippedCount.set(0);
+        apiCalls.set(0);
+        metaCache.clear();
+        rowsCache.clear();
+        deadline = NotionClient.deadlineAfter(exportTimeout);
+        int retriesBefore = client.retries(), throttledBefore = client.throttled();
+
+        long started = System.nanoTime();
+        searchIndex = new SearchIndex.Builder();
+        previousIndex = incremental ? SearchIndex.open(outDir) : SearchIndex.empty();
+        if (incremental) {
+            manifest = PageManifest.load(outDir);
+            for (NotionPage page : searchPageMeta())
+                metaCache.prime(page.id(), page);
+        } else {
+            manifest = PageManifest.empty();
+        }
+        try (var exec = concurrency > 1 ? java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor() : null) {
+            this.crawler = exec;
+            writePageFile(hyphenize(rootPageId), outDir, "index.html", 1);
+        } finally {
+            this.crawler = null;
+        }
 
-        System.out.println("DONE → " + outDir.toAbsolutePath());
+        // 렌더는 끝났고, 남은 이미지 다운로드만 마저 기다려서 자리표시 경로 치환
+        finishImages();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        Collection<PageManifest.Entry> pages = manifest.currentEntries();
+        long t = System.nanoTime();
+        byte[] index = searchIndex.build(pages, previousIndex);
+        metrics.phase(ExportMetrics.INDEX, System.nanoTime() - t);
+        writePage(SearchIndex.FILE_NAME, index);
+
+        // ▼ 어떤 페이지도 참조하지 않는 이미지 삭제 (참조 카운트, 건너뛴 페이지 포함)
+        t = System.nanoTime();
+        int imageFiles = imageStore.collect(pages.stream().flatMap(e -> e.images().stream()).toList());
+        metrics.phase(ExportMetrics.CLEANUP, System.nanoTime() - t);
+
+        // 다음 실행의 기준점 (+ 페이지들이 참조하는 공용 CSS/JS)
+        t = System.nanoTime();
+        assets.publish(publisher, pages.stream().flatMap(e -> e.assets().stream()).toList());
+        manifest.save(outDir);
+        metrics.phase(ExportMetrics.WRITE, System.nanoTime() - t);
+
+        // concurrency 값을 바꿔가며 이 줄을 비교하면 튜닝 가능
+        System.out.printf("[EXPORT] concurrency=%d pages=%d skipped=%d elapsed=%dms api=%d saved=%d retries=%d throttled=%d%n",
+                concurrency, pageCount.get(), skippedCount.get(), elapsedMs, apiCalls.get(), savedApiCalls(),
+                client.retries() - retriesBefore, client.throttled() - throttledBefore);
+        return new Result(pageCount.get(), skippedCount.get(), pages.size(), imageFiles);
     }
 
     /* ===================== Core ===================== */
 
     /** 단일 페이지를 파일로 생성하고, child_page / child_db는 재귀로 생성 */
     private void writePageFile(String pageId, Path dir, String fileName, int depth) throws Exception {
-        String title = getPageTitle(pageId);
-        List<JsonNode> blocks = fetchAllChildren(pageId);
-
-        // 자식 페이지/DB 수집
-        List<JsonNode> childPages = new ArrayList<>();
-        List<JsonNode> childDBs = new ArrayList<>();
-        for (JsonNode b : blocks) {
-            String type = b.path("type").asText();
-            if ("child_page".equals(type))
-                childPages.add(b);
-            else if ("child_database".equals(type))
-                childDBs.add(b);
-        }
+        NotionPage meta = fetchPageMeta(pageId);
+        String title = meta.title();
+
+        // 증분 모드: 바뀐 게 없으면 블록 조회/렌더 없이 이전 결과 재사용
+        PageManifest.Entry prev = manifest.previous(pageId);
+        if (incremental && prev != null && reuseUnchanged(prev, meta, dir, fileName, depth))
+            return;
 
-        StringBuilder html = new StringBuilder();
+        // 자식 페이지/DB (토글/컬럼 안에 있는 것 포함, 문서 순서대로), 코드 언어, 검색용 본문은 배치마다 모음
+        List<NotionBlock> childPages = new ArrayList<>();
+        List<NotionBlock> childDBs = new ArrayList<>();
+        Set<String> pageImages = new LinkedHashSet<>();
+        Set<String> languages = new TreeSet<>();
+        StringBuilder text = new StringBuilder();
+        List<PageManifest.Link> childLinks = new ArrayList<>();
+        List<PageManifest.Db> dbRows = new ArrayList<>();
+        List<String> scripts;
+        byte[] doc;
+        long headerStarted = System.nanoTime();
+        HtmlWriter html = HtmlWriter.forPage(previousSize(dir.resolve(fileName))); // 스테이징은 이전 버전에서 시작
         html.append("""
                 <!doctype html><html><head><meta charset='UTF-8'>
                 <meta name="viewport" content="width=device-width,initial-scale=1">
-                <title>""").append(esc(title))
+                <title>""").text(title)
                 .append("""
                         </title>
-                        <style>
-                          body{font-family:system-ui,-apple-system,Segoe UI,Roboto,Arial,sans-serif;line-height:1.6;padding:24px;max-width:900px;margin:auto}
-                          h1,h2,h3,h4{margin-top:1.6em}
-                          pre,code{background:#f4f5f7;border-radius:6px}
-                          pre{padding:12px;overflow:auto}
-                          blockquote{border-left:4px solid #ddd;margin:1em 0;padding:.5em 1em;color:#555}
-                          hr{border:0;border-top:1px solid #eee;margin:2em 0}
-                          .callout{border:1px solid #eee;border-left:4px solid #999;padding:12px;border-radius:8px;background:#fafafa}
-                          .toc ul{margin:0 0 1rem 1.25rem}
-                          .topnav{font-size:.9rem;margin-bottom:1rem}
-                          .topnav a{opacity:.8;text-decoration:none}
-                          .notion-table{border-collapse:collapse;width:100%;margin:1em 0}
-                          .notion-table th,.notion-table td{border:1px solid #ddd;padding:8px;vertical-align:top}
-                          .notion-table thead th{background:#f7f7f7}
-
-                          /* Notion-like table */
-                            .notion-table-wrap{overflow-x:auto;margin:8px 0}
-                            .notion-table{
-                            border-collapse:collapse;
-                            /* 핵심: 컨테이너 꽉 채우지 말고 내용 폭 기준으로 */
-                            width:auto; max-width:100%;
-                            table-layout:auto;
-                            }
-                            .notion-table th,.notion-table td{
-                            border:1px solid rgba(55,53,47,.16);
-                            padding:8px 12px;
-                            vertical-align:top;
-                            white-space:pre-wrap; word-break:break-word;
-                            }
-                            .notion-table thead th{
-                            background:rgba(55,53,47,.06);
-                            font-weight:600;
-                            }
-                            .notion-table th[scope="row"]{
-                            background:rgba(55,53,47,.03);
-                            font-weight:600;
-                            }
-                            .notion-table tbody tr:hover td{
-                            background:rgba(55,53,47,.04);
-                            }
-                        </style>
-                         <!-- Prism: 코드 하이라이트 -->
-                        <link rel="stylesheet" href="https://cdn.jsdelivr.net/npm/prismjs/themes/prism.css">
-                        <link rel="stylesheet" href="https://cdn.jsdelivr.net/npm/prismjs/plugins/line-numbers/prism-line-numbers.css">
-                        <script src="https://cdn.jsdelivr.net/npm/prismjs/prism.min.js"></script>
-                        <script src="https://cdn.jsdelivr.net/npm/prismjs/plugins/autoloader/prism-autoloader.min.js"></script>
-                        <script src="https://cdn.jsdelivr.net/npm/prismjs/plugins/line-numbers/prism-line-numbers.min.js"></script>
-                        <script>Prism.plugins.autoloader.languages_path='https://cdn.jsdelivr.net/npm/prismjs/components/';</script>
+                        <link rel="stylesheet" href='""").append(assets.stylesheet()).append("""
+                        '>
                         </head><body>
                         """);
 
@@ -163,63 +277,372 @@ public class NotionExporter {
         if (depth > 1)
             html.append("<div class='topnav'><a href='index.html'>&larr; Back to Index</a></div>");
 
-        html.append("<h1>").append(esc(title)).append("</h1>");
-
-        // 본문 블록 렌더(자식 페이지 내용은 여기서 렌더하지 않음)
-        renderBlocks(blocks, html);
-
-        // 자식 페이지 링크 섹션
-        // 자식 페이지 링크 섹션
-        if (!childPages.isEmpty() || !childDBs.isEmpty()) {
-            html.append("<section class='toc'><h2>Subpages</h2><ul>"); // ★ 열기 추가
-            for (JsonNode c : childPages) {
-                String cid = c.path("id").asText();
-                String ct = c.path("child_page").path("title").asText("(Untitled)");
-                String childFile = slug(ct, cid) + ".html";
-                html.append("<li><a href='").append(childFile).append("'>").append(esc(ct)).append("</a></li>");
+        html.append("<h1>").text(title).append("</h1>");
+        long renderNanos = System.nanoTime() - headerStarted, indexNanos = 0;
+
+        // 본문: 최상위 블록을 커서 페이지(100개) 단위로 받아서 바로 렌더 (자식 페이지 내용은 여기서 렌더하지 않음)
+        // streaming 이면 이 배치의 중첩 블록 조회 + 렌더 동안 다음 커서 페이지를 받아 둠, 배치는 렌더 후 버림
+        // 열린 리스트(ul/ol/to_do)는 배치를 넘어 이어짐 → 한 번에 렌더한 것과 같은 HTML
+        ListState lists = new ListState();
+        BlockBatches batches = new BlockBatches(pageId);
+        for (List<NotionBlock> blocks = batches.next(); blocks != null; blocks = batches.next()) {
+            Map<String, List<NotionBlock>> nested = fetchDescendants(blocks);
+            int dbsBefore = childDBs.size();
+            collectChildPages(blocks, nested, childPages, childDBs);
+            // DB row 목록은 목차 렌더 전에 (렌더하는 동안은 API 를 기다리지 않게, 제목은 query 결과로 메타 캐시에)
+            for (NotionBlock db : childDBs.subList(dbsBefore, childDBs.size()))
+                prefetchRows(db.id());
+
+            // 렌더 + 색인은 앱 전체 CPU 한도 안에서
+            budget.acquireCpu();
+            try {
+                long t = System.nanoTime();
+                renderBlocks(blocks, nested, html, pageImages, lists);
+                codeLanguages(blocks, nested, languages);
+                long indexStarted = System.nanoTime();
+                renderNanos += indexStarted - t;
+                plainText(blocks, nested, text);
+                indexNanos += System.nanoTime() - indexStarted;
+            } finally {
+                budget.releaseCpu();
             }
-            for (JsonNode db : childDBs) {
-                String dbId = db.path("id").asText();
-                String dbTitle = "(Database)";
-                List<String> rowIds = queryDatabasePages(dbId);
-                if (!rowIds.isEmpty()) {
-                    html.append("<li>").append(esc(dbTitle)).append("<ul>");
-                    for (String rowPid : rowIds) {
-                        String rt = getPageTitle(rowPid);
-                        String rf = slug(rt, rowPid) + ".html";
-                        html.append("<li><a href='").append(rf).append("'>").append(esc(rt)).append("</a></li>");
+        }
+        for (NotionBlock db : childDBs)
+            queryDatabasePages(db.id());
+
+        budget.acquireCpu();
+        try {
+            long renderStarted = System.nanoTime(), fetchBefore = FETCH_NANOS.get()[0];
+            closeLists(html, lists);
+
+            // 자식 페이지 링크 섹션
+            // 자식 페이지 링크 섹션
+            if (!childPages.isEmpty() || !childDBs.isEmpty()) {
+                html.append("<section class='toc'><h2>Subpages</h2><ul>"); // ★ 열기 추가
+                for (NotionBlock c : childPages) {
+                    String cid = c.id();
+                    String ct = childTitle(c);
+                    String childFile = slug(ct, cid) + ".html";
+                    childLinks.add(new PageManifest.Link(cid, ct));
+                    html.append("<li><a href='").append(childFile).append("'>").text(ct).append("</a></li>");
+                }
+                for (NotionBlock db : childDBs) {
+                    String dbId = db.id();
+                    String dbTitle = "(Database)";
+                    List<String> rowIds = queryDatabasePages(dbId);
+                    dbRows.add(new PageManifest.Db(dbId, rowIds));
+                    if (!rowIds.isEmpty()) {
+                        html.append("<li>").text(dbTitle).append("<ul>");
+                        for (String rowPid : rowIds) {
+                            String rt = getPageTitle(rowPid);
+                            String rf = slug(rt, rowPid) + ".html";
+                            html.append("<li><a href='").append(rf).append("'>").text(rt).append("</a></li>");
+                        }
+                        html.append("</ul></li>");
                     }
-                    html.append("</ul></li>");
                 }
+                html.append("</ul></section>"); // 닫기
             }
-            html.append("</ul></section>"); // 닫기
-        }
 
-        html.append("</body></html>");
-        Files.writeString(dir.resolve(fileName), html.toString());
-
-        // 자식 페이지 파일 생성 (재귀)
-        for (JsonNode c : childPages) {
-            String cid = c.path("id").asText();
-            String ct = c.path("child_page").path("title").asText("(Untitled)");
-            writePageFile(cid, dir, slug(ct, cid) + ".html", depth + 1);
+            // Prism: export 때 못 칠한 언어가 있을 때만, 이 페이지 코드 블록 언어로 (본문 뒤라 렌더를 막지 않음)
+            // Prism 은 페이지의 코드 블록을 전부 다시 칠하니까 이미 칠한 언어의 문법도 같이 불러옴
+            scripts = CodeHighlighter.supportsAll(languages) ? List.of() : assets.scripts(languages);
+            for (String src : scripts)
+                html.append("<script src='").append(src).append("'></script>");
+            html.append("</body></html>");
+            doc = html.toUtf8();
+            metrics.phase(ExportMetrics.RENDER, renderNanos + System.nanoTime() - renderStarted
+                    - (FETCH_NANOS.get()[0] - fetchBefore)); // 배치 조회 대기, 목차의 DB 조회 시간 제외
+            long indexStarted = System.nanoTime();
+            searchIndex.add(pageId, fileName, title, text);
+            metrics.phase(ExportMetrics.INDEX, indexNanos + System.nanoTime() - indexStarted);
+        } finally {
+            budget.releaseCpu();
+        }
+        if (pageImages.stream().anyMatch(ImageStore::isPending))
+            deferredPages.put(pageId, doc); // finishImages() 에서 src 확정 후 기록
+        else
+            writePage(fileName, doc);
+        pageCount.incrementAndGet();
+        metrics.pages("rendered");
+
+        manifest.record(new PageManifest.Entry(pageId, title, fileName, meta.lastEditedTime(),
+                java.time.Instant.now().toString(), sha256(doc), childLinks, dbRows, List.copyOf(pageImages),
+                pageAssets(scripts)));
+
+        // 자식 페이지 파일 생성 (재귀) - 형제끼리는 병렬 가능
+        List<java.util.concurrent.Callable<Void>> subtrees = new ArrayList<>();
+        for (NotionBlock c : childPages) {
+            String cid = c.id();
+            String ct = childTitle(c);
+            subtrees.add(() -> {
+                writePageFile(cid, dir, slug(ct, cid) + ".html", depth + 1);
+                return null;
+            });
         }
         // DB의 row들도 각각 파일로 생성
-        for (JsonNode db : childDBs) {
-            String dbId = db.path("id").asText();
+        for (NotionBlock db : childDBs) {
+            String dbId = db.id();
             for (String rowPid : queryDatabasePages(dbId)) {
-                String rt = getPageTitle(rowPid);
-                writePageFile(rowPid, dir, slug(rt, rowPid) + ".html", depth + 1);
+                subtrees.add(() -> {
+                    String rt = getPageTitle(rowPid);
+                    writePageFile(rowPid, dir, slug(rt, rowPid) + ".html", depth + 1);
+                    return null;
+                });
             }
         }
+        runSubtrees(subtrees);
+    }
+
+    /**
+     * 이전 export 결과를 그대로 쓸 수 있으면 true (자식 재귀까지 여기서 처리)
+     * - 페이지 자체 last_edited_time 동일 + 파일 존재
+     * - 목차에 들어가는 자식 제목 / DB row 목록도 동일해야 함 (부모 HTML 에 박혀 있으니까)
+     */
+    private boolean reuseUnchanged(PageManifest.Entry prev, NotionPage meta, Path dir, String fileName, int depth)
+            throws Exception {
+        if (meta.lastEditedTime() == null || !meta.lastEditedTime().equals(prev.lastEditedTime())
+                || !prev.settled() || !fileName.equals(prev.file()) || !Files.isRegularFile(dir.resolve(fileName)))
+            return false;
+        // 예전 이름의 이미지를 쓰는 페이지는 한 번 다시 렌더 (해시 파일명으로 바꿔야 immutable 캐시 가능)
+        if (!prev.images().stream().allMatch(ImageStore::isContentAddressed))
+            return false;
+        // 이전 검색 색인에 없는 페이지(색인 도입 전 export 등)도 한 번 다시 렌더
+        if (!previousIndex.contains(prev.id()))
+            return false;
+        // 공용 CSS/JS 이름이 바뀌었으면(site.css / Prism 버전 변경, 도입 전 export) 한 번 다시 렌더
+        if (prev.assets() == null || !assets.current(prev.assets()))
+            return false;
+        // 외부 이미지는 페이지가 그대로여도 원본이 바뀔 수 있음 → 조건부 GET, 바뀌었으면 다시 렌더
+        if (!imageStore.revalidate(prev.images(), deadline))
+            return false;
+
+        for (PageManifest.Link c : prev.children()) {
+            NotionPage cm = metaCache.peek(c.id());
+            if (cm != null && !cm.title().equals(c.title()))
+                return false;
+        }
+        List<PageManifest.Db> dbRows = new ArrayList<>();
+        for (PageManifest.Db db : prev.databases()) {
+            List<String> rows = queryDatabasePages(db.id());
+            if (!rows.equals(db.rows()))
+                return false;
+            for (String rowPid : rows) {
+                PageManifest.Entry rowPrev = manifest.previous(rowPid);
+                if (rowPrev == null || !rowPrev.title().equals(fetchPageMeta(rowPid).title()))
+                    return false;
+            }
+            dbRows.add(db);
+        }
+
+        manifest.record(prev);
+        long t = System.nanoTime();
+        publisher.keep(fileName);
+        metrics.phase(ExportMetrics.WRITE, System.nanoTime() - t);
+        skippedCount.incrementAndGet();
+        metrics.pages("skipped");
+
+        List<java.util.concurrent.Callable<Void>> subtrees = new ArrayList<>();
+        for (PageManifest.Link c : prev.children())
+            subtrees.add(() -> {
+                writePageFile(c.id(), dir, slug(c.title(), c.id()) + ".html", depth + 1);
+                return null;
+            });
+        for (PageManifest.Db db : dbRows)
+            for (String rowPid : db.rows())
+                subtrees.add(() -> {
+                    String rt = getPageTitle(rowPid);
+                    writePageFile(rowPid, dir, slug(rt, rowPid) + ".html", depth + 1);
+                    return null;
+                });
+        runSubtrees(subtrees);
+        return true;
+    }
+
+    /**
+     * 블록 트리의 나머지를 한 층씩 조회 (has_children 인 블록의 자식, 표의 행 포함)
+     * 같은 깊이의 블록들은 한꺼번에 병렬로 요청 → 왕복 횟수는 블록 수가 아니라 깊이만큼
+     * child_page / child_database 는 따로 파일이 되니까 제외
+     * @return 블록 id → 자식 목록
+     */
+    private Map<String, List<NotionBlock>> fetchDescendants(List<NotionBlock> top) throws Exception {
+        Map<String, List<NotionBlock>> nested = new HashMap<>();
+        List<NotionBlock> level = expandable(top);
+        for (int depth = 0; !level.isEmpty() && depth < MAX_NESTING; depth++) {
+            Map<String, List<NotionBlock>> fetched = new java.util.concurrent.ConcurrentHashMap<>();
+            List<java.util.concurrent.Callable<Void>> fetches = new ArrayList<>();
+            for (NotionBlock b : level)
+                fetches.add(() -> {
+                    // synced_block 사본은 원본의 자식을 보여줌
+                    fetched.put(b.id(), fetchAllChildren(b.syncedFrom() != null ? b.syncedFrom() : b.id()));
+                    return null;
+                });
+            runSubtrees(fetches);
+            nested.putAll(fetched);
+            List<NotionBlock> next = new ArrayList<>();
+            for (NotionBlock b : level)
+                next.addAll(expandable(fetched.get(b.id())));
+            level = next;
+        }
+        return nested;
+    }
+
+    private static List<NotionBlock> expandable(List<NotionBlock> blocks) {
+        List<NotionBlock> out = new ArrayList<>();
+        for (NotionBlock b : blocks)
+            if ((b.hasChildren() || b.syncedFrom() != null) && !"child_page".equals(b.type())
+                    && !"child_database".equals(b.type()))
+                out.add(b);
+        return out;
+    }
+
+    /** 검색 색인용 본문 텍스트 (rich_text, 코드, 표 셀, 중첩 블록까지) */
+    static void plainText(List<NotionBlock> blocks, Map<String, List<NotionBlock>> nested, StringBuilder out) {
+        for (NotionBlock b : blocks) {
+            for (NotionBlock.TextRun run : b.text())
+                if (run.text() != null)
+                    out.append(run.text());
+            for (List<NotionBlock.TextRun> cell : b.cells()) {
+                for (NotionBlock.TextRun run : cell)
+                    if (run.text() != null)
+                        out.append(run.text());
+                out.append(' ');
+            }
+            out.append('\n');
+            List<NotionBlock> kids = nested.get(b.id());
+            if (kids != null)
+                plainText(kids, nested, out);
+        }
+    }
+
+    /** 코드 블록 원문 (run 이 하나면 그대로) */
+    private static String plainCode(List<NotionBlock.TextRun> runs) {
+        if (runs.size() == 1)
+            return runs.get(0).text() == null ? "" : runs.get(0).text();
+        StringBuilder code = new StringBuilder();
+        for (NotionBlock.TextRun run : runs)
+            if (run.text() != null)
+                code.append(run.text());
+        return code.toString();
+    }
+
+    /** 코드 블록 언어 (prismLang 기준, 중첩 블록 포함) */
+    static void codeLanguages(List<NotionBlock> blocks, Map<String, List<NotionBlock>> nested, Set<String> out) {
+        for (NotionBlock b : blocks) {
+            if ("code".equals(b.type()))
+                out.add(prismLang(b.language()));
+            List<NotionBlock> kids = nested.get(b.id());
+            if (kids != null)
+                codeLanguages(kids, nested, out);
+        }
+    }
+
+    /** 페이지가 참조하는 공용 파일 (스타일시트 + 스크립트) */
+    private List<String> pageAssets(List<String> scripts) {
+        List<String> out = new ArrayList<>(scripts.size() + 1);
+        out.add(assets.stylesheet());
+        out.addAll(scripts);
+        return List.copyOf(out);
+    }
+
+    private static void collectChildPages(List<NotionBlock> blocks, Map<String, List<NotionBlock>> nested,
+            List<NotionBlock> childPages, List<NotionBlock> childDBs) {
+        for (NotionBlock b : blocks) {
+            if ("child_page".equals(b.type()))
+                childPages.add(b);
+            else if ("child_database".equals(b.type()))
+                childDBs.add(b);
+            List<NotionBlock> kids = nested.get(b.id());
+            if (kids != null)
+                collectChildPages(kids, nested, childPages, childDBs);
+        }
+    }
+
+    /** 순차 모드면 그대로 실행, 병렬 모드면 가상 스레드에 올리고 전부 끝날 때까지 대기 */
+    private void runSubtrees(List<java.util.concurrent.Callable<Void>> subtrees) throws Exception {
+        var exec = crawler;
+        if (exec == null || subtrees.size() < 2) {
+            for (var task : subtrees)
+                task.call();
+            return;
+        }
+        List<java.util.concurrent.Future<Void>> futures = new ArrayList<>();
+        for (var task : subtrees)
+            futures.add(exec.submit(task));
+        Exception first = null;
+        for (var f : futures) {
+            try {
+                f.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                if (first == null)
+                    first = (e.getCause() instanceof Exception ex) ? ex : e;
+            }
+        }
+        if (first != null)
+            throw first;
+    }
+
+    /** API 호출은 세마포어로 동시 요청 수 제한, 사이트 것 다음 앱 전체 것 (fetch 시간은 세마포어 대기 포함) */
+    private <T> T api(java.util.function.Supplier<T> call) {
+        apiCalls.incrementAndGet();
+        long started = System.nanoTime();
+        apiPermits.acquireUninterruptibly();
+        budget.acquireApi();
+        try {
+            return call.get();
+        } finally {
+            budget.releaseApi();
+            apiPermits.release();
+            long took = System.nanoTime() - started;
+            FETCH_NANOS.get()[0] += took;
+            metrics.phase(ExportMetrics.FETCH, took);
+        }
+    }
+
+    /** 이전 버전 파일 크기 (없으면 0) */
+    private static long previousSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (java.io.IOException e) {
+            return 0;
+        }
+    }
+
+    /** 페이지 파일 기록 (+ .gz), 걸린 시간 반환 */
+    private long writePage(String fileName, byte[] doc) throws java.io.IOException {
+        long started = System.nanoTime();
+        publisher.write(fileName, doc);
+        long took = System.nanoTime() - started;
+        metrics.phase(ExportMetrics.WRITE, took);
+        return took;
     }
 
     /* ===================== Render ===================== */
 
-    private void renderBlocks(List<JsonNode> blocks, StringBuilder out) {
-        boolean inUL = false, inOL = false, inTODO = false;
-        for (JsonNode b : blocks) {
-            String t = b.path("type").asText();
+    // 렌더/헬퍼 메서드들은 src/jmh 벤치마크에서 부르려고 package-private
+    void renderBlocks(List<NotionBlock> blocks, HtmlWriter out, Set<String> images) {
+        renderBlocks(blocks, Map.of(), out, images);
+    }
+
+    /** nested: 블록 id → 자식 (fetchDescendants 결과). 자식 있는 블록은 그 안쪽에 재귀로 렌더 */
+    void renderBlocks(List<NotionBlock> blocks, Map<String, List<NotionBlock>> nested, HtmlWriter out,
+            Set<String> images) {
+        ListState lists = new ListState();
+        renderBlocks(blocks, nested, out, images, lists);
+        closeLists(out, lists);
+    }
+
+    /** 렌더 중에 열려 있는 리스트, 같은 부모의 블록을 여러 배치로 나눠 렌더할 때 배치 사이에 들고 다님 */
+    static final class ListState {
+        boolean inUL, inOL, inTODO;
+    }
+
+    /** lists 의 열린 리스트를 이어서 렌더, 끝나도 닫지 않음 (마지막 배치 뒤에 closeLists) */
+    void renderBlocks(List<NotionBlock> blocks, Map<String, List<NotionBlock>> nested, HtmlWriter out,
+            Set<String> images, ListState lists) {
+        boolean inUL = lists.inUL, inOL = lists.inOL, inTODO = lists.inTODO;
+        for (NotionBlock b : blocks) {
+            String t = b.type();
 
             // 리스트 경계 처리
             if (!"bulleted_list_item".equals(t) && inUL) {
@@ -235,212 +658,412 @@ public class NotionExporter {
                 inTODO = false;
             }
 
+            List<NotionBlock> kids = nested.getOrDefault(b.id(), List.of());
             switch (t) {
-                case "paragraph" -> p(out, renderText(b.path("paragraph").path("rich_text")));
-                case "heading_1" -> h(out, 2, renderText(b.path("heading_1").path("rich_text")));
-                case "heading_2" -> h(out, 3, renderText(b.path("heading_2").path("rich_text")));
-                case "heading_3" -> h(out, 4, renderText(b.path("heading_3").path("rich_text")));
-                case "quote" -> out.append("<blockquote>").append(renderText(b.path("quote").path("rich_text")))
-                        .append("</blockquote>");
+                case "paragraph" -> {
+                    p(out, b.text());
+                    if (!kids.isEmpty()) {
+                        out.append("<div class='indent'>");
+                        renderBlocks(kids, nested, out, images);
+                        out.append("</div>");
+                    }
+                }
+                // 토글 제목이면 자식은 제목 아래에 그대로
+                case "heading_1" -> {
+                    h(out, 2, b.text());
+                    renderBlocks(kids, nested, out, images);
+                }
+                case "heading_2" -> {
+                    h(out, 3, b.text());
+                    renderBlocks(kids, nested, out, images);
+                }
+                case "heading_3" -> {
+                    h(out, 4, b.text());
+                    renderBlocks(kids, nested, out, images);
+                }
+                case "quote" -> {
+                    out.append("<blockquote>");
+                    renderText(b.text(), out);
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</blockquote>");
+                }
                 case "divider" -> out.append("<hr/>");
-                case "callout" -> out.append("<div class='callout'>")
-                        .append(renderText(b.path("callout").path("rich_text"))).append("</div>");
+                case "callout" -> {
+                    out.append("<div class='callout'>");
+                    renderText(b.text(), out);
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</div>");
+                }
+                case "toggle" -> {
+                    out.append("<details><summary>");
+                    renderText(b.text(), out);
+                    out.append("</summary>");
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</details>");
+                }
+                case "column_list" -> {
+                    out.append("<div class='columns'>");
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</div>");
+                }
+                case "column" -> {
+                    out.append("<div class='column'>");
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</div>");
+                }
                 case "code" -> {
-                    String langRaw = b.path("code").path("language").asText("");
-                    String code = concatPlain(b.path("code").path("rich_text"));
-                    out.append("<pre class='line-numbers'><code class='language-")
-                    .append(esc(prismLang(langRaw)))   // ← 아래 매핑 함수 쓰면 더 정확
-                    .append("'>")
-                    .append(esc(code))
-                    .append("</code></pre>");
+                    String lang = prismLang(b.language());
+                    if (CodeHighlighter.supports(lang)) {
+                        // export 때 토큰/줄 번호까지 만들어 둠 → 브라우저는 CSS 만
+                        out.append("<pre class='line-numbers language-").append(lang)
+                                .append("'><code class='language-").append(lang).append("'>");
+                        CodeHighlighter.render(lang, plainCode(b.text()), out);
+                        out.append("</code></pre>");
+                    } else {
+                        out.append("<pre class='line-numbers'><code class='language-").text(lang).append("'>");
+                        for (NotionBlock.TextRun run : b.text())
+                            out.text(run.text());
+                        out.append("</code></pre>");
+                    }
                 }
                 case "bulleted_list_item" -> {
                     if (!inUL) {
                         out.append("<ul>");
                         inUL = true;
                     }
-                    out.append("<li>").append(renderText(b.path("bulleted_list_item").path("rich_text")))
-                            .append("</li>");
+                    out.append("<li>");
+                    renderText(b.text(), out);
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</li>");
                 }
                 case "numbered_list_item" -> {
                     if (!inOL) {
                         out.append("<ol>");
                         inOL = true;
                     }
-                    out.append("<li>").append(renderText(b.path("numbered_list_item").path("rich_text")))
-                            .append("</li>");
+                    out.append("<li>");
+                    renderText(b.text(), out);
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</li>");
                 }
                 case "to_do" -> {
                     if (!inTODO) {
                         out.append("<ul>");
                         inTODO = true;
                     }
-                    boolean checked = b.path("to_do").path("checked").asBoolean(false);
+                    boolean checked = b.checked();
                     out.append("<li><input type='checkbox' disabled ")
                             .append(checked ? "checked" : "")
-                            .append("/> ")
-                            .append(renderText(b.path("to_do").path("rich_text")))
-                            .append("</li>");
-                }
-                case "table" -> {
-                    try {
-                        renderTable(b, out);
-                    } catch (Exception e) {
-                        System.out.println("[TABLE] error: " + e.getMessage());
-                    }
+                            .append("/> ");
+                    renderText(b.text(), out);
+                    renderBlocks(kids, nested, out, images);
+                    out.append("</li>");
                 }
+                case "table" -> renderTableRows(b, kids, out); // 행은 fetchDescendants 에서 미리 받아둠
                 case "image" -> {
-                    JsonNode img = b.path("image");
-                    String url = "external".equals(img.path("type").asText())
-                            ? img.path("external").path("url").asText("")
-                            : img.path("file").path("url").asText("");
+                    String url = b.imageUrl() == null ? "" : b.imageUrl();
 
                     if (!url.isEmpty()) {
-                        String local = downloadImage(url); // ▼ 추가
-                        String src = (local != null) ? local : url;
-                        out.append("<p><img src='").append(esc(src))
-                                .append("' style='max-width:100%'/></p>");
+                        ImageStore.Resolution img = imageStore.resolve(url, b.imageExternal());
+                        images.add(img.src());
+                        out.append("<p>");
+                        renderImage(img, out);
+                        out.append("</p>");
                     }
                 }
                 // child_page / child_database 는 파일 생성 단계에서 처리(여기선 건너뜀)
-                default -> {
-                }
+                // synced_block 등 그 밖의 블록은 자식만 그대로
+                default -> renderBlocks(kids, nested, out, images);
             }
         }
-        if (inUL)
+        lists.inUL = inUL;
+        lists.inOL = inOL;
+        lists.inTODO = inTODO;
+    }
+
+    static void closeLists(HtmlWriter out, ListState lists) {
+        if (lists.inUL)
             out.append("</ul>");
-        if (inOL)
+        if (lists.inOL)
             out.append("</ol>");
-        if (inTODO)
+        if (lists.inTODO)
             out.append("</ul>");
+        lists.inUL = lists.inOL = lists.inTODO = false;
     }
 
     /* ===================== Notion REST ===================== */
 
     public String getPageTitle(String pageId) {
-        pageId = hyphenize(pageId);
-        String body = http.get()
-                .uri("/pages/{id}", pageId)
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+        return fetchPageMeta(pageId).title();
+    }
+
+    /** 이번 실행에서 이미 알게 된 메타(/search, DB query, 이전 /pages)가 있으면 재사용 */
+    private NotionPage fetchPageMeta(String pageId) {
         try {
-            JsonNode props = om.readTree(body).path("properties");
-            if (props.isObject()) {
-                Iterator<String> it = props.fieldNames();
-                while (it.hasNext()) {
-                    JsonNode p = props.get(it.next());
-                    if ("title".equals(p.path("type").asText())) {
-                        JsonNode arr = p.path("title");
-                        if (arr.isArray() && arr.size() > 0)
-                            return arr.get(0).path("plain_text").asText("(Untitled)");
-                    }
-                }
-            }
-        } catch (Exception ignore) {
+            return metaCache.get(hyphenize(pageId), this::loadPageMeta);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 캐시에 나갔다 온 호출 수 (= 캐시 덕분에 생략한 API 요청) */
+    public int savedApiCalls() {
+        return metaCache.hits() + rowsCache.hits();
+    }
+
+    public int apiCalls() {
+        return apiCalls.get();
+    }
+
+    private NotionPage loadPageMeta(String id) {
+        try {
+            NotionPage page = api(() -> client.get("/pages/" + id, NotionJson::readPage, deadline));
+            if (page != null)
+                return page;
+        } catch (java.io.UncheckedIOException ignore) {
         }
-        return "(Untitled)";
+        return new NotionPage(id, "(Untitled)", null);
+    }
+
+    /**
+     * 변경 감지용: 공유된 페이지/DB 중 가장 최근 last_edited_time (요청 1번, 없으면 null)
+     * 전체 export 전에 이 값이 그대로인지만 확인 (export 와 별개로 불려서 api 카운트/마감 시각 안 씀)
+     */
+    public String latestEditedTime() {
+        var req = om.createObjectNode();
+        req.putObject("sort").put("direction", "descending").put("timestamp", "last_edited_time");
+        req.put("page_size", 1);
+        List<NotionPage> newest = client.post("/search", req.toString(), NotionJson::readPages,
+                NotionClient.deadlineAfter(java.time.Duration.ofMinutes(2))).results();
+        return newest.isEmpty() ? null : newest.get(0).lastEditedTime();
+    }
+
+    /**
+     * 워크스페이스 전체 페이지의 제목/수정시각을 /search 로 한 번에 (100개당 1콜)
+     * 증분 모드에서 페이지마다 /pages/{id} 를 부르지 않기 위함
+     */
+    private List<NotionPage> searchPageMeta() {
+        List<NotionPage> metas = new ArrayList<>();
+        String cursor = null;
+        do {
+            var req = om.createObjectNode();
+            req.putObject("filter").put("property", "object").put("value", "page");
+            req.put("page_size", 100);
+            if (cursor != null)
+                req.put("start_cursor", cursor);
+            NotionJson.Batch<NotionPage> batch = postPages("/search", req.toString());
+            for (NotionPage page : batch.results())
+                if (page.id() != null && !page.id().isBlank())
+                    metas.add(page);
+            cursor = batch.nextCursor();
+        } while (cursor != null);
+        return metas;
     }
 
-    private List<JsonNode> fetchAllChildren(String blockOrPageId) throws Exception {
+    private List<NotionBlock> fetchAllChildren(String blockOrPageId) throws Exception {
         blockOrPageId = hyphenize(blockOrPageId);
-        List<JsonNode> all = new ArrayList<>();
+        List<NotionBlock> all = new ArrayList<>();
         String cursor = null;
         do {
             String uri = "/blocks/" + blockOrPageId + "/children?page_size=100" +
                     (cursor != null ? "&start_cursor=" + cursor : "");
-            String body = http.get().uri(uri)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve().bodyToMono(String.class).block();
-            JsonNode root = om.readTree(body);
-            if (root.has("results"))
-                for (JsonNode n : root.get("results"))
-                    all.add(n);
-            cursor = root.path("has_more").asBoolean(false) ? root.path("next_cursor").asText(null) : null;
+            NotionJson.Batch<NotionBlock> batch = api(() -> client.get(uri, NotionJson::readBlocks, deadline));
+            all.addAll(batch.results());
+            cursor = batch.nextCursor();
         } while (cursor != null);
         return all;
     }
 
+    /**
+     * 페이지 최상위 블록을 커서 페이지 단위로 (streaming=false 면 전부 받아서 한 배치)
+     * 배치를 돌려주기 전에 다음 커서 요청을 먼저 띄워 둠 → 호출 쪽이 이 배치를 처리하는 동안 다음 배치가 옴
+     * next_cursor 는 응답 본문 끝(results 뒤)에 있어서 다음 요청은 본문을 다 읽은 뒤에야 가능
+     */
+    private final class BlockBatches {
+
+        private final String id;
+        private NotionJson.Batch<NotionBlock> ready;
+        private java.util.concurrent.CompletableFuture<NotionJson.Batch<NotionBlock>> pending;
+
+        BlockBatches(String blockOrPageId) throws Exception {
+            this.id = hyphenize(blockOrPageId);
+            if (streaming)
+                ready = fetchBatch(null);
+            else
+                ready = new NotionJson.Batch<>(fetchAllChildren(id), false, null);
+        }
+
+        /** 다음 배치, 다 받았으면 null */
+        List<NotionBlock> next() throws Exception {
+            if (ready == null && pending != null) {
+                try {
+                    ready = pending.join();
+                } catch (java.util.concurrent.CompletionException e) {
+                    throw (e.getCause() instanceof Exception ex) ? ex : e;
+                } finally {
+                    pending = null;
+                }
+            }
+            if (ready == null)
+                return null;
+            NotionJson.Batch<NotionBlock> batch = ready;
+            ready = null;
+            String cursor = batch.nextCursor();
+            if (cursor != null)
+                pending = prefetch(() -> fetchBatch(cursor));
+            return batch.results();
+        }
+
+        private NotionJson.Batch<NotionBlock> fetchBatch(String cursor) {
+            String uri = "/blocks/" + id + "/children?page_size=100" +
+                    (cursor != null ? "&start_cursor=" + cursor : "");
+            return api(() -> client.get(uri, NotionJson::readBlocks, deadline));
+        }
+    }
+
+    /** streaming: DB row 목록을 찾자마자 백그라운드로 (실패하면 목차 렌더 전 queryDatabasePages 가 다시 시도) */
+    private void prefetchRows(String dbId) throws Exception {
+        if (streaming)
+            prefetch(() -> queryDatabasePages(dbId));
+        else
+            queryDatabasePages(dbId);
+    }
+
+    /** 가상 스레드에서 미리 받아 둠 (API 동시 요청 수는 api() 세마포어가 그대로 제한) */
+    private static <T> java.util.concurrent.CompletableFuture<T> prefetch(java.util.concurrent.Callable<T> call) {
+        var f = new java.util.concurrent.CompletableFuture<T>();
+        Thread.ofVirtual().name("notion-prefetch").start(() -> {
+            try {
+                f.complete(call.call());
+            } catch (Throwable e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+
+    /** DB row 목록은 실행당 한 번만 조회 (목차 + 재귀 + 증분 비교가 같은 결과를 공유) */
     private List<String> queryDatabasePages(String dbId) throws Exception {
-        dbId = hyphenize(dbId);
+        return rowsCache.get(hyphenize(dbId), this::loadDatabaseRows);
+    }
+
+    /** query 결과에 row 의 제목/수정시각이 이미 들어있으니 메타 캐시도 같이 채움 */
+    private List<String> loadDatabaseRows(String dbId) throws Exception {
         List<String> ids = new ArrayList<>();
         String cursor = null;
         do {
-            String uri = "/databases/{id}/query" + (cursor != null ? "?start_cursor=" + cursor : "");
-            String body = http.post().uri(uri, dbId)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .bodyValue("{}")
-                    .retrieve().bodyToMono(String.class).block();
-            JsonNode root = om.readTree(body);
-            if (root.has("results"))
-                for (JsonNode r : root.get("results")) {
-                    String pid = r.path("id").asText();
-                    if (!pid.isBlank())
-                        ids.add(pid);
+            // query 는 POST 라 커서도 body 로 보냄
+            var req = om.createObjectNode();
+            if (cursor != null)
+                req.put("start_cursor", cursor);
+            NotionJson.Batch<NotionPage> batch = postPages("/databases/" + dbId + "/query", req.toString());
+            for (NotionPage row : batch.results()) {
+                String pid = row.id();
+                if (pid != null && !pid.isBlank()) {
+                    ids.add(pid);
+                    metaCache.prime(pid, row);
                 }
-            cursor = root.path("has_more").asBoolean(false) ? root.path("next_cursor").asText(null) : null;
+            }
+            cursor = batch.nextCursor();
         } while (cursor != null);
         return ids;
     }
 
+    private NotionJson.Batch<NotionPage> postPages(String uri, String payload) {
+        return api(() -> client.post(uri, payload, NotionJson::readPages, deadline));
+    }
+
+    /** child_page 블록의 제목 (없으면 Untitled) */
+    private static String childTitle(NotionBlock b) {
+        return b.title() != null ? b.title() : "(Untitled)";
+    }
+
     /* ===================== Helpers ===================== */
 
-    private static String renderText(JsonNode arr) {
-        if (arr == null || !arr.isArray() || arr.size() == 0)
-            return "";
-        StringBuilder sb = new StringBuilder();
-        for (JsonNode t : arr) {
-            String s = esc(t.path("plain_text").asText(""));
-            String href = t.path("href").asText("");
-            JsonNode an = t.path("annotations");
-            boolean code = an.path("code").asBoolean(false);
+    /**
+     * rich_text[] → HTML, out 에 바로 기록
+     * 감싸는 순서: a > s > u > em > strong > code > 텍스트 (기존 문자열 래핑과 동일한 결과)
+     */
+    static void renderText(List<NotionBlock.TextRun> runs, HtmlWriter out) {
+        for (NotionBlock.TextRun t : runs) {
+            String href = t.href() == null ? "" : t.href();
+            boolean code = t.has(NotionBlock.TextRun.CODE);
+            boolean bold = t.has(NotionBlock.TextRun.BOLD);
+            boolean italic = t.has(NotionBlock.TextRun.ITALIC);
+            boolean underline = t.has(NotionBlock.TextRun.UNDERLINE);
+            boolean strike = t.has(NotionBlock.TextRun.STRIKETHROUGH);
+
+            if (!href.isEmpty())
+                out.append("<a href='").text(href).append("'>");
+            if (strike)
+                out.append("<s>");
+            if (underline)
+                out.append("<u>");
+            if (italic)
+                out.append("<em>");
+            if (bold)
+                out.append("<strong>");
             if (code)
-                s = "<code>" + s + "</code>";
-            if (an.path("bold").asBoolean(false))
-                s = "<strong>" + s + "</strong>";
-            if (an.path("italic").asBoolean(false))
-                s = "<em>" + s + "</em>";
-            if (an.path("underline").asBoolean(false))
-                s = "<u>" + s + "</u>";
-            if (an.path("strikethrough").asBoolean(false))
-                s = "<s>" + s + "</s>";
+                out.append("<code>");
+            out.text(t.text());
+            if (code)
+                out.append("</code>");
+            if (bold)
+                out.append("</strong>");
+            if (italic)
+                out.append("</em>");
+            if (underline)
+                out.append("</u>");
+            if (strike)
+                out.append("</s>");
             if (!href.isEmpty())
-                s = "<a href='" + esc(href) + "'>" + s + "</a>";
-            sb.append(s);
+                out.append("</a>");
         }
-        return sb.toString();
     }
 
-    private static void p(StringBuilder out, String s) {
-        if (!s.isBlank())
-            out.append("<p>").append(s).append("</p>");
+    /**
+     * renderText 결과가 공백뿐인지 (렌더 전에 판단해서 빈 p/h 생략)
+     * 태그가 하나라도 붙거나 공백 아닌 글자가 있으면 blank 아님
+     */
+    private static boolean isBlankText(List<NotionBlock.TextRun> runs) {
+        for (NotionBlock.TextRun t : runs) {
+            if (t.annotations() != 0 || (t.href() != null && !t.href().isEmpty()))
+                return false;
+            if (t.text() != null && !t.text().isBlank())
+                return false;
+        }
+        return true;
     }
 
-    private static void h(StringBuilder out, int lv, String s) {
-        if (!s.isBlank())
-            out.append("<h").append(lv).append(">").append(s).append("</h").append(lv).append(">");
+    private static void p(HtmlWriter out, List<NotionBlock.TextRun> richText) {
+        if (!isBlankText(richText)) {
+            out.append("<p>");
+            renderText(richText, out);
+            out.append("</p>");
+        }
     }
 
-    private static String concatPlain(JsonNode arr) {
-        if (arr == null || !arr.isArray())
-            return "";
-        StringBuilder sb = new StringBuilder();
-        for (JsonNode t : arr)
-            sb.append(t.path("plain_text").asText(""));
-        return sb.toString();
+    private static void h(HtmlWriter out, int lv, List<NotionBlock.TextRun> richText) {
+        if (!isBlankText(richText)) {
+            out.append("<h").append(lv).append(">");
+            renderText(richText, out);
+            out.append("</h").append(lv).append(">");
+        }
     }
 
-    private static String esc(String s) {
-        if (s == null)
-            return "";
-        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
-                .replace("\"", "&quot;").replace("'", "&#39;");
+    private static String sha256(byte[] bytes) {
+        try {
+            var md = java.security.MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(bytes));
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /** 주소에서 하이픈 없는 32자 들어오면 하이픈 삽입 */
-    private static String hyphenize(String id) {
+    static String hyphenize(String id) {
         String s = (id == null) ? "" : id.replaceAll("-", "");
         if (s.length() != 32)
             return id;
@@ -449,7 +1072,7 @@ public class NotionExporter {
     }
 
     /** 파일명 슬러그: 제목 기반 + id 앞 8글자 */
-    private static String slug(String title, String id) {
+    static String slug(String title, String id) {
         String base = (title == null || title.isBlank()) ? "untitled"
                 : title
                         .toLowerCase().replaceAll("[^a-z0-9\\-\\s]", "").trim().replaceAll("\\s+", "-");
@@ -459,116 +1082,72 @@ public class NotionExporter {
         return base + "-" + shortId;
     }
 
-    private String downloadImage(String url) {
-        try {
-            Path imgDir = outputDir.resolve("assets/images");
-            Files.createDirectories(imgDir);
-
-            // 1) 쿼리 제거한 키
-            String key = normalizedKey(url);
-
-            // 2) 파일명 만들기 (원래 파일명 + 키 해시)
-            String pure = key; // 이미 쿼리 제거됨
-            String filename = pure.substring(pure.lastIndexOf('/') + 1);
-            if (filename.isBlank())
-                filename = "image";
-            int dot = filename.lastIndexOf('.');
-            String ext = (dot >= 0 && (filename.length() - dot) <= 5)
-                    ? filename.substring(dot).toLowerCase()
-                    : ".bin";
-            String base = (dot >= 0 ? filename.substring(0, dot) : filename)
-                    .toLowerCase().replaceAll("[^a-z0-9\\-]+", "-");
-            String hash8 = java.util.UUID.nameUUIDFromBytes(pure.getBytes())
-                    .toString().replace("-", "").substring(0, 8);
-            String name = hash8 + "-" + base + ext;
-
-            Path out = imgDir.resolve(name);
-
-            touchedImages.add(name);
-
-            // 3) 디스크 캐시: 이미 있으면 즉시 반환
-            if (Files.exists(out)) {
-                System.out.println("[IMG] cache(hit-disk) → " + out.getFileName());
-                return "assets/images/" + name;
-            }
-
-            // 4) 런타임 캐시: 같은 실행 중 중복 스킵
-            if (!downloadedKeys.add(key)) {
-                System.out.println("[IMG] cache(hit-mem)  → " + out.getFileName());
-                return "assets/images/" + name;
-            }
-
-            // 5) 다운로드 (UA + 리다이렉트)
-            var req = java.net.http.HttpRequest.newBuilder(java.net.URI.create(url))
-                    .header("User-Agent", "Mozilla/5.0")
-                    .build();
-            var res = plainHttp.send(req, java.net.http.HttpResponse.BodyHandlers.ofByteArray());
-            System.out.println("[IMG] status " + res.statusCode() + " len=" + res.body().length);
-
-            if (res.statusCode() >= 200 && res.statusCode() < 300) {
-                Files.write(out, res.body());
-                System.out.println("[IMG] downloaded      → " + out.getFileName());
-                return "assets/images/" + name;
-            } else {
-                System.out.println("[IMG] fail " + res.statusCode() + " : " + url);
-                return null; // 실패 시 외부 URL로 폴백
+    /**
+     * img 태그: lazy 로딩 + 로컬 파일이면 폭 제한 사본 srcset, 원래 크기(레이아웃 밀림 방지)
+     * 본문 폭이 900px 까지라 sizes 도 그 기준
+     */
+    static void renderImage(ImageStore.Resolution img, HtmlWriter out) {
+        out.append("<img src='").text(img.src()).append('\'');
+        ImageVariants.Info info = img.info();
+        if (img.local() && info.known()) {
+            if (!info.widths().isEmpty()) {
+                out.append(" srcset='");
+                for (int w : info.widths())
+                    out.text(img.variant(w)).append(' ').append(w).append("w, ");
+                out.text(img.src()).append(' ').append(info.width()).append("w'")
+                        .append(" sizes='(max-width: 900px) 100vw, 900px'");
             }
-
-        } catch (Exception e) {
-            System.out.println("[IMG] error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            return null;
+            out.append(" width='").append(info.width()).append("' height='").append(info.height()).append('\'')
+                    .append(" loading='lazy' decoding='async' style='max-width:100%;height:auto'/>");
+        } else {
+            out.append(" loading='lazy' decoding='async' style='max-width:100%'/>");
         }
     }
 
-    private static String normalizedKey(String url) {
-        try {
-            var u = java.net.URI.create(url);
-            // scheme://host + path 만 사용 (쿼리/fragment 무시)
-            return new java.net.URI(u.getScheme(), u.getHost(), u.getPath(), null).toString();
-        } catch (Exception e) {
-            int q = url.indexOf('?');
-            return q > -1 ? url.substring(0, q) : url;
-        }
-    }
-
-    private void cleanupOrphanImages() throws java.io.IOException {
-        Path imgDir = outputDir.resolve("assets/images");
-        if (!Files.isDirectory(imgDir))
-            return;
-
-        try (var stream = Files.list(imgDir)) {
-            stream.filter(Files::isRegularFile).forEach(p -> {
-                String fname = p.getFileName().toString();
-                if (!touchedImages.contains(fname)) {
-                    try {
-                        Files.delete(p);
-                        System.out.println("[IMG] removed orphan → " + fname);
-                    } catch (Exception e) {
-                        System.out.println("[IMG] delete fail → " + fname + " : " + e.getMessage());
-                    }
+    /**
+     * 다운로드가 끝난 이미지의 자리표시 경로를 최종 경로(실패 시 원래 URL)로 바꿔서 페이지 기록
+     * (렌더 시점엔 내용 해시 = 파일명을 모르기 때문)
+     */
+    private void finishImages() throws java.io.IOException {
+        long started = System.nanoTime(), writing = 0;
+        Map<String, ImageStore.Resolution> resolved = imageStore.finish(deadline);
+        for (Map.Entry<String, byte[]> d : deferredPages.entrySet()) {
+            PageManifest.Entry e = manifest.current(d.getKey());
+            String html = new String(d.getValue(), java.nio.charset.StandardCharsets.UTF_8);
+            List<String> kept = new ArrayList<>();
+            for (String src : e.images()) {
+                ImageStore.Resolution r = ImageStore.isPending(src) ? resolved.get(src) : null;
+                if (r == null) {
+                    kept.add(src);
+                    continue;
                 }
-            });
+                HtmlWriter from = new HtmlWriter(128), to = new HtmlWriter(512);
+                renderImage(ImageStore.Resolution.remote(src), from);
+                renderImage(r, to);
+                html = html.replace(from.toString(), to.toString());
+                if (r.local())
+                    kept.add(r.src());
+                else
+                    System.out.println("[IMG] fallback to remote url → " + e.file());
+            }
+            byte[] doc = html.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            writing += writePage(e.file(), doc);
+            manifest.record(new PageManifest.Entry(e.id(), e.title(), e.file(), e.lastEditedTime(), e.exportedAt(),
+                    sha256(doc), e.children(), e.databases(), List.copyOf(new LinkedHashSet<>(kept)), e.assets()));
         }
+        metrics.phase(ExportMetrics.IMAGE, System.nanoTime() - started - writing);
     }
 
-    /**
-     * Notion table → HTML
-     * <table>
-     * 렌더링
-     */
-    private void renderTable(JsonNode tableBlock, StringBuilder out) throws Exception {
-        JsonNode t = tableBlock.path("table");
-        boolean hasColHeader = t.path("has_column_header").asBoolean(false);
-        boolean hasRowHeader = t.path("has_row_header").asBoolean(false);
 
-        // 자식에는 table_row 블록들이 들어있음
-        String tableId = tableBlock.path("id").asText();
-        List<JsonNode> rows = fetchAllChildren(tableId);
+    /** 이미 받아온 table_row 블록들로 <table> 작성 (네트워크 없음) */
+    static void renderTableRows(NotionBlock tableBlock, List<NotionBlock> rows, HtmlWriter out) {
+        boolean hasColHeader = tableBlock.colHeader();
+        boolean hasRowHeader = tableBlock.rowHeader();
 
         // table_row만 추림
-        List<JsonNode> rowBlocks = new ArrayList<>();
-        for (JsonNode r : rows)
-            if ("table_row".equals(r.path("type").asText()))
+        List<NotionBlock> rowBlocks = new ArrayList<>();
+        for (NotionBlock r : rows)
+            if ("table_row".equals(r.type()))
                 rowBlocks.add(r);
 
         if (rowBlocks.isEmpty())
@@ -580,13 +1159,13 @@ public class NotionExporter {
         int start = 0;
         // 컬럼 헤더 있으면 첫 행을 thead로
         if (hasColHeader) {
-            JsonNode head = rowBlocks.get(0).path("table_row").path("cells");
+            List<List<NotionBlock.TextRun>> head = rowBlocks.get(0).cells();
             out.append("<thead><tr>");
             for (int c = 0; c < head.size(); c++) {
-                JsonNode cell = head.get(c); // rich_text[]
-                out.append("<th>")
-                        .append(renderText(cell))
-                        .append("</th>");
+                List<NotionBlock.TextRun> cell = head.get(c); // rich_text[]
+                out.append("<th>");
+                renderText(cell, out);
+                out.append("</th>");
             }
             out.append("</tr></thead>");
             start = 1;
@@ -594,15 +1173,19 @@ public class NotionExporter {
 
         out.append("<tbody>");
         for (int i = start; i < rowBlocks.size(); i++) {
-            JsonNode row = rowBlocks.get(i).path("table_row").path("cells");
+            List<List<NotionBlock.TextRun>> row = rowBlocks.get(i).cells();
             out.append("<tr>");
             for (int c = 0; c < row.size(); c++) {
-                JsonNode cell = row.get(c); // rich_text[]
+                List<NotionBlock.TextRun> cell = row.get(c); // rich_text[]
                 boolean rowHeaderCell = hasRowHeader && c == 0;
                 if (rowHeaderCell) {
-                    out.append("<th scope='row'>").append(renderText(cell)).append("</th>");
+                    out.append("<th scope='row'>");
+                    renderText(cell, out);
+                    out.append("</th>");
                 } else {
-                    out.append("<td>").append(renderText(cell)).append("</td>");
+                    out.append("<td>");
+                    renderText(cell, out);
+                    out.append("</td>");
                 }
             }
             out.append("</tr>");
@@ -611,10 +1194,10 @@ public class NotionExporter {
         out.append("</div>");
     }
 
-    private static String prismLang(String notion) {
+    static String prismLang(String notion) {
         String s = (notion == null ? "" : notion).toLowerCase(Locale.ROOT).trim();
         return switch (s) {
-            case "plain text", "plaintext", "text" -> "none";
+            case "", "plain text", "plaintext", "text" -> "none";
             case "shell", "bash", "sh", "zsh" -> "bash";
             case "c++" -> "cpp";
             case "c#" -> "csharp";
@@ -623,6 +1206,12 @@ public class NotionExporter {
             case "objective-c" -> "objectivec";
             case "html" -> "markup";
             case "yml" -> "yaml";
+            case "f#" -> "fsharp";
+            case "vb.net" -> "vbnet";
+            case "visual basic" -> "visual-basic";
+            case "llvm ir" -> "llvm";
+            case "webassembly" -> "wasm";
+            case "java/c/c++/c#" -> "clike";
             case "sql", "mysql", "postgresql", "postgres", "sqlite" -> "sql"; // ← 추가
             default -> s; // 나머지는 그대로
         };
@@ -0,0 +1,289 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Notion 응답을 JsonNode 트리 없이 스트리밍으로 바로 NotionBlock / NotionPage 로 변환
+ * - 모르는 필드(parent, created_by, caption, color ...)는 skipChildren 으로 통째로 건너뜀
+ * - 응답 하나(최대 100개)를 읽는 동안에도 남는 건 레코드뿐
+ */
+public final class NotionJson {
+
+    /** 목록 응답 한 페이지: results + 커서 */
+    public record Batch<T>(List<T> results, boolean hasMore, String nextCursor) {
+    }
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /** 블록 객체에서 타입별 본문이 들어있는 필드명 */
+    private static final Set<String> PAYLOADS = Set.of(
+            "paragraph", "heading_1", "heading_2", "heading_3", "quote", "callout", "code",
+            "bulleted_list_item", "numbered_list_item", "to_do", "toggle", "table", "table_row",
+            "image", "child_page", "child_database", "divider", "column_list", "column", "synced_block");
+
+    private NotionJson() {
+    }
+
+    /* ===================== 목록 응답 ===================== */
+
+    /** /blocks/{id}/children */
+    public static Batch<NotionBlock> readBlocks(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return readBatch(p, true);
+        }
+    }
+
+    /** /databases/{id}/query, /search */
+    public static Batch<NotionPage> readPages(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return readBatch(p, false);
+        }
+    }
+
+    /** /pages/{id} */
+    public static NotionPage readPage(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("page object expected");
+            return readPageObject(p);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Batch<T> readBatch(JsonParser p, boolean blocks) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT)
+            throw new IOException("list object expected");
+        List<T> results = new ArrayList<>();
+        boolean hasMore = false;
+        String cursor = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken v = p.nextToken();
+            switch (f) {
+                case "results" -> {
+                    if (v != JsonToken.START_ARRAY) {
+                        p.skipChildren();
+                        break;
+                    }
+                    while (p.nextToken() == JsonToken.START_OBJECT)
+                        results.add((T) (blocks ? readBlockObject(p) : readPageObject(p)));
+                }
+                case "has_more" -> hasMore = v == JsonToken.VALUE_TRUE;
+                case "next_cursor" -> cursor = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                default -> p.skipChildren();
+            }
+        }
+        return new Batch<>(results, hasMore, hasMore ? cursor : null);
+    }
+
+    /* ===================== 페이지 ===================== */
+
+    private static NotionPage readPageObject(JsonParser p) throws IOException {
+        String id = null, lastEdited = null, title = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken v = p.nextToken();
+            switch (f) {
+                case "id" -> id = p.getText();
+                case "last_edited_time" -> lastEdited = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                case "properties" -> title = readTitleProperty(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new NotionPage(id, title != null ? title : "(Untitled)", lastEdited);
+    }
+
+    /** properties 중 "title" 배열을 가진 속성(= title 타입)의 첫 조각 plain_text */
+    private static String readTitleProperty(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String title = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            p.nextToken(); // 속성 객체
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String f = p.currentName();
+                JsonToken v = p.nextToken();
+                if ("title".equals(f) && v == JsonToken.START_ARRAY && title == null) {
+                    List<NotionBlock.TextRun> runs = readRunsFromArray(p);
+                    title = runs.isEmpty() ? "(Untitled)" : runs.get(0).text();
+                    if (title == null)
+                        title = "(Untitled)";
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return title;
+    }
+
+    /* ===================== 블록 ===================== */
+
+    private static NotionBlock readBlockObject(JsonParser p) throws IOException {
+        String id = null, type = null;
+        boolean hasChildren = false;
+        Payload payload = null;
+        String payloadName = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken v = p.nextToken();
+            if ("id".equals(f)) {
+                id = p.getText();
+            } else if ("type".equals(f)) {
+                type = p.getText();
+            } else if ("has_children".equals(f)) {
+                hasChildren = v == JsonToken.VALUE_TRUE;
+            } else if (v == JsonToken.START_OBJECT && PAYLOADS.contains(f) && (type == null || type.equals(f))) {
+                payload = readPayload(p);
+                payloadName = f;
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (payload == null || !payloadName.equals(type))
+            payload = new Payload();
+        return new NotionBlock(id, type == null ? "" : type, hasChildren, payload.text, payload.language,
+                payload.checked, payload.title, payload.imageUrl(), "external".equals(payload.fileType),
+                payload.colHeader, payload.rowHeader, payload.cells, payload.syncedFrom);
+    }
+
+    /** 타입별 본문 객체. 필요한 필드만 뽑고 나머지는 건너뜀 */
+    private static Payload readPayload(JsonParser p) throws IOException {
+        Payload out = new Payload();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken v = p.nextToken();
+            switch (f) {
+                case "rich_text" -> out.text = v == JsonToken.START_ARRAY ? readRunsFromArray(p) : skip(p);
+                case "language" -> out.language = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                case "checked" -> out.checked = v == JsonToken.VALUE_TRUE;
+                case "title" -> {
+                    if (v == JsonToken.VALUE_STRING)
+                        out.title = p.getText();
+                    else
+                        p.skipChildren();
+                }
+                case "has_column_header" -> out.colHeader = v == JsonToken.VALUE_TRUE;
+                case "has_row_header" -> out.rowHeader = v == JsonToken.VALUE_TRUE;
+                case "cells" -> {
+                    if (v != JsonToken.START_ARRAY) {
+                        p.skipChildren();
+                        break;
+                    }
+                    List<List<NotionBlock.TextRun>> cells = new ArrayList<>();
+                    while (p.nextToken() == JsonToken.START_ARRAY)
+                        cells.add(readRunsFromArray(p));
+                    out.cells = List.copyOf(cells);
+                }
+                case "type" -> out.fileType = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                case "external" -> out.externalUrl = readUrl(p);
+                case "file" -> out.fileUrl = readUrl(p);
+                case "synced_from" -> out.syncedFrom = readField(p, "block_id");
+                default -> p.skipChildren();
+            }
+        }
+        return out;
+    }
+
+    private static String readUrl(JsonParser p) throws IOException {
+        return readField(p, "url");
+    }
+
+    /** 현재 객체에서 문자열 필드 하나만 (객체가 아니면 null) */
+    private static String readField(JsonParser p, String name) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String value = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            JsonToken v = p.nextToken();
+            if (name.equals(p.currentName()) && v == JsonToken.VALUE_STRING)
+                value = p.getText();
+            else
+                p.skipChildren();
+        }
+        return value;
+    }
+
+    /** 현재 토큰이 START_ARRAY 인 상태에서 rich_text 배열 읽기 */
+    private static List<NotionBlock.TextRun> readRunsFromArray(JsonParser p) throws IOException {
+        List<NotionBlock.TextRun> runs = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String text = null, href = null;
+            int ann = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String f = p.currentName();
+                JsonToken v = p.nextToken();
+                switch (f) {
+                    case "plain_text" -> text = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                    case "href" -> href = v == JsonToken.VALUE_STRING ? p.getText() : null;
+                    case "annotations" -> ann = v == JsonToken.START_OBJECT ? readAnnotations(p) : skipInt(p);
+                    default -> p.skipChildren();
+                }
+            }
+            runs.add(new NotionBlock.TextRun(text, href, ann));
+        }
+        return List.copyOf(runs);
+    }
+
+    private static int readAnnotations(JsonParser p) throws IOException {
+        int ann = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            boolean on = p.nextToken() == JsonToken.VALUE_TRUE;
+            if (!on) {
+                p.skipChildren();
+                continue;
+            }
+            ann |= switch (f) {
+                case "bold" -> NotionBlock.TextRun.BOLD;
+                case "italic" -> NotionBlock.TextRun.ITALIC;
+                case "strikethrough" -> NotionBlock.TextRun.STRIKETHROUGH;
+                case "underline" -> NotionBlock.TextRun.UNDERLINE;
+                case "code" -> NotionBlock.TextRun.CODE;
+                default -> 0;
+            };
+        }
+        return ann;
+    }
+
+    private static List<NotionBlock.TextRun> skip(JsonParser p) throws IOException {
+        p.skipChildren();
+        return List.of();
+    }
+
+    private static int skipInt(JsonParser p) throws IOException {
+        p.skipChildren();
+        return 0;
+    }
+
+    /** 블록 타입별 본문에서 뽑은 값 (파싱 중에만 쓰는 임시 객체) */
+    private static final class Payload {
+        List<NotionBlock.TextRun> text = List.of();
+        String language;
+        boolean checked;
+        String title;
+        boolean colHeader, rowHeader;
+        List<List<NotionBlock.TextRun>> cells = List.of();
+        String fileType, externalUrl, fileUrl;
+        String syncedFrom;
+
+        String imageUrl() {
+            return "external".equals(fileType) ? externalUrl : fileUrl;
+        }
+    }
+}
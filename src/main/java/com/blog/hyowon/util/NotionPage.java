@@ -0,0 +1,5 @@
+package com.blog.hyowon.util;
+
+/** 페이지 객체에서 쓰는 것만: id, 제목(title 속성 첫 조각), 마지막 수정 시각 */
+public record NotionPage(String id, String title, String lastEditedTime) {
+}
@@ -0,0 +1,111 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 증분 export용 페이지 매니페스트 (export 폴더의 .manifest.json)
+ * - 이전 실행 결과(previous)를 읽어두고, 이번 실행에서 방문한 페이지만 current 에 기록
+ * - export 가 끝나면 current 로 파일을 통째로 교체 (방문 안 한 페이지는 자연히 빠짐)
+ */
+public class PageManifest {
+
+    public static final String FILE_NAME = ".manifest.json";
+
+    /** child_page 링크 (파일명이 제목 기반이라 제목도 같이 보관) */
+    public record Link(String id, String title) {
+    }
+
+    /** child_database 와 그 row 페이지 id 목록 */
+    public record Db(String id, List<String> rows) {
+    }
+
+    /** images: 참조하는 이미지, assets: 참조하는 공용 CSS/JS (SiteAssets, 도입 전 엔트리면 null) */
+    public record Entry(String id, String title, String file, String lastEditedTime, String exportedAt,
+            String hash, List<Link> children, List<Db> databases, List<String> images, List<String> assets) {
+
+        /**
+         * Notion last_edited_time 은 분 단위라서, 수정된 "그 분" 안에 export 했다면
+         * 같은 분 안의 후속 수정을 놓쳤을 수 있음 → 그런 엔트리는 신뢰하지 않음
+         */
+        boolean settled() {
+            try {
+                return Instant.parse(exportedAt).isAfter(Instant.parse(lastEditedTime).plusSeconds(60));
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    private record Snapshot(List<Entry> pages) {
+    }
+
+    private static final ObjectMapper OM = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private PageManifest(Map<String, Entry> previous) {
+        this.previous = previous;
+    }
+
+    public static PageManifest empty() {
+        return new PageManifest(Map.of());
+    }
+
+    /** 없거나 깨져 있으면 빈 매니페스트 (= 전체 export) */
+    public static PageManifest load(Path outDir) {
+        Path file = outDir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file))
+            return empty();
+        try {
+            Snapshot snap = OM.readValue(file.toFile(), Snapshot.class);
+            Map<String, Entry> map = new HashMap<>();
+            if (snap.pages() != null)
+                for (Entry e : snap.pages())
+                    map.put(e.id(), e);
+            return new PageManifest(map);
+        } catch (Exception e) {
+            System.out.println("[MANIFEST] unreadable, full export: " + e.getMessage());
+            return empty();
+        }
+    }
+
+    public Entry previous(String pageId) {
+        return previous.get(pageId);
+    }
+
+    public Collection<Entry> previousEntries() {
+        return previous.values();
+    }
+
+    public void record(Entry e) {
+        current.put(e.id(), e);
+    }
+
+    public Entry current(String pageId) {
+        return current.get(pageId);
+    }
+
+    public Collection<Entry> currentEntries() {
+        return current.values();
+    }
+
+    /** tmp 에 쓰고 rename → 중간에 죽어도 이전 매니페스트는 온전 */
+    public void save(Path outDir) throws java.io.IOException {
+        List<Entry> pages = new ArrayList<>(current.values());
+        pages.sort(Comparator.comparing(Entry::id));
+        Path tmp = outDir.resolve(FILE_NAME + ".tmp");
+        OM.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new Snapshot(pages));
+        Files.move(tmp, outDir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
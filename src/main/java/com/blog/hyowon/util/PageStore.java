@@ -0,0 +1,172 @@
+package com.blog.hyowon.util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 최신 export 결과를 메모리에 올려두고 서빙 (ExportController)
+ * - 경로 → 본문 / .gz 본문 / Content-Type / ETag / Cache-Control 을 미리 계산
+ * - 작은 파일은 힙, 큰 파일(이미지 등)은 mmap (버전 폴더가 지워져도 매핑은 유효)
+ * - reload() 는 새 스냅샷을 다 만든 뒤 참조만 교체 → 요청은 항상 한 버전만 봄
+ * - 하드링크로 이어받은 파일(inode 같음)은 이전 스냅샷 것을 그대로 재사용
+ * - 사이트가 여럿이면 사이트마다 스냅샷 (경로 첫 구간이 사이트 이름, 예전 단일 설정은 구간 없음)
+ */
+@Component
+@ConditionalOnProperty(name = "notion.export.serving", havingValue = "memory", matchIfMissing = true)
+public class PageStore {
+
+    /** 이보다 크면 mmap */
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    /** gzip 은 .gz 사본이 있을 때만 (없으면 null) */
+    public record Page(ByteBuffer body, ByteBuffer gzip, String contentType, String etag, String cacheControl,
+            Object fileKey) {
+
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    private record Snapshot(Path root, Map<String, Page> pages) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(null, Map.of());
+
+    // 사이트 이름("" = 단일 설정) → export 폴더 / 현재 스냅샷
+    private final Map<String, Path> exportDirs = new LinkedHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public PageStore(NotionConfig notionConfig) {
+        for (NotionConfig.Site site : notionConfig.getSites())
+            exportDirs.put(site.name(), site.path());
+        reload(); // 직전 export 결과가 있으면 바로 서빙
+    }
+
+    /** /notion_export/ 아래 상대 경로(index.html, blog/assets/images/...)로 조회, 없으면 null */
+    public Page get(String path) {
+        Snapshot single = snapshots.get("");
+        if (single != null)
+            return single.pages().get(path);
+        int slash = path.indexOf('/');
+        Snapshot site = slash < 0 ? null : snapshots.get(path.substring(0, slash));
+        return site == null ? null : site.pages().get(path.substring(slash + 1));
+    }
+
+    /** 끝에 / 없이 들어온 사이트 경로 (/notion_export/blog → 상대 링크가 깨지니 리다이렉트) */
+    public boolean isSite(String path) {
+        return !path.isEmpty() && exportDirs.containsKey(path);
+    }
+
+    public int size() {
+        return snapshots.values().stream().mapToInt(s -> s.pages().size()).sum();
+    }
+
+    /** 모든 사이트 다시 읽기 */
+    public boolean reload() {
+        boolean ok = true;
+        for (String site : exportDirs.keySet())
+            ok &= reload(site);
+        return ok;
+    }
+
+    /** 사이트 export 폴더(링크가 가리키는 버전)를 다시 읽어서 스냅샷 교체. 실패하면 이전 스냅샷 유지 */
+    public boolean reload(String site) {
+        long started = System.nanoTime();
+        Path exportDir = exportDirs.get(site);
+        try {
+            if (exportDir == null || !Files.isDirectory(exportDir))
+                return false;
+            Path root = exportDir.toRealPath();
+            Snapshot prev = snapshots.getOrDefault(site, EMPTY);
+
+            Map<String, String> pageHashes = new HashMap<>();
+            for (PageManifest.Entry e : PageManifest.load(root).previousEntries())
+                pageHashes.put(e.file(), e.hash());
+
+            Map<String, Page> pages = new HashMap<>();
+            int reused = 0;
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    String rel = root.relativize(p).toString().replace('\\', '/');
+                    String name = p.getFileName().toString();
+                    if (name.startsWith(".") || name.endsWith(".gz"))
+                        continue;
+                    Path gz = p.resolveSibling(name + ".gz");
+                    Object key = fileKey(p, gz);
+                    Page old = prev.pages().get(rel);
+                    if (old != null && key != null && key.equals(old.fileKey())) {
+                        pages.put(rel, old);
+                        reused++;
+                        continue;
+                    }
+                    ByteBuffer body = read(p);
+                    String tag = ExportHttpCache.hashedTag(name);
+                    if (tag == null)
+                        tag = pageHashes.get(rel);
+                    if (tag == null)
+                        tag = sha256(body.duplicate()).substring(0, 32);
+                    pages.put(rel, new Page(body, Files.isRegularFile(gz) ? read(gz) : null, contentType(name),
+                            "\"" + tag + "\"", ExportHttpCache.cacheControl(name), key));
+                }
+            }
+            snapshots.put(site, new Snapshot(root, Map.copyOf(pages)));
+            System.out.printf("[STORE] %s%s loaded (files=%d, reused=%d, %dms)%n", site.isEmpty() ? "" : site + " ",
+                    root.getFileName(), pages.size(), reused, (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            System.out.println("[STORE] reload failed, keeping previous snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** 본문 + .gz 사본의 inode 조합 (둘 다 그대로면 내용도 그대로) */
+    private static Object fileKey(Path p, Path gz) throws IOException {
+        Object body = Files.readAttributes(p, BasicFileAttributes.class).fileKey();
+        if (body == null)
+            return null;
+        Object gzip = Files.isRegularFile(gz) ? Files.readAttributes(gz, BasicFileAttributes.class).fileKey() : "-";
+        return body + "|" + gzip;
+    }
+
+    private static ByteBuffer read(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p)) {
+            long size = ch.size();
+            if (size > MAP_THRESHOLD)
+                return ch.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+            return ByteBuffer.wrap(Files.readAllBytes(p)).asReadOnlyBuffer();
+        }
+    }
+
+    private static String contentType(String name) {
+        MediaType type = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        if ("text".equals(type.getType()) || name.endsWith(".js") || name.endsWith(".json"))
+            return type + ";charset=UTF-8";
+        return type.toString();
+    }
+
+    private static String sha256(ByteBuffer buf) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(buf);
+            return HexFormat.of().formatHex(md.digest());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.blog.hyowon.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * export 1회 동안만 쓰는 요청 캐시
+ * - 같은 키는 동시에 여러 스레드가 요청해도 실제 호출은 한 번 (나머지는 결과 대기)
+ * - 실패한 호출(Error 포함)은 캐시에 남기지 않음 (기다리던 쪽도 같은 예외, 다음 요청은 다시 시도)
+ * - hits = 캐시 덕분에 아낀 API 호출 수
+ */
+public class RequestMemo<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+
+    public V get(K key, Loader<K, V> loader) throws Exception {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = entries.putIfAbsent(key, mine);
+        if (existing != null) {
+            hits.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error err)
+                    throw err;
+                throw (e.getCause() instanceof Exception ex) ? ex : e;
+            }
+        }
+        try {
+            V v = loader.load(key);
+            mine.complete(v);
+            return v;
+        } catch (Throwable e) {
+            // Error(OOM, 테스트 스텁의 AssertionError 등)도: 안 끝내면 같은 키를 기다리는 쪽이 영원히 대기
+            entries.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** 다른 응답(/search, DB query)에 딸려온 값을 미리 채워둠. 이미 있으면 유지 */
+    public void prime(K key, V value) {
+        entries.putIfAbsent(key, CompletableFuture.completedFuture(value));
+    }
+
+    public V peek(K key) {
+        CompletableFuture<V> f = entries.get(key);
+        return (f != null && f.isDone() && !f.isCompletedExceptionally()) ? f.join() : null;
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public void clear() {
+        entries.clear();
+        hits.set(0);
+    }
+}
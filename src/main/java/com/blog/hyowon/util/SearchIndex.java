@@ -0,0 +1,381 @@
+package com.blog.hyowon.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * export 할 때 만드는 전문 검색 색인 (.search.idx) + 조회
+ * - 토큰: 한글/한자/가나는 글자 2-gram (형태소 분석 없이도 조사 붙은 말이 걸림), 영문/숫자는 단어 단위
+ * - 제목 토큰은 TITLE_WEIGHT 배로 본문과 같이 셈
+ * - 파일: 문서 표 + 정렬된 용어 사전 + 용어별 postings(문서 번호 차이, tf 를 varint 로)
+ * - 읽을 땐 mmap: 사전만 힙에 올리고 postings 는 매핑된 버퍼에서 바로 디코드
+ * - 순위는 BM25
+ * - 증분 export: 이번에 렌더한 페이지만 새로 토큰화, 건너뛴 페이지는 이전 색인의 빈도를 그대로 씀
+ */
+public final class SearchIndex {
+
+    public static final String FILE_NAME = ".search.idx";
+
+    private static final int MAGIC = 0x48534931; // "HSI1"
+    private static final int TITLE_WEIGHT = 3;
+    private static final int EXCERPT_CHARS = 160;
+    private static final int MAX_WORD = 40; // 이보다 긴 영문/숫자 덩어리(URL, 해시 등)는 색인 안 함
+    private static final double K1 = 1.2, B = 0.75;
+
+    /** length: 토큰 수 (제목 가중치 포함), BM25 길이 보정용 */
+    public record Doc(String id, String file, String title, String excerpt, int length) {
+    }
+
+    public record Hit(String file, String title, String excerpt, double score) {
+    }
+
+    private static final SearchIndex EMPTY = new SearchIndex(new Doc[0], new String[0], new int[0], new int[0],
+            ByteBuffer.allocate(0));
+
+    private final Doc[] docs;
+    private final Map<String, Integer> docIndex = new HashMap<>();
+    private final String[] terms; // 정렬됨
+    private final int[] df;
+    private final int[] offsets; // 용어별 postings 시작 위치 (postings 버퍼 기준)
+    private final ByteBuffer postings;
+    private final double avgLength;
+
+    private SearchIndex(Doc[] docs, String[] terms, int[] df, int[] offsets, ByteBuffer postings) {
+        this.docs = docs;
+        this.terms = terms;
+        this.df = df;
+        this.offsets = offsets;
+        this.postings = postings;
+        long total = 0;
+        for (int i = 0; i < docs.length; i++) {
+            docIndex.put(docs[i].id(), i);
+            total += docs[i].length();
+        }
+        this.avgLength = docs.length == 0 ? 1 : Math.max(1, total / (double) docs.length);
+    }
+
+    public static SearchIndex empty() {
+        return EMPTY;
+    }
+
+    /** dir/.search.idx 를 mmap 으로 열기 (없거나 깨졌으면 빈 색인) */
+    public static SearchIndex open(Path dir) {
+        Path file = dir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file))
+            return EMPTY;
+        try (FileChannel ch = FileChannel.open(file)) {
+            return read(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        } catch (Exception e) {
+            System.out.println("[SEARCH] index unreadable, ignoring: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    static SearchIndex read(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 12 || buf.getInt() != MAGIC)
+            throw new IOException("not a search index");
+        Doc[] docs = new Doc[buf.getInt()];
+        String[] terms = new String[buf.getInt()];
+        for (int i = 0; i < docs.length; i++)
+            docs[i] = new Doc(readString(buf), readString(buf), readString(buf), readString(buf), readVarint(buf));
+        int[] df = new int[terms.length], offsets = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = readString(buf);
+            df[i] = readVarint(buf);
+            offsets[i] = readVarint(buf);
+        }
+        int length = buf.getInt();
+        return new SearchIndex(docs, terms, df, offsets, buf.slice(buf.position(), length));
+    }
+
+    public int size() {
+        return docs.length;
+    }
+
+    public int terms() {
+        return terms.length;
+    }
+
+    public boolean contains(String pageId) {
+        return docIndex.containsKey(pageId);
+    }
+
+    /* ===================== 조회 ===================== */
+
+    /** BM25 상위 limit 개 (검색어가 비었거나 걸리는 게 없으면 빈 목록) */
+    public List<Hit> search(String query, int limit) {
+        if (docs.length == 0 || limit <= 0 || query == null)
+            return List.of();
+        float[] scores = new float[docs.length];
+        boolean any = false;
+        for (String token : new LinkedHashSet<>(tokens(query))) {
+            int at = Arrays.binarySearch(terms, token);
+            if (token.codePointCount(0, token.length()) == 1 && isCjk(token.codePointAt(0))) {
+                // 한 글자 검색어: 그 글자로 시작하는 2-gram 전부 (사전이 정렬돼 있어서 연속 구간)
+                for (int t = at >= 0 ? at : -at - 1; t < terms.length && terms[t].startsWith(token); t++)
+                    any |= accumulate(t, scores);
+            } else if (at >= 0) {
+                any |= accumulate(at, scores);
+            }
+        }
+        if (!any)
+            return List.of();
+
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(d -> scores[d]));
+        for (int d = 0; d < scores.length; d++) {
+            if (scores[d] <= 0)
+                continue;
+            if (top.size() < limit) {
+                top.add(d);
+            } else if (scores[d] > scores[top.peek()]) {
+                top.poll();
+                top.add(d);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Doc doc = docs[top.peek()];
+            hits.add(new Hit(doc.file(), doc.title(), doc.excerpt(), scores[top.poll()]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private boolean accumulate(int term, float[] scores) {
+        double idf = Math.log(1 + (docs.length - df[term] + 0.5) / (df[term] + 0.5));
+        ByteBuffer p = postings.duplicate().position(offsets[term]);
+        int doc = 0;
+        for (int k = 0; k < df[term]; k++) {
+            doc += readVarint(p);
+            int tf = readVarint(p);
+            double norm = K1 * (1 - B + B * docs[doc].length() / avgLength);
+            scores[doc] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+        }
+        return df[term] > 0;
+    }
+
+    /** 주어진 문서들의 용어 → tf 복원 (postings 를 한 번 훑음, 증분 export 에서 건너뛴 페이지용) */
+    private Map<String, Map<String, Integer>> frequencies(Set<String> ids) {
+        Map<Integer, Map<String, Integer>> byDoc = new HashMap<>();
+        for (String id : ids) {
+            Integer d = docIndex.get(id);
+            if (d != null)
+                byDoc.put(d, new HashMap<>());
+        }
+        if (byDoc.isEmpty())
+            return Map.of();
+        for (int t = 0; t < terms.length; t++) {
+            ByteBuffer p = postings.duplicate().position(offsets[t]);
+            int doc = 0;
+            for (int k = 0; k < df[t]; k++) {
+                doc += readVarint(p);
+                int tf = readVarint(p);
+                Map<String, Integer> m = byDoc.get(doc);
+                if (m != null)
+                    m.put(terms[t], tf);
+            }
+        }
+        Map<String, Map<String, Integer>> out = new HashMap<>();
+        byDoc.forEach((d, m) -> out.put(docs[d].id(), m));
+        return out;
+    }
+
+    /* ===================== 토큰화 ===================== */
+
+    /** NFKC + 소문자 후, 한중일 글자 덩어리는 2-gram (한 글자면 그대로), 영문/숫자는 단어 */
+    static List<String> tokens(CharSequence text) {
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        int i = 0, n = s.length();
+        while (i < n) {
+            int cp = s.codePointAt(i);
+            int start = i;
+            if (isCjk(cp)) {
+                while (i < n && isCjk(cp = s.codePointAt(i)))
+                    i += Character.charCount(cp);
+                grams(s.substring(start, i), out);
+            } else if (Character.isLetterOrDigit(cp)) {
+                while (i < n && Character.isLetterOrDigit(cp = s.codePointAt(i)) && !isCjk(cp))
+                    i += Character.charCount(cp);
+                int len = i - start;
+                if ((len > 1 || Character.isDigit(s.charAt(start))) && len <= MAX_WORD)
+                    out.add(s.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return out;
+    }
+
+    private static void grams(String run, List<String> out) {
+        int[] cps = run.codePoints().toArray();
+        if (cps.length == 1) {
+            out.add(run);
+            return;
+        }
+        for (int j = 0; j + 1 < cps.length; j++)
+            out.add(new String(cps, j, 2));
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HANGUL || script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    /* ===================== 생성 ===================== */
+
+    /** export 중 페이지별 토큰 빈도 모으기 → build() 로 파일 내용 생성 */
+    public static final class Builder {
+
+        private record Page(String file, String title, String excerpt, Map<String, Integer> tf, int length) {
+        }
+
+        private final Map<String, Page> pages = new ConcurrentHashMap<>();
+
+        /** 렌더한 페이지 하나 (병렬 크롤링 중 여러 스레드에서 불림) */
+        public void add(String id, String file, String title, CharSequence body) {
+            Map<String, Integer> tf = new HashMap<>();
+            int length = 0;
+            for (String t : tokens(title)) {
+                tf.merge(t, TITLE_WEIGHT, Integer::sum);
+                length += TITLE_WEIGHT;
+            }
+            for (String t : tokens(body)) {
+                tf.merge(t, 1, Integer::sum);
+                length++;
+            }
+            pages.put(id, new Page(file, title, excerpt(body), tf, length));
+        }
+
+        /**
+         * 이번 export 결과 페이지들로 색인 파일 내용 생성 (페이지 id 순이라 내용이 같으면 바이트도 같음)
+         * 이번에 렌더하지 않은 페이지는 previous 에서 빈도를 복원, 거기에도 없으면 빠짐
+         */
+        public byte[] build(Collection<PageManifest.Entry> entries, SearchIndex previous) {
+            List<String> ids = entries.stream().map(PageManifest.Entry::id).sorted().toList();
+            Set<String> reuse = new HashSet<>();
+            for (String id : ids)
+                if (!pages.containsKey(id))
+                    reuse.add(id);
+            Map<String, Map<String, Integer>> reused = previous.frequencies(reuse);
+
+            List<Doc> docs = new ArrayList<>();
+            TreeMap<String, Postings> inverted = new TreeMap<>();
+            for (String id : ids) {
+                Page page = pages.get(id);
+                Map<String, Integer> tf;
+                if (page != null) {
+                    docs.add(new Doc(id, page.file(), page.title(), page.excerpt(), page.length()));
+                    tf = page.tf();
+                } else if (reused.containsKey(id)) {
+                    docs.add(previous.docs[previous.docIndex.get(id)]);
+                    tf = reused.get(id);
+                } else {
+                    continue;
+                }
+                int d = docs.size() - 1;
+                tf.forEach((term, n) -> inverted.computeIfAbsent(term, k -> new Postings()).add(d, n));
+            }
+
+            Sink out = new Sink();
+            out.writeInt(MAGIC);
+            out.writeInt(docs.size());
+            out.writeInt(inverted.size());
+            for (Doc doc : docs) {
+                out.writeString(doc.id());
+                out.writeString(doc.file());
+                out.writeString(doc.title());
+                out.writeString(doc.excerpt());
+                out.writeVarint(doc.length());
+            }
+            int offset = 0;
+            for (Map.Entry<String, Postings> e : inverted.entrySet()) {
+                out.writeString(e.getKey());
+                out.writeVarint(e.getValue().df);
+                out.writeVarint(offset);
+                offset += e.getValue().bytes.size();
+            }
+            out.writeInt(offset);
+            for (Postings p : inverted.values())
+                out.append(p.bytes);
+            return out.toByteArray();
+        }
+    }
+
+    /** 문서 번호는 오름차순으로만 들어옴 → 직전 번호와의 차이만 기록 */
+    private static final class Postings {
+        final Sink bytes = new Sink();
+        int df, last;
+
+        void add(int doc, int tf) {
+            bytes.writeVarint(doc - last);
+            bytes.writeVarint(tf);
+            last = doc;
+            df++;
+        }
+    }
+
+    private static String excerpt(CharSequence body) {
+        String s = body.toString().replaceAll("\\s+", " ").strip();
+        if (s.length() <= EXCERPT_CHARS)
+            return s;
+        int end = Character.isHighSurrogate(s.charAt(EXCERPT_CHARS - 1)) ? EXCERPT_CHARS - 1 : EXCERPT_CHARS;
+        return s.substring(0, end) + "…";
+    }
+
+    /* ===================== 바이너리 ===================== */
+
+    private static final class Sink extends ByteArrayOutputStream {
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+
+        void writeVarint(int v) {
+            while ((v & ~0x7f) != 0) {
+                write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void append(Sink other) {
+            write(other.buf, 0, other.count);
+        }
+
+        void writeString(String s) {
+            byte[] b = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(b.length);
+            write(b, 0, b.length);
+        }
+    }
+
+    private static int readVarint(ByteBuffer buf) {
+        int v = 0, shift = 0;
+        byte b;
+        do {
+            b = buf.get();
+            v |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return v;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] b = new byte[readVarint(buf)];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,193 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 여러 사이트 export 가 같이 쓰는 이미지 저장소 (<dir>/<sha256>.<ext>, 사이트 폴더 파일과 하드링크)
+ * - 같은 URL 은 사이트가 여럿이어도 한 번만 받음 (다른 사이트가 받는 중이면 그 결과를 기다림)
+ * - 같은 내용은 디스크에 한 벌: 사이트의 assets/images/<sha256>.<ext> 와 여기 파일이 같은 inode
+ * - 어느 사이트 버전 폴더도 링크하지 않는 파일(링크 수 1)은 sweep() 에서 삭제
+ * - 여러 노드(JVM)가 같은 볼륨을 쓰면 sweep / share / adopt 는 <dir>/.lock 파일 잠금 안에서
+ *   (한 노드가 링크 수 1 을 보고 지우기 전에 다른 노드가 그 파일을 링크하는 일 없음, 인덱스는 sweep 때 디스크 것과 합침)
+ * 사이트가 하나면 안 씀 (ImageStore 혼자로 충분)
+ */
+public class SharedImages {
+
+    private static final String INDEX_FILE = ".index.json";
+    private static final String LOCK_FILE = ".lock";
+    private static final ObjectMapper OM = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path dir;
+    // ImageStore.indexKey → 받아 둔 이미지, 받는 중인 URL → 끝나면 항목 (실패면 null)
+    private final Map<String, ImageStore.IndexEntry> index = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<ImageStore.IndexEntry>> inflight = new ConcurrentHashMap<>();
+
+    public SharedImages(Path dir) throws IOException {
+        this.dir = dir.toAbsolutePath().normalize();
+        Files.createDirectories(this.dir);
+        for (ImageStore.IndexEntry e : readIndex())
+            index.put(e.key(), e);
+    }
+
+    /** 디스크 인덱스 (없거나 못 읽으면 빈 목록) */
+    private List<ImageStore.IndexEntry> readIndex() {
+        Path file = dir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(file))
+            return List.of();
+        try {
+            return OM.readValue(file.toFile(), new TypeReference<List<ImageStore.IndexEntry>>() {
+            });
+        } catch (Exception e) {
+            System.out.println("[SHARED] index unreadable, starting fresh: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /** 다른 노드의 sweep / share 와 겹치지 않게 폴더 잠금 */
+    private <T> T locked(FileLocks.Action<T> action) throws IOException {
+        return FileLocks.withLock(dir.resolve(LOCK_FILE), action);
+    }
+
+    /** 다른 사이트가 이미 받은 URL 이면 imgDir 로 링크하고 항목 반환, 없으면 null */
+    synchronized ImageStore.IndexEntry adopt(String key, Path imgDir) {
+        ImageStore.IndexEntry e = index.get(key);
+        if (e == null)
+            return null;
+        try {
+            return locked(() -> {
+                for (String name : files(e))
+                    link(dir.resolve(name), imgDir.resolve(name));
+                return e;
+            });
+        } catch (IOException ex) {
+            index.remove(key); // 파일이 지워졌으면 새로 받게
+            return null;
+        }
+    }
+
+    /**
+     * 이 URL 을 받겠다고 표시. 다른 사이트가 먼저 받는 중이면 그 결과 future 를 돌려줌 (mine 은 안 씀)
+     * 맡았으면 null → 끝나면 done() 으로 알려야 함
+     */
+    CompletableFuture<ImageStore.IndexEntry> claim(String key, CompletableFuture<ImageStore.IndexEntry> mine) {
+        return inflight.putIfAbsent(key, mine);
+    }
+
+    /** claim 한 다운로드 결과 공유 (entry 가 null 이면 실패, 기다리던 쪽은 각자 원래 URL 로) */
+    void done(String key, ImageStore.IndexEntry entry, Path imgDir) {
+        try {
+            if (entry != null)
+                share(entry, imgDir);
+        } finally {
+            CompletableFuture<ImageStore.IndexEntry> f = inflight.remove(key);
+            if (f != null)
+                f.complete(entry != null && index.containsKey(key) ? entry : null);
+        }
+    }
+
+    /**
+     * 사이트가 새로 받은(또는 이미 갖고 있던) 파일을 저장소와 합침
+     * 같은 이름이 이미 있으면 사이트 쪽 파일을 그 inode 로 바꾸고, 없으면 사이트 파일을 링크해 둠
+     */
+    synchronized void share(ImageStore.IndexEntry entry, Path imgDir) {
+        try {
+            locked(() -> {
+                for (String name : files(entry)) {
+                    Path common = dir.resolve(name), site = imgDir.resolve(name);
+                    if (!Files.isRegularFile(site))
+                        continue;
+                    if (!Files.exists(common))
+                        Files.createLink(common, site);
+                    else if (!Files.isSameFile(common, site))
+                        replaceWithLink(common, site);
+                }
+                return null;
+            });
+            index.put(entry.key(), entry);
+        } catch (IOException | UnsupportedOperationException e) {
+            // 하드링크가 안 되는 파일 시스템이면 사이트마다 따로 (공유만 포기)
+            System.out.println("[SHARED] link fail → " + entry.file() + " : " + e.getMessage());
+        }
+    }
+
+    /**
+     * 어느 사이트 폴더에서도 링크하지 않는 파일 삭제 + 인덱스 정리 (사이트 export 가 발행한 뒤마다)
+     * @return 남은 파일 수
+     */
+    public synchronized int sweep() throws IOException {
+        return locked(() -> {
+            int kept = 0;
+            try (var stream = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                    if (p.getFileName().toString().startsWith("."))
+                        continue;
+                    if (links(p) > 1) {
+                        kept++;
+                    } else {
+                        Files.delete(p);
+                        System.out.println("[SHARED] removed unused → " + p.getFileName());
+                    }
+                }
+            }
+            // 다른 노드가 공유한 항목도 이어받음 (각자 자기 것만 쓰면 마지막에 쓴 노드 것만 남음)
+            for (ImageStore.IndexEntry e : readIndex())
+                index.putIfAbsent(e.key(), e);
+            index.values().removeIf(e -> !Files.isRegularFile(dir.resolve(e.file())));
+
+            List<ImageStore.IndexEntry> entries = new ArrayList<>(index.values());
+            entries.sort(Comparator.comparing(ImageStore.IndexEntry::key));
+            Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+            OM.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), entries);
+            Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return kept;
+        });
+    }
+
+    /** 원본 + 폭 제한 사본 */
+    private static List<String> files(ImageStore.IndexEntry e) {
+        List<String> names = new ArrayList<>();
+        names.add(e.file());
+        if (e.variants() != null)
+            for (int w : e.variants())
+                names.add(ImageVariants.variantName(e.file(), w));
+        return names;
+    }
+
+    private static void link(Path common, Path site) throws IOException {
+        if (Files.isRegularFile(site) && Files.isSameFile(common, site))
+            return;
+        if (Files.exists(site))
+            replaceWithLink(common, site);
+        else
+            Files.createLink(site, common);
+    }
+
+    /** 임시 이름으로 링크 만든 뒤 rename (사이트 파일이 잠깐이라도 없는 순간이 없게) */
+    private static void replaceWithLink(Path common, Path site) throws IOException {
+        Path tmp = site.resolveSibling("." + site.getFileName() + ".link-" + Thread.currentThread().threadId());
+        Files.deleteIfExists(tmp);
+        Files.createLink(tmp, common);
+        Files.move(tmp, site, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** 하드링크 수 (모르는 파일 시스템이면 지우지 않게 크게) */
+    private static int links(Path p) {
+        try {
+            return ((Number) Files.getAttribute(p, "unix:nlink")).intValue();
+        } catch (Exception e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
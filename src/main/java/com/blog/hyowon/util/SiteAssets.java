@@ -0,0 +1,226 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * export 페이지들이 같이 쓰는 CSS/JS (assets/css/<sha256>.css, assets/js/<sha256>.js)
+ * - 파일명이 내용 해시라 ExportHttpCache 가 immutable 로 내보냄 → 페이지마다 같은 바이트를 다시 받지 않음
+ * - Prism 은 CDN 대신 webjar(org.webjars.npm:prismjs)에서 꺼내 직접 서빙
+ *     core + line-numbers 플러그인은 한 파일, 언어는 컴포넌트마다 한 파일
+ *     페이지는 자기 코드 블록 언어(+ 의존 언어)만 불러옴 → 보는 시점에 autoloader 가 받으러 가는 요청 없음
+ *     CodeHighlighter 가 export 때 칠하지 못한 언어가 있는 페이지만 Prism 을 불러옴
+ * - 어떤 페이지도 안 쓰는 파일은 export 끝에 삭제 (건너뛴 페이지가 쓰는 것 포함)
+ */
+public final class SiteAssets {
+
+    public static final String CSS_DIR = "assets/css/", JS_DIR = "assets/js/";
+
+    private static final String SITE_CSS = "export/site.css";
+    private static final String PRISM_POM = "META-INF/maven/org.webjars.npm/prismjs/pom.properties";
+
+    /** Prism 언어 컴포넌트 (components.json 의 require / optional / modify) */
+    private record Component(String id, List<String> require, List<String> optional, List<String> modify) {
+    }
+
+    /** 앱에서 한 번만 읽음 (webjar 는 실행 중에 안 바뀜) */
+    private static final class Holder {
+        static final SiteAssets INSTANCE = load();
+    }
+
+    private final String stylesheet;
+    private final String core;
+    private final Map<String, Component> components; // id, 별칭 → 컴포넌트
+    private final Map<String, String> scriptOf; // 컴포넌트 id → href
+    private final Map<String, byte[]> bodies; // href → 내용
+
+    private SiteAssets(String stylesheet, String core, Map<String, Component> components,
+            Map<String, String> scriptOf, Map<String, byte[]> bodies) {
+        this.stylesheet = stylesheet;
+        this.core = core;
+        this.components = components;
+        this.scriptOf = scriptOf;
+        this.bodies = bodies;
+    }
+
+    public static SiteAssets get() {
+        return Holder.INSTANCE;
+    }
+
+    /** 모든 페이지가 쓰는 스타일시트 href */
+    public String stylesheet() {
+        return stylesheet;
+    }
+
+    /**
+     * 코드 블록 언어들(prismLang 결과) → 불러올 스크립트 href (core 먼저, 언어는 의존 순서대로)
+     * 코드 블록이 없으면 빈 목록, 모르는 언어("none" 등)는 core 만
+     */
+    public List<String> scripts(Collection<String> languages) {
+        if (languages.isEmpty())
+            return List.of();
+        Set<String> wanted = new LinkedHashSet<>();
+        for (String lang : new TreeSet<>(languages))
+            require(components.get(lang), wanted);
+        List<String> out = new ArrayList<>();
+        out.add(core);
+        Set<String> done = new HashSet<>();
+        for (String id : wanted)
+            order(id, wanted, done, out);
+        return out;
+    }
+
+    /** 이번 빌드에서도 같은 이름으로 만들어지는 href 들인지 (webjar 나 site.css 가 바뀌었으면 false) */
+    public boolean current(Collection<String> hrefs) {
+        return bodies.keySet().containsAll(hrefs);
+    }
+
+    /**
+     * 페이지들이 참조하는 파일 기록 (내용 같으면 publisher 가 건너뜀) + 나머지 삭제
+     * @return 남은 파일 수
+     */
+    public int publish(ExportPublisher publisher, Collection<String> referenced) throws IOException {
+        Set<String> refs = new TreeSet<>(referenced);
+        for (String href : refs) {
+            byte[] body = bodies.get(href);
+            if (body != null)
+                publisher.write(href, body);
+        }
+        for (String dir : List.of(CSS_DIR, JS_DIR)) {
+            Path root = publisher.staging().resolve(dir);
+            if (!Files.isDirectory(root))
+                continue;
+            try (var stream = Files.list(root)) {
+                for (Path p : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                    String name = p.getFileName().toString();
+                    String href = dir + (name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name);
+                    if (!refs.contains(href)) {
+                        Files.delete(p);
+                        System.out.println("[ASSET] removed unused → " + dir + name);
+                    }
+                }
+            }
+        }
+        return (int) refs.stream().filter(bodies::containsKey).count();
+    }
+
+    /* ===================== 의존 관계 ===================== */
+
+    private void require(Component c, Set<String> wanted) {
+        if (c == null || wanted.contains(c.id()))
+            return;
+        for (String dep : c.require())
+            require(components.get(dep), wanted);
+        wanted.add(c.id());
+    }
+
+    /** require 는 물론, 같이 불러오는 optional / modify 대상도 먼저 (css 가 markup 을 고치는 식) */
+    private void order(String id, Set<String> wanted, Set<String> done, List<String> out) {
+        if (!done.add(id))
+            return;
+        Component c = components.get(id);
+        for (List<String> deps : List.of(c.require(), c.optional(), c.modify()))
+            for (String dep : deps)
+                if (wanted.contains(dep))
+                    order(dep, wanted, done, out);
+        out.add(scriptOf.get(id));
+    }
+
+    /* ===================== 로딩 ===================== */
+
+    private static SiteAssets load() {
+        try {
+            Properties pom = new Properties();
+            try (InputStream in = resource(PRISM_POM)) {
+                pom.load(in);
+            }
+            String prism = "META-INF/resources/webjars/prismjs/" + pom.getProperty("version") + "/";
+            Map<String, byte[]> bodies = new HashMap<>();
+
+            // 사이트 스타일 뒤에 Prism 테마 (예전 <style> 다음 <link> 순서 그대로)
+            ByteArrayOutputStream css = new ByteArrayOutputStream();
+            for (String path : List.of(SITE_CSS, prism + "themes/prism.min.css",
+                    prism + "plugins/line-numbers/prism-line-numbers.min.css")) {
+                css.write(read(path));
+                css.write('\n');
+            }
+            String stylesheet = put(bodies, CSS_DIR, ".css", css.toByteArray());
+
+            ByteArrayOutputStream js = new ByteArrayOutputStream();
+            for (String path : List.of(prism + "components/prism-core.min.js",
+                    prism + "plugins/line-numbers/prism-line-numbers.min.js")) {
+                js.write(read(path));
+                js.write('\n');
+            }
+            String core = put(bodies, JS_DIR, ".js", js.toByteArray());
+
+            Map<String, Component> components = new HashMap<>();
+            Map<String, String> scriptOf = new HashMap<>();
+            JsonNode languages = new ObjectMapper().readTree(read(prism + "components.json")).path("languages");
+            for (Map.Entry<String, JsonNode> e : languages.properties()) {
+                String id = e.getKey();
+                if ("meta".equals(id))
+                    continue;
+                byte[] body = read(prism + "components/prism-" + id + ".min.js");
+                JsonNode def = e.getValue();
+                Component c = new Component(id, list(def.get("require")), list(def.get("optional")),
+                        list(def.get("modify")));
+                scriptOf.put(id, put(bodies, JS_DIR, ".js", body));
+                components.put(id, c);
+                for (String alias : list(def.get("alias")))
+                    components.putIfAbsent(alias, c);
+            }
+            return new SiteAssets(stylesheet, core, Map.copyOf(components), Map.copyOf(scriptOf),
+                    Map.copyOf(bodies));
+        } catch (IOException e) {
+            throw new UncheckedIOException("site assets unreadable", e);
+        }
+    }
+
+    private static String put(Map<String, byte[]> bodies, String dir, String ext, byte[] body) {
+        String href = dir + sha256(body) + ext;
+        bodies.put(href, body);
+        return href;
+    }
+
+    /** "a" 또는 ["a","b"] */
+    private static List<String> list(JsonNode node) {
+        if (node == null || node.isNull())
+            return List.of();
+        if (!node.isArray())
+            return List.of(node.asText());
+        List<String> out = new ArrayList<>();
+        node.forEach(n -> out.add(n.asText()));
+        return List.copyOf(out);
+    }
+
+    private static byte[] read(String path) throws IOException {
+        try (InputStream in = resource(path)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream resource(String path) throws IOException {
+        InputStream in = SiteAssets.class.getClassLoader().getResourceAsStream(path);
+        if (in == null)
+            throw new IOException("missing classpath resource: " + path);
+        return in;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.blog.hyowon.util;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 발행된 export 의 검색 색인을 들고 있다가 조회 (SearchController)
+ * - 색인은 mmap 이라 힙에는 용어 사전만 올라감
+ * - export 가 끝나면 reload() 로 새 버전 색인으로 교체 (조회 중인 요청은 이전 색인을 끝까지 씀)
+ * - 사이트마다 색인 따로 (사이트 이름 "" = 단일 설정)
+ */
+@Component
+public class SiteSearch {
+
+    private final Map<String, Path> exportDirs = new LinkedHashMap<>();
+    private final Map<String, SearchIndex> indexes = new ConcurrentHashMap<>();
+
+    public SiteSearch(NotionConfig notionConfig) {
+        for (NotionConfig.Site site : notionConfig.getSites())
+            exportDirs.put(site.name(), site.path());
+        for (String site : exportDirs.keySet())
+            reload(site); // 직전 export 결과가 있으면 바로 검색 가능
+    }
+
+    /** site 가 null 이면 첫 번째 사이트, 모르는 사이트면 빈 결과 */
+    public List<SearchIndex.Hit> search(String site, String query, int limit) {
+        String name = site != null ? site : exportDirs.keySet().iterator().next();
+        SearchIndex index = indexes.get(name);
+        return index == null ? List.of() : index.search(query, limit);
+    }
+
+    /** 검색 결과 url 앞부분 (/notion_export/ 아래) */
+    public String urlPrefix(String site) {
+        String name = site != null ? site : exportDirs.keySet().iterator().next();
+        return name.isEmpty() ? "" : name + "/";
+    }
+
+    public void reload(String site) {
+        Path exportDir = exportDirs.get(site);
+        if (exportDir == null)
+            return;
+        long started = System.nanoTime();
+        SearchIndex next = SearchIndex.open(exportDir); // exportDir 은 현재 버전을 가리키는 링크
+        indexes.put(site, next);
+        System.out.printf("[SEARCH] %sindex loaded (docs=%d, terms=%d, %dms)%n", site.isEmpty() ? "" : site + " ",
+                next.size(), next.terms(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,54 @@
+package com.blog.hyowon.util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * notion.export.serving=static 일 때: /notion_export/** 를 export 폴더(파일 시스템)에서 바로 서빙
+ * (기본값 memory 는 PageStore + ExportController. 부하 비교용으로 남겨둠)
+ * - Accept-Encoding: gzip 이면 exporter 가 만들어 둔 .gz 사본을 그대로 보냄 (요청마다 압축 CPU 없음)
+ * - 링크 교체로 내용이 바뀌니 리소스 체인 캐시는 끔 (파일 존재 여부만 확인)
+ * - Cache-Control / ETag 는 ExportHttpCache (해시 파일명은 immutable, html 은 매니페스트 해시로 304)
+ * - 사이트가 여럿이면 /notion_export/<사이트>/** 마다 따로
+ */
+@Configuration
+@ConditionalOnProperty(name = "notion.export.serving", havingValue = "static")
+public class WebConfig implements WebMvcConfigurer {
+
+    private final NotionConfig notionConfig;
+    private final Map<String, ExportHttpCache> exportCaches = new LinkedHashMap<>();
+
+    public WebConfig(NotionConfig notionConfig) {
+        this.notionConfig = notionConfig;
+        for (NotionConfig.Site site : notionConfig.getSites())
+            exportCaches.put(site.name(), new ExportHttpCache(site.path()));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        for (NotionConfig.Site site : notionConfig.getSites())
+            registry.addInterceptor(exportCaches.get(site.name()))
+                    .addPathPatterns("/notion_export/" + site.urlPrefix() + "**");
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (NotionConfig.Site site : notionConfig.getSites()) {
+            String location = site.path().toAbsolutePath().toUri().toString();
+            registry.addResourceHandler("/notion_export/" + site.urlPrefix() + "**")
+                    .addResourceLocations(location.endsWith("/") ? location : location + "/")
+                    .setEtagGenerator(exportCaches.get(site.name())::etag)
+                    .resourceChain(false)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new PathResourceResolver());
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package com.blog.hyowon;
 
+import com.blog.hyowon.util.StubNotionServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
+@DirtiesContext
 class HyowonBlogApplicationTests {
 
+	static StubNotionServer notion;
+
+	@DynamicPropertySource
+	static void notionProperties(DynamicPropertyRegistry registry) throws Exception {
+		notion = StubNotionServer.start()
+				.page("24bf466a000000000000000000000001", "Home", "2024-01-01T00:00:00.000Z")
+				.paragraph("24bf466a000000000000000000000001", "hello");
+		notion.register(registry, "24bf466a000000000000000000000001");
+	}
+
+	@AfterAll
+	static void stop() {
+		notion.close();
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,150 @@
+package com.blog.hyowon.controller;
+
+import com.blog.hyowon.util.NotionExportScheduler;
+import com.blog.hyowon.util.PageStore;
+import com.blog.hyowon.util.StubNotionServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+
+/** PageStore 스냅샷 서빙: ETag / If-None-Match, Accept-Encoding 협상 */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class ExportControllerTests {
+
+    static final String ROOT = "24bf466a000000000000000000000001";
+
+    static StubNotionServer notion;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    PageStore pageStore;
+
+    @Autowired
+    NotionExportScheduler scheduler;
+
+    @DynamicPropertySource
+    static void notionProperties(DynamicPropertyRegistry registry) throws Exception {
+        notion = StubNotionServer.start().page(ROOT, "Home", "2024-01-01T00:00:00.000Z")
+                .paragraph(ROOT, "압축될 만큼 긴 본문 ".repeat(50));
+        notion.register(registry, ROOT);
+    }
+
+    @AfterAll
+    static void stop() {
+        notion.close();
+    }
+
+    @BeforeEach
+    void awaitStartupExport() throws Exception {
+        StubNotionServer.awaitIdle(scheduler, () -> pageStore.get("index.html") != null);
+        assertNotNull(pageStore.get("index.html"));
+    }
+
+    @Test
+    void ifNoneMatchReturnsNotModified() throws Exception {
+        MockHttpServletResponse first = mvc.perform(get("/notion_export/")).andReturn().getResponse();
+        assertEquals(200, first.getStatus());
+        String etag = first.getHeader("ETag");
+        assertNotNull(etag);
+        assertNotNull(first.getHeader("Cache-Control"));
+        assertTrue(first.getContentAsString().contains("압축될 만큼"));
+
+        // 같은 태그 (약한 태그 / 목록 / * 포함) → 304, 본문 없이 ETag 는 다시
+        for (String inm : new String[] { etag, "W/" + etag, "\"other\", " + etag, "*" }) {
+            MockHttpServletResponse res = mvc.perform(get("/notion_export/index.html").header("If-None-Match", inm))
+                    .andReturn().getResponse();
+            assertEquals(304, res.getStatus(), inm);
+            assertEquals(etag, res.getHeader("ETag"));
+            assertEquals(0, res.getContentAsByteArray().length);
+        }
+
+        MockHttpServletResponse stale = mvc.perform(get("/notion_export/index.html").header("If-None-Match", "\"old\""))
+                .andReturn().getResponse();
+        assertEquals(200, stale.getStatus());
+        assertArrayEquals(first.getContentAsByteArray(), stale.getContentAsByteArray());
+
+        MockHttpServletResponse headOnly = mvc.perform(head("/notion_export/index.html").header("If-None-Match", etag))
+                .andReturn().getResponse();
+        assertEquals(304, headOnly.getStatus());
+    }
+
+    @Test
+    void gzipIsSentOnlyWhenAccepted() throws Exception {
+        MockHttpServletResponse plain = mvc.perform(get("/notion_export/")).andReturn().getResponse();
+        assertNull(plain.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", plain.getHeader("Vary"));
+
+        MockHttpServletResponse gz = mvc.perform(get("/notion_export/").header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andReturn().getResponse();
+        assertEquals("gzip", gz.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", gz.getHeader("Vary"));
+        assertNotEquals(plain.getHeader("ETag"), gz.getHeader("ETag")); // 표현마다 다른 태그
+        assertTrue(gz.getContentAsByteArray().length < plain.getContentAsByteArray().length);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gz.getContentAsByteArray()))) {
+            assertArrayEquals(plain.getContentAsByteArray(), in.readAllBytes());
+        }
+
+        // q=0 은 거절 → 원본
+        for (String ae : new String[] { "gzip;q=0", "identity, gzip;q=0", "gzip; q=0.000, br", "*;q=0", "br" }) {
+            MockHttpServletResponse res = mvc.perform(get("/notion_export/").header("Accept-Encoding", ae))
+                    .andReturn().getResponse();
+            assertNull(res.getHeader("Content-Encoding"), ae);
+            assertEquals(plain.getHeader("ETag"), res.getHeader("ETag"), ae);
+        }
+
+        // gzip 으로 받은 태그는 gzip 요청에서만 304
+        String gzEtag = gz.getHeader("ETag");
+        assertEquals(304, mvc.perform(get("/notion_export/").header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzEtag)).andReturn().getResponse().getStatus());
+        assertEquals(200, mvc.perform(get("/notion_export/").header("Accept-Encoding", "gzip;q=0")
+                .header("If-None-Match", gzEtag)).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void publicPortServesProbesButNotMetrics() throws Exception {
+        // 지표 / actuator 는 관리 포트(로컬)에서만, 공개 포트에는 상태 확인 경로만
+        assertEquals(200, mvc.perform(get("/livez")).andReturn().getResponse().getStatus());
+        assertEquals(200, mvc.perform(get("/readyz")).andReturn().getResponse().getStatus());
+        assertEquals(404, mvc.perform(get("/actuator/metrics")).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void acceptEncodingHonoursQValues() {
+        assertTrue(ExportController.acceptsGzip("gzip"));
+        assertTrue(ExportController.acceptsGzip("GZIP"));
+        assertTrue(ExportController.acceptsGzip("deflate, gzip;q=1.0, *;q=0.5"));
+        assertTrue(ExportController.acceptsGzip("x-gzip"));
+        assertTrue(ExportController.acceptsGzip("*"));
+        assertTrue(ExportController.acceptsGzip("*;q=0, gzip")); // 명시한 쪽이 우선
+        assertTrue(ExportController.acceptsGzip("gzip;Q=0.001"));
+
+        assertFalse(ExportController.acceptsGzip(null));
+        assertFalse(ExportController.acceptsGzip(""));
+        assertFalse(ExportController.acceptsGzip("identity"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=0"));
+        assertFalse(ExportController.acceptsGzip("identity, gzip;q=0"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=0, *"));
+        assertFalse(ExportController.acceptsGzip("br;q=1, gzip;q=0.0"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=abc"));
+        assertFalse(ExportController.acceptsGzip("gzipx, x-gzipped"));
+    }
+}
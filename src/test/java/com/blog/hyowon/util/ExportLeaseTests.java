@@ -0,0 +1,312 @@
+package com.blog.hyowon.util;
+
+import com.blog.hyowon.HyowonBlogApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * notion.export.coordination=lease: 이 컨텍스트는 노드 b, 테스트 코드가 노드 a 역할
+ * 여러 JVM 경합은 Node(main)를 자식 프로세스로 띄워서 확인
+ * 스케줄러 두 개가 같은 볼륨을 쓰는 경우는 앱 컨텍스트를 두 개 더 띄워서 (노드마다 스텁 서버 하나라 누가 호출했는지 구분)
+ */
+@SpringBootTest
+@DirtiesContext
+class ExportLeaseTests {
+
+    static final String ROOT = "24bf466a000000000000000000000001";
+
+    static StubNotionServer notion;
+    static Path exportDir;
+    static ExportLease nodeA;
+
+    @Autowired
+    NotionExportScheduler scheduler;
+
+    @Autowired
+    PageStore pageStore;
+
+    @Autowired
+    SiteSearch siteSearch;
+
+    @DynamicPropertySource
+    static void notionProperties(DynamicPropertyRegistry registry) throws Exception {
+        notion = StubNotionServer.start().page(ROOT, "Home", "2024-01-01T00:00:00.000Z")
+                .paragraph(ROOT, "hello lease");
+        exportDir = notion.register(registry, ROOT);
+        nodeA = new ExportLease(exportDir, "a", Duration.ofMinutes(1));
+        assertNotNull(nodeA.acquire()); // 컨텍스트가 뜨기 전에 a 가 주인
+        registry.add("notion.export.coordination", () -> "lease");
+        registry.add("notion.export.node-id", () -> "b");
+    }
+
+    @AfterAll
+    static void stop() {
+        notion.close();
+    }
+
+    @Test
+    void followerPicksUpPublishedVersionWithoutExporting() throws Exception {
+        // 주인이 아니면 변경 확인도 안 함
+        scheduler.exportNotion();
+        assertEquals(0, notion.requests("blocks"));
+        assertNull(pageStore.get("index.html"));
+
+        // a 가 export + 발행 → b 는 API 호출 없이 새 버전을 읽음
+        Instant started = Instant.now();
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).publishGuard(nodeA::renew);
+        String latest = exporter.latestEditedTime();
+        exporter.exportSite(ROOT, exportDir);
+        nodeA.recordExport(latest, started);
+        notion.resetCounts();
+        scheduler.exportNotion();
+        assertEquals(0, notion.requests("search") + notion.requests("blocks"));
+        assertTrue(UTF_8.decode(pageStore.get("index.html").body().duplicate()).toString().contains("hello lease"));
+        assertEquals("index.html", siteSearch.search(null, "lease", 10).get(0).file());
+
+        // a 가 내려가면 b 가 넘겨받고, a 가 남긴 기준으로 이어서 변경 확인 (다시 전체 export 하지 않음)
+        nodeA.release();
+        notion.resetCounts();
+        scheduler.exportNotion();
+        assertEquals(1, notion.requests("search"));
+        assertEquals(0, notion.requests("blocks"));
+        assertNull(nodeA.acquire());
+
+        // 주인이 바뀐 뒤에는 a 의 늦은 발행이 거부됨
+        assertThrows(IllegalStateException.class,
+                () -> new NotionExporter(notion.baseUrl(), "test", 4).publishGuard(nodeA::renew)
+                        .exportSite(ROOT, exportDir));
+        assertEquals("b", nodeA.read().owner());
+    }
+
+    @Test
+    void expiredLeaseMovesToNextNode() throws Exception {
+        Path dir = Files.createTempDirectory("lease").resolve("site");
+        ExportLease x = new ExportLease(dir, "x", Duration.ofMillis(300));
+        ExportLease y = new ExportLease(dir, "y", Duration.ofMillis(300));
+        assertNotNull(x.acquire());
+        assertNull(y.acquire());
+        x.recordExport("2024-01-01T00:00:00.000Z", Instant.EPOCH);
+        y.request();
+
+        Thread.sleep(400); // x 가 멈춤 → 만료
+        ExportLease.State s = y.acquire();
+        assertNotNull(s);
+        assertEquals("2024-01-01T00:00:00.000Z", s.watermark());
+        assertTrue(s.requested());
+        assertFalse(x.renew());
+    }
+
+    @Test
+    void twoSchedulersOnOneVolumeCallNotionFromOneNodePerTick() throws Exception {
+        Path dir = Files.createTempDirectory("lease").resolve("site");
+        StubNotionServer[] stubs = { workspace(), workspace() };
+        ConfigurableApplicationContext[] nodes = { app(dir, "x", stubs[0]), app(dir, "y", stubs[1]) };
+        try {
+            // 시작 export 는 한 노드만
+            long until = System.nanoTime() + 30_000_000_000L;
+            while ((!Files.isRegularFile(dir.resolve("index.html")) || exporting(nodes)) && System.nanoTime() < until)
+                Thread.sleep(50);
+            assertTrue(Files.isRegularFile(dir.resolve("index.html")));
+            assertEquals(1, (stubs[0].requests("blocks") > 0 ? 1 : 0) + (stubs[1].requests("blocks") > 0 ? 1 : 0));
+            int leader = stubs[0].requests("blocks") > 0 ? 0 : 1, follower = 1 - leader;
+
+            for (int tick = 0; tick < 4; tick++) {
+                if (tick == 1)
+                    for (StubNotionServer n : stubs) {
+                        n.paragraph(ROOT, "edited on tick 1");
+                        n.touch(ROOT, "2024-06-01T00:00:00.000Z");
+                    }
+                for (StubNotionServer n : stubs)
+                    n.resetCounts();
+                tick(nodes);
+                assertTrue(stubs[leader].requests("search") > 0, "tick " + tick);
+                assertEquals(0, stubs[follower].totalRequests(), "tick " + tick);
+                assertEquals(tick == 1, stubs[leader].requests("blocks") > 0, "tick " + tick);
+            }
+            // 따라가는 노드는 API 호출 없이 새 버전을 서빙
+            PageStore.Page page = nodes[follower].getBean(PageStore.class).get("index.html");
+            assertTrue(UTF_8.decode(page.body().duplicate()).toString().contains("edited on tick 1"));
+
+            // 주인이 내려가면 (lease 해제) 다음 확인부터 다른 노드 하나만
+            nodes[leader].close();
+            for (int tick = 0; tick < 2; tick++) {
+                for (StubNotionServer n : stubs)
+                    n.resetCounts();
+                nodes[follower].getBean(NotionExportScheduler.class).exportNotion();
+                assertEquals(0, stubs[leader].totalRequests());
+                assertEquals(1, stubs[follower].requests("search"));
+                assertEquals(0, stubs[follower].requests("blocks")); // 이어받은 기준으로 변경 없음
+            }
+        } finally {
+            for (ConfigurableApplicationContext c : nodes)
+                c.close();
+            for (StubNotionServer n : stubs)
+                n.close();
+        }
+    }
+
+    private static StubNotionServer workspace() throws Exception {
+        return StubNotionServer.start().page(ROOT, "Home", "2024-01-01T00:00:00.000Z").paragraph(ROOT, "hello lease");
+    }
+
+    /** 노드 하나 = 앱 컨텍스트 하나 (cron 은 끄고 테스트가 확인 주기를 직접 돌림) */
+    private static ConfigurableApplicationContext app(Path dir, String nodeId, StubNotionServer stub) {
+        return new SpringApplicationBuilder(HyowonBlogApplication.class).properties(
+                "server.port=0",
+                "notion.api.base-url=" + stub.baseUrl(),
+                "notion.api.key=test",
+                "notion.page.id=" + ROOT,
+                "notion.export.dir=" + dir,
+                "notion.export.cron=-",
+                "notion.export.coordination=lease",
+                "notion.export.node-id=" + nodeId)
+                .run("--management.server.port=0"); // application.properties 값이라 기본 속성으로는 못 덮음
+    }
+
+    /** 두 노드의 확인 주기를 동시에 */
+    private static void tick(ConfigurableApplicationContext[] nodes) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (ConfigurableApplicationContext c : nodes)
+            threads.add(Thread.ofVirtual().start(() -> c.getBean(NotionExportScheduler.class).exportNotion()));
+        for (Thread t : threads)
+            t.join();
+    }
+
+    private static boolean exporting(ConfigurableApplicationContext[] nodes) {
+        for (ConfigurableApplicationContext c : nodes)
+            if (c.getBean(NotionExportScheduler.class).isExporting())
+                return true;
+        return false;
+    }
+
+    @Test
+    void leftoverTmpFilesDoNotAccumulate() throws Exception {
+        Path dir = Files.createTempDirectory("lease").resolve("site");
+        // 쓰는 도중 죽은 노드들이 남긴 tmp (예전 이름: 노드마다 하나씩)
+        Path tmp = dir.resolveSibling(".site.lease.tmp");
+        Files.writeString(tmp, "{\"owner\":\"dead\",\"expiresAt\":");
+        for (String old : List.of(".site.lease.tmp-123", ".site.lease.tmp--98765"))
+            Files.writeString(dir.resolveSibling(old), "{}");
+
+        ExportLease x = new ExportLease(dir, "x-" + System.nanoTime(), Duration.ofMinutes(1));
+        assertNotNull(x.acquire());
+        assertTrue(x.renew());
+        try (Stream<Path> files = Files.list(dir.getParent())) {
+            assertEquals(List.of(".site.lease", ".site.lock"),
+                    files.map(p -> p.getFileName().toString()).sorted().toList());
+        }
+        assertEquals(x.nodeId(), x.read().owner());
+    }
+
+    @Test
+    void onlyOneJvmHoldsTheLeaseAtATime() throws Exception {
+        Path dir = Files.createTempDirectory("lease").resolve("site");
+
+        // 세 JVM 이 2초 동안 잡았다 놓기를 반복, 잡은 동안 겹치면 자식이 실패로 끝남
+        List<Process> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            nodes.add(node(dir, "n" + i, "contend"));
+        for (Process p : nodes) {
+            assertTrue(p.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, p.exitValue(), new String(p.getInputStream().readAllBytes(), UTF_8));
+        }
+        List<String> turns = Files.readAllLines(dir.resolveSibling("turns"));
+        assertFalse(turns.isEmpty());
+        assertTrue(turns.stream().distinct().count() > 1, "turns: " + turns.stream().distinct().toList());
+
+        // 잡은 채로 죽은 노드: OS 잠금은 풀리고, lease 는 ttl 이 지나야 넘어감
+        Process holder = node(dir, "holder", "hold");
+        BufferedReader out = new BufferedReader(new InputStreamReader(holder.getInputStream(), UTF_8));
+        for (String line = out.readLine(); !"HELD".equals(line); line = out.readLine())
+            assertNotNull(line, "holder exited early");
+        ExportLease me = new ExportLease(dir, "me", Duration.ofSeconds(10));
+        assertNull(me.acquire());
+        holder.destroyForcibly().waitFor();
+        long until = System.nanoTime() + 10_000_000_000L;
+        ExportLease.State s = me.acquire();
+        while (s == null && System.nanoTime() < until) {
+            Thread.sleep(50);
+            s = me.acquire();
+        }
+        assertNotNull(s);
+    }
+
+    /** 자식 JVM: 이 테스트 클래스 + 메인 클래스 + Jackson 만 classpath 에 */
+    private static Process node(Path dir, String id, String mode) throws Exception {
+        String cp = Stream.of(Node.class, ExportLease.class, ObjectMapper.class,
+                com.fasterxml.jackson.core.JsonFactory.class, com.fasterxml.jackson.annotation.JsonProperty.class)
+                .map(c -> {
+                    try {
+                        return Path.of(c.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .distinct().collect(Collectors.joining(java.io.File.pathSeparator));
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "-cp", cp, Node.class.getName(), dir.toString(), id, mode)
+                .redirectErrorStream(true).start();
+    }
+
+    /** 노드 하나 (contend: 잡았다 놓기 반복, hold: 1초 ttl 로 잡고 연장 없이 멈춤) */
+    static class Node {
+
+        public static void main(String[] args) throws Exception {
+            Path dir = Path.of(args[0]);
+            if ("hold".equals(args[2])) {
+                if (new ExportLease(dir, args[1], Duration.ofSeconds(1)).acquire() == null)
+                    System.exit(3);
+                System.out.println("HELD");
+                System.out.flush();
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            ExportLease lease = new ExportLease(dir, args[1], Duration.ofSeconds(30));
+            Path busy = dir.resolveSibling("busy");
+            long until = System.nanoTime() + 2_000_000_000L;
+            while (System.nanoTime() < until) {
+                if (lease.acquire() == null) {
+                    Thread.sleep(1);
+                    continue;
+                }
+                try {
+                    Files.createFile(busy);
+                } catch (FileAlreadyExistsException e) {
+                    System.out.println("overlap: " + args[1]);
+                    System.exit(2);
+                }
+                Files.writeString(dir.resolveSibling("turns"), args[1] + "\n", StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                Thread.sleep(5);
+                Files.delete(busy);
+                lease.release();
+                Thread.sleep(2); // 다른 노드에게도 차례가 가게
+            }
+            System.exit(0);
+        }
+    }
+}
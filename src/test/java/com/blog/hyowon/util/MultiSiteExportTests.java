@@ -0,0 +1,71 @@
+package com.blog.hyowon.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** notion.sites: 사이트마다 따로 export / 서빙 / 검색, 한 사이트 실패는 다른 사이트와 상관없음 */
+@SpringBootTest
+@DirtiesContext
+class MultiSiteExportTests {
+
+    static final String BLOG = "24bf466a000000000000000000000001";
+    static final String MISSING = "24bf466a0000000000000000000000ff";
+
+    static StubNotionServer notion;
+    static Path base;
+
+    @Autowired
+    NotionExportScheduler scheduler;
+
+    @Autowired
+    PageStore pageStore;
+
+    @Autowired
+    SiteSearch siteSearch;
+
+    @DynamicPropertySource
+    static void notionProperties(DynamicPropertyRegistry registry) throws Exception {
+        notion = StubNotionServer.start().page(BLOG, "Blog", "2024-01-01T00:00:00.000Z")
+                .paragraph(BLOG, "트랜잭션 격리 수준");
+        base = notion.register(registry, null).getParent();
+        registry.add("notion.sites[0].name", () -> "blog");
+        registry.add("notion.sites[0].page-id", () -> BLOG);
+        registry.add("notion.sites[1].name", () -> "broken");
+        registry.add("notion.sites[1].page-id", () -> MISSING); // 없는 페이지 → 이 사이트만 실패
+        registry.add("notion.sites[1].api-key", () -> "other");
+    }
+
+    @AfterAll
+    static void stop() {
+        notion.close();
+    }
+
+    @Test
+    void sitesExportAndServeIndependently() throws Exception {
+        StubNotionServer.awaitIdle(scheduler, () -> pageStore.get("blog/index.html") != null);
+
+        // 폴더는 notion.export.dir 옆 <폴더>-<이름>, URL 은 /notion_export/<이름>/
+        assertTrue(Files.isRegularFile(base.resolve("site-blog/index.html")));
+        assertTrue(UTF_8.decode(pageStore.get("blog/index.html").body().duplicate()).toString().contains("트랜잭션"));
+        assertTrue(pageStore.isSite("blog"));
+        assertNull(pageStore.get("index.html"));
+        assertEquals("index.html", siteSearch.search("blog", "격리", 10).get(0).file());
+        assertEquals("blog/", siteSearch.urlPrefix(null));
+
+        // 실패한 사이트는 발행된 게 없고, 검색도 빈 결과
+        assertFalse(Files.exists(base.resolve("site-broken")));
+        assertNull(pageStore.get("broken/index.html"));
+        assertTrue(siteSearch.search("broken", "격리", 10).isEmpty());
+    }
+}
@@ -0,0 +1,138 @@
+package com.blog.hyowon.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 재시도 루프만 (스텁 서버의 fail() 로 상태 코드 주입, 버킷은 넉넉하게) */
+class NotionClientTests {
+
+    static final String ROOT = "24bf466a000000000000000000000001";
+
+    StubNotionServer notion;
+    NotionClient client;
+
+    @BeforeEach
+    void start() throws Exception {
+        notion = StubNotionServer.start().page(ROOT, "Home", "2024-01-01T00:00:00.000Z");
+        client = new NotionClient(notion.baseUrl(), "test", 2, 100, Duration.ofSeconds(5), 3);
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        notion.close();
+    }
+
+    @Test
+    void retryAfterIsHonouredBeforeRetrying() {
+        notion.fail(1, 429, "1.2");
+        long started = System.nanoTime();
+        NotionPage page = search();
+        long ms = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(ROOT, page.id().replace("-", ""));
+        assertTrue(ms >= 1200, ms + "ms"); // 백오프(최대 0.5s)가 아니라 Retry-After 만큼
+        assertEquals(1, client.throttled());
+        assertEquals(1, client.retries());
+        assertEquals(2, notion.requests("search"));
+
+        // 날짜 형식은 무시하고 백오프로
+        notion.fail(1, 429, "Wed, 21 Oct 2015 07:28:00 GMT");
+        started = System.nanoTime();
+        search();
+        assertTrue(System.nanoTime() - started < 1_000_000_000L);
+        assertEquals(2, client.throttled());
+    }
+
+    @Test
+    void serverErrorsBackOffUntilMaxAttempts() {
+        // 0.25~0.5s, 0.5~1s
+        notion.fail(2, 503, null);
+        long started = System.nanoTime();
+        search();
+        long ms = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(ms >= 750, ms + "ms");
+        assertEquals(2, client.retries());
+        assertEquals(0, client.throttled());
+
+        // 시도 3번(첫 시도 포함)에서 멈춤
+        notion.resetCounts();
+        notion.fail(10, 502, null);
+        IllegalStateException e = assertThrows(IllegalStateException.class, this::search);
+        assertTrue(e.getMessage().contains("502 after 3 attempts"), e.getMessage());
+        assertEquals(3, notion.requests("failed"));
+
+        // 4xx 는 재시도 없이
+        notion.resetCounts();
+        notion.fail(1, 404, null);
+        assertThrows(WebClientResponseException.NotFound.class, this::search);
+        assertEquals(1, notion.requests("search"));
+    }
+
+    @Test
+    void deadlineStopsRetriesWithoutSleepingPastIt() {
+        search(); // 첫 요청(커넥션 / 클래스 로딩)은 재지 않음
+        notion.resetCounts();
+
+        // Retry-After 가 마감보다 길면 기다리지 않고 바로 실패
+        notion.fail(1, 429, "10");
+        long started = System.nanoTime();
+        assertThrows(NotionClient.DeadlineExceeded.class, () -> search(Duration.ofSeconds(1)));
+        assertTrue(System.nanoTime() - started < 1_000_000_000L);
+        assertEquals(1, notion.requests("search"));
+
+        // 백오프가 마감을 넘는 순간 멈춤 (시도 횟수가 남아 있어도)
+        NotionClient patient = new NotionClient(notion.baseUrl(), "test", 2, 100, Duration.ofSeconds(5), 100);
+        try {
+            notion.resetCounts();
+            notion.fail(100, 503, null);
+            started = System.nanoTime();
+            assertThrows(NotionClient.DeadlineExceeded.class,
+                    () -> patient.post("/search", "{}", NotionJson::readPages, NotionClient.deadlineAfter(Duration.ofMillis(1500))));
+            assertTrue(System.nanoTime() - started < 1_500_000_000L);
+            assertTrue(notion.requests("failed") < 5, String.valueOf(notion.requests("failed")));
+        } finally {
+            patient.close();
+        }
+    }
+
+    @Test
+    void slowResponseIsCutAtTheDeadlineNotTheRequestTimeout() {
+        search();
+
+        // 요청 타임아웃(5s)보다 짧은 마감이면 응답을 마감까지만 기다림
+        notion.resetCounts();
+        notion.latency(Duration.ofSeconds(3));
+        long started = System.nanoTime();
+        assertThrows(NotionClient.DeadlineExceeded.class, () -> search(Duration.ofMillis(800)));
+        long ms = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(ms < 2000, ms + "ms");
+        assertEquals(1, notion.requests("search"));
+    }
+
+    @Test
+    void responsesAreParsedOnTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        Thread[] parsedOn = new Thread[1];
+        NotionJson.Batch<NotionPage> pages = client.post("/search", "{}", in -> {
+            parsedOn[0] = Thread.currentThread();
+            return NotionJson.readPages(in);
+        }, NotionClient.deadlineAfter(Duration.ofSeconds(30)));
+        assertSame(caller, parsedOn[0]); // reactor-netty event loop 이 아니라
+        assertEquals(1, pages.results().size());
+    }
+
+    private NotionPage search() {
+        return search(Duration.ofSeconds(30));
+    }
+
+    private NotionPage search(Duration deadline) {
+        return client.post("/search", "{}", NotionJson::readPages, NotionClient.deadlineAfter(deadline)).results().get(0);
+    }
+}
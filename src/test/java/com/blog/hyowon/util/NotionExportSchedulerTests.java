@@ -0,0 +1,148 @@
+package com.blog.hyowon.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 변경 감지: 안 바뀌었으면 /search 한 번으로 끝, 바뀌면 전체 export */
+@SpringBootTest
+@DirtiesContext
+class NotionExportSchedulerTests {
+
+    static final String ROOT = "24bf466a000000000000000000000001";
+    static final String CHILD = "24bf466a000000000000000000000002";
+
+    static StubNotionServer notion;
+    static Path exportDir;
+
+    @Autowired
+    NotionExportScheduler scheduler;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void notionProperties(DynamicPropertyRegistry registry) throws Exception {
+        notion = StubNotionServer.start()
+                .page(ROOT, "Home", "2024-01-01T00:00:00.000Z")
+                .paragraph(ROOT, "hello")
+                .childPage(ROOT, CHILD, "Child", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "child body");
+        exportDir = notion.register(registry, ROOT);
+    }
+
+    @AfterAll
+    static void stop() {
+        notion.close();
+    }
+
+    @Test
+    void exportsOnlyWhenSomethingChanged() throws Exception {
+        // 시작할 때 백그라운드로 한 번 export 됨
+        awaitStartupExport();
+        assertTrue(Files.isRegularFile(exportDir.resolve("index.html")));
+        assertTrue(Files.readString(exportDir.resolve("index.html")).contains("hello"));
+
+        notion.resetCounts();
+        scheduler.exportNotion();
+        assertEquals(1, notion.requests("search"));
+        assertEquals(0, notion.requests("blocks"));
+
+        notion.touch(CHILD, "2024-06-01T00:00:00.000Z");
+        notion.resetCounts();
+        scheduler.exportNotion();
+        assertTrue(notion.requests("blocks") > 0);
+
+        notion.resetCounts();
+        scheduler.exportNotion();
+        assertEquals(0, notion.requests("blocks"));
+    }
+
+    @Test
+    void overlappingRunsAreCoalesced() throws Exception {
+        awaitStartupExport();
+        notion.resetCounts();
+        scheduler.triggerExport();
+        int perRun = notion.requests("search");
+
+        // 수동 요청 여러 개가 겹쳐도 도는 건 하나, 나머지는 끝난 뒤 한 번으로 합쳐짐
+        notion.resetCounts();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+            threads[i] = Thread.ofVirtual().start(scheduler::triggerExport);
+        for (Thread t : threads)
+            t.join();
+        awaitIdle();
+        int searches = notion.requests("search");
+        assertTrue(perRun > 0);
+        assertTrue(searches <= 2 * perRun, "at most two runs (running + one queued), search=" + searches);
+    }
+
+    @Test
+    void queuedRequestIsNotLostWhenRunEndsBeforeItIsRecorded() throws Exception {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CountDownLatch inWindow = new CountDownLatch(1), firstReturned = new CountDownLatch(1);
+        ExportRuns runs = new ExportRuns("test", reason -> {
+            executed.add(reason);
+            if (reason.equals("first")) {
+                started.countDown();
+                release.await();
+            }
+        }, () -> {
+            // 실행 중인 걸 본 뒤 ~ 요청을 넣기 전: 여기서 도는 쪽이 rerun 확인까지 마치고 나가게 함
+            inWindow.countDown();
+            try {
+                firstReturned.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread a = Thread.ofVirtual().start(() -> {
+            runs.run("first", true);
+            firstReturned.countDown();
+        });
+        started.await();
+        Thread b = Thread.ofVirtual().start(() -> runs.run("manual", true));
+        inWindow.await();
+        release.countDown();
+        a.join();
+        b.join();
+        assertEquals(List.of("first", "manual"), executed);
+        assertFalse(runs.isRunning());
+    }
+
+    @Test
+    void recordsPipelineMetrics() throws Exception {
+        awaitStartupExport();
+        assertTrue(registry.get("notion.export.pages").tag("result", "rendered").counter().count() >= 2);
+        assertTrue(registry.get("notion.export").tag("result", "success").timer().count() >= 1);
+        assertTrue(registry.get("notion.api.requests").tag("endpoint", "blocks").tag("status", "200").timer()
+                .count() >= 2);
+        for (String phase : new String[] { "fetch", "render", "write", "cleanup" })
+            assertTrue(registry.get("notion.export.phase").tag("phase", phase).timer().count() > 0, phase);
+        assertTrue(registry.get("notion.export.last.duration").timeGauge().value() > 0);
+    }
+
+    private void awaitStartupExport() throws InterruptedException {
+        StubNotionServer.awaitIdle(scheduler, () -> Files.isRegularFile(exportDir.resolve("index.html")));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        StubNotionServer.awaitIdle(scheduler, () -> true);
+    }
+}
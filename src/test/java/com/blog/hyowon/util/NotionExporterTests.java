@@ -0,0 +1,432 @@
+package com.blog.hyowon.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 스텁 서버 상대로 exporter 만 (스프링 없이) */
+class NotionExporterTests {
+
+    static final String ROOT = "24bf466a000000000000000000000001";
+    static final String CHILD = "24bf466a000000000000000000000002";
+    static final String OTHER_ROOT = "24bf466a000000000000000000000003";
+
+    StubNotionServer notion;
+
+    @TempDir
+    Path tmp;
+
+    @BeforeEach
+    void start() throws Exception {
+        notion = StubNotionServer.start().page(ROOT, "Home", "2024-01-01T00:00:00.000Z");
+    }
+
+    @AfterEach
+    void stop() {
+        notion.close();
+    }
+
+    @Test
+    void rendersNestedBlocksFetchedLevelByLevel() throws Exception {
+        String outer = notion.block(ROOT, "bulleted_list_item", "outer");
+        String inner = notion.block(outer, "bulleted_list_item", "inner");
+        notion.block(inner, "paragraph", "deepest");
+        String toggle = notion.block(ROOT, "toggle", "more");
+        notion.block(toggle, "paragraph", "hidden body");
+        String table = notion.table(toggle, 2);
+        notion.tableRow(table, "h1", "h2").tableRow(table, "a", "b");
+        String columns = notion.block(ROOT, "column_list", "");
+        String left = notion.block(columns, "column", "");
+        String right = notion.block(columns, "column", "");
+        notion.block(left, "paragraph", "left side");
+        notion.block(right, "callout", "right side");
+        // 토글 안의 하위 페이지도 목차/파일로
+        notion.childPage(toggle, CHILD, "Nested child", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "child body");
+
+        Path out = tmp.resolve("site");
+        new NotionExporter(notion.baseUrl(), "test", 4).exportSite(ROOT, out);
+        String html = Files.readString(out.resolve("index.html"));
+
+        assertTrue(html.contains("<ul><li>outer<ul><li>inner<p>deepest</p></li></ul></li></ul>"), html);
+        assertTrue(html.contains("<details><summary>more</summary><p>hidden body</p>"), html);
+        assertTrue(html.contains("<td>a</td>") || html.contains(">a</td>"), html);
+        assertTrue(html.contains("<div class='columns'><div class='column'><p>left side</p></div>"), html);
+        assertTrue(html.contains("<div class='callout'>right side</div>"), html);
+
+        assertTrue(html.contains("Nested child</a>"), html);
+        assertTrue(Files.readString(out.resolve(NotionExporter.slug("Nested child", CHILD) + ".html"))
+                .contains("child body"));
+
+        // 페이지마다 1 + 자식 있는 블록마다 1 (outer, inner, toggle, table, columns, left, right)
+        assertEquals(2 + 7, notion.requests("blocks"));
+    }
+
+    @Test
+    void searchIndexCoversKoreanAndReindexesOnlyChangedPages() throws Exception {
+        notion.paragraph(ROOT, "트랜잭션 격리 수준을 정리했다");
+        notion.childPage(ROOT, CHILD, "인덱스 튜닝", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "B-tree 인덱스는 범위 검색에 강하다");
+
+        String childFile = NotionExporter.slug("인덱스 튜닝", CHILD) + ".html";
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        exporter.exportSite(ROOT, out);
+        SearchIndex index = SearchIndex.open(out);
+        assertEquals(2, index.size());
+        assertEquals("index.html", index.search("트랜잭션은", 10).get(0).file()); // 조사가 붙어도
+        assertEquals("index.html", index.search("격", 10).get(0).file()); // 한 글자
+        assertTrue(childFile.equals(index.search("인덱스", 10).get(0).file()));
+        assertEquals(1, index.search("b-tree 범위", 10).size());
+        assertTrue(index.search("없는말", 10).isEmpty());
+
+        // 자식만 수정 → 자식만 다시 렌더/색인, 루트는 이전 색인에서 그대로
+        notion.paragraph(CHILD, "해시 인덱스도 추가");
+        notion.touch(CHILD, "2024-06-01T00:00:00.000Z");
+        notion.resetCounts();
+        exporter.exportSite(ROOT, out);
+        assertEquals(1, notion.requests("blocks"));
+        index = SearchIndex.open(out);
+        assertEquals(2, index.size());
+        assertTrue(childFile.equals(index.search("해시", 10).get(0).file()));
+        assertEquals("index.html", index.search("격리 수준", 10).get(0).file());
+    }
+
+    @Test
+    void incrementalRunsMatchColdExportsAndUnchangedRunsOnlyReadMetadata() throws Exception {
+        String root = notion.workspace(8, 2, 20, 3); // DB row 포함 8 페이지
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        exporter.exportSite(root, out);
+
+        // 변경 없음: 블록/파일 요청 없이 메타데이터(/search, /pages, DB query)만
+        notion.resetCounts();
+        NotionExporter.Result r = exporter.exportSite(root, out);
+        assertEquals(0, r.rendered());
+        assertEquals(8, r.skipped());
+        assertEquals(0, notion.requests("blocks"));
+        assertEquals(notion.totalRequests(),
+                notion.requests("search") + notion.requests("pages") + notion.requests("query"));
+        assertEquals(siteFiles(cold(root, "cold1")), siteFiles(out));
+
+        // 루트만 수정 → 루트만 다시 렌더, 결과는 처음부터 export 한 것과 같은 바이트
+        notion.paragraph(root, "추가된 문단");
+        notion.touch(root, "2024-06-01T00:00:00.000Z");
+        r = exporter.exportSite(root, out);
+        assertEquals(1, r.rendered());
+        assertEquals(siteFiles(cold(root, "cold2")), siteFiles(out));
+    }
+
+    @Test
+    void publishRemovesPagesAndGzipCopiesThatAreGone() throws Exception {
+        notion.paragraph(ROOT, "root body");
+        notion.childPage(ROOT, CHILD, "Gone soon", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "압축될 만큼 긴 본문 ".repeat(50));
+
+        String childFile = NotionExporter.slug("Gone soon", CHILD) + ".html";
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        exporter.exportSite(ROOT, out);
+        assertTrue(Files.isRegularFile(out.resolve(childFile)));
+        assertTrue(Files.isRegularFile(out.resolve(childFile + ".gz")));
+        Path previous = out.toRealPath();
+
+        // 하위 페이지 삭제 → 루트만 바뀜, 이전 버전에서 하드링크로 넘어온 html 과 .gz 사본 둘 다 정리
+        notion.remove(ROOT, CHILD);
+        notion.touch(ROOT, "2024-06-01T00:00:00.000Z");
+        NotionExporter.Result r = exporter.exportSite(ROOT, out);
+        assertEquals(1, r.rendered());
+        assertFalse(Files.exists(out.resolve(childFile)));
+        assertFalse(Files.exists(out.resolve(childFile + ".gz")));
+        assertTrue(Files.isRegularFile(out.resolve("index.html.gz")));
+        assertFalse(Files.readString(out.resolve("index.html")).contains("Gone soon"));
+        assertFalse(previous.equals(out.toRealPath())); // 새 버전으로 교체
+    }
+
+    @Test
+    void sharedAssetsAreFingerprintedAndOnlyUsedLanguagesShip() throws Exception {
+        notion.code(ROOT, "C++", "int main() {}");
+        notion.code(ROOT, "java", "class A {}");
+        notion.childPage(ROOT, CHILD, "Plain", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "no code here");
+
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        exporter.exportSite(ROOT, out);
+        String index = Files.readString(out.resolve("index.html"));
+        String child = Files.readString(out.resolve(NotionExporter.slug("Plain", CHILD) + ".html"));
+
+        SiteAssets assets = SiteAssets.get();
+        assertFalse(index.contains("cdn.jsdelivr.net") || index.contains("<style"), index);
+        assertTrue(index.contains(assets.stylesheet()) && child.contains(assets.stylesheet()));
+        assertTrue(Files.isRegularFile(out.resolve(assets.stylesheet())));
+
+        // core + clike → c → cpp, java (의존 순서), 코드 없는 페이지는 스크립트 없음
+        List<String> scripts = assets.scripts(Set.of("cpp", "java"));
+        assertEquals(5, scripts.size());
+        StringBuilder tags = new StringBuilder();
+        for (String src : scripts) {
+            tags.append("<script src='").append(src).append("'></script>");
+            assertTrue(Files.isRegularFile(out.resolve(src)), src);
+        }
+        assertTrue(index.contains(tags), index);
+        assertFalse(child.contains("<script"), child);
+        assertEquals(5, countJs(out));
+
+        // 다음 실행: 페이지는 건너뛰어도 참조 중인 파일은 남고, 안 쓰는 파일은 정리
+        Files.writeString(out.resolve(SiteAssets.JS_DIR + "0".repeat(64) + ".js"), "stale");
+        notion.resetCounts();
+        exporter.exportSite(ROOT, out);
+        assertEquals(0, notion.requests("blocks"));
+        assertEquals(5, countJs(out));
+        assertTrue(Files.isRegularFile(out.resolve(assets.stylesheet())));
+    }
+
+    @Test
+    void commonLanguagesAreHighlightedAtExportWithoutScripts() throws Exception {
+        notion.code(ROOT, "java", "// 조회\nreturn repo.find(\"a<b\", 42);\n");
+        notion.code(ROOT, "shell", "echo \"$HOME\" | grep -v x");
+        notion.code(ROOT, "plain text", "just text");
+
+        Path out = tmp.resolve("site");
+        new NotionExporter(notion.baseUrl(), "test", 4).exportSite(ROOT, out);
+        String html = Files.readString(out.resolve("index.html"));
+
+        assertTrue(html.contains("<pre class='line-numbers language-java'><code class='language-java'>"
+                + "<span class='token comment'>// 조회</span>\n<span class='token keyword'>return</span> repo"
+                + "<span class='token punctuation'>.</span><span class='token function'>find</span>"
+                + "<span class='token punctuation'>(</span><span class='token string'>&quot;a&lt;b&quot;</span>"), html);
+        // 줄 번호 칸은 line-numbers 플러그인과 같은 모양 (끝 줄바꿈은 안 셈)
+        assertTrue(html.contains("<span class='token number'>42</span><span class='token punctuation'>)</span>"
+                + "<span class='token punctuation'>;</span>\n<span aria-hidden='true' class='line-numbers-rows'>"
+                + "<span></span><span></span></span></code></pre>"), html);
+        assertTrue(html.contains("<span class='token string'>&quot;<span class='token variable'>$HOME</span>"
+                + "&quot;</span>"), html);
+        assertTrue(html.contains("<code class='language-none'>just text<span aria-hidden"), html);
+        assertFalse(html.contains("<script"), html);
+    }
+
+    @Test
+    void skippedPagesRevalidateExternalImages() throws Exception {
+        String url = notion.file("chart.png", png(30, 10));
+        notion.externalImage(ROOT, url.substring(0, url.indexOf('?')));
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        exporter.exportSite(ROOT, out);
+        String before = Files.readString(out.resolve("index.html"));
+
+        // 페이지는 그대로, 이미지도 그대로 → 건너뛰고 조건부 GET 한 번 (304)
+        notion.resetCounts();
+        assertEquals(1, exporter.exportSite(ROOT, out).skipped());
+        assertEquals(1, notion.requests("files"));
+        assertEquals(before, Files.readString(out.resolve("index.html")));
+
+        // 페이지는 그대로인데 외부 원본만 바뀜 → 다시 렌더해서 새 파일을 가리킴, 옛 파일은 정리
+        notion.file("chart.png", png(60, 20));
+        NotionExporter.Result r = exporter.exportSite(ROOT, out);
+        assertEquals(0, r.skipped());
+        String after = Files.readString(out.resolve("index.html"));
+        assertNotEquals(before, after);
+        assertEquals(1, r.imageFiles());
+        Matcher m = Pattern.compile("assets/images/[0-9a-f]{64}\\.png").matcher(after);
+        assertTrue(m.find(), after);
+        assertTrue(Files.isRegularFile(out.resolve(m.group())));
+    }
+
+    @Test
+    void externalImagesWhoseQueryPicksTheContentStayApart() throws Exception {
+        String one = notion.externalFile("chart.php?id=1", png(10, 10));
+        String two = notion.externalFile("chart.php?id=2", png(20, 10));
+        notion.externalImage(ROOT, one);
+        notion.externalImage(ROOT, two);
+        Path out = tmp.resolve("site");
+        NotionExporter exporter = new NotionExporter(notion.baseUrl(), "test", 4).incremental(true);
+        assertEquals(2, exporter.exportSite(ROOT, out).imageFiles());
+        List<String> before = localImages(Files.readString(out.resolve("index.html")));
+        assertEquals(2, before.stream().distinct().count(), before.toString());
+
+        // 건너뛰는 페이지 재검증: 페이지가 쓰는 URL 그대로 (쿼리 포함) 조건부 GET → 둘 다 304
+        notion.resetCounts();
+        assertEquals(1, exporter.exportSite(ROOT, out).skipped());
+        assertEquals(2, notion.requests("files"));
+
+        // 한쪽만 바뀌면 그쪽만 새 파일
+        notion.externalFile("chart.php?id=2", png(40, 10));
+        NotionExporter.Result r = exporter.exportSite(ROOT, out);
+        assertEquals(1, r.rendered());
+        List<String> after = localImages(Files.readString(out.resolve("index.html")));
+        assertEquals(before.get(0), after.get(0));
+        assertNotEquals(before.get(1), after.get(1));
+        assertEquals(2, r.imageFiles());
+    }
+
+    @Test
+    void hungImageHostIsCutOffAtTheExportDeadline() throws Exception {
+        // 연결은 받지만(backlog) 응답은 영원히 안 오는 이미지 호스트
+        try (java.net.ServerSocket hung = new java.net.ServerSocket(0, 50, java.net.InetAddress.getLoopbackAddress())) {
+            String url = "http://127.0.0.1:" + hung.getLocalPort() + "/stuck.png";
+            notion.externalImage(ROOT, url);
+            notion.paragraph(ROOT, "body");
+
+            Path out = tmp.resolve("site");
+            long started = System.nanoTime();
+            NotionExporter.Result r = new NotionExporter(notion.baseUrl(), "test", 4)
+                    .exportTimeout(Duration.ofSeconds(2)).exportSite(ROOT, out);
+            long ms = (System.nanoTime() - started) / 1_000_000;
+
+            // 마감에서 끊고 원래 URL 로 발행 (다운로드 타임아웃까지 기다리지 않음)
+            assertTrue(ms < 10_000, ms + "ms");
+            assertEquals(1, r.rendered());
+            assertEquals(0, r.imageFiles());
+            String html = Files.readString(out.resolve("index.html"));
+            assertTrue(html.contains("src='" + url + "'"), html);
+            assertFalse(html.contains("pending-"), html);
+        }
+    }
+
+    @Test
+    void streamedCursorPagesRenderTheSameAsWholePage() throws Exception {
+        // 블록 100개마다 커서 페이지 → 98~102번 글머리 목록은 첫 배치와 둘째 배치에 걸침
+        for (int i = 0; i < 98; i++)
+            notion.paragraph(ROOT, "para " + i);
+        for (int i = 0; i < 5; i++)
+            notion.block(ROOT, "bulleted_list_item", "item " + i);
+        notion.block(ROOT, "numbered_list_item", "step");
+        notion.database(ROOT, "24bf466a0000000000000000000000d0", "Posts")
+                .row("24bf466a0000000000000000000000d0", CHILD, "Row post", "2024-01-01T00:00:00.000Z");
+        notion.paragraph(CHILD, "row body");
+        notion.block(ROOT, "to_do", "last");
+
+        Path streamed = tmp.resolve("streamed"), whole = tmp.resolve("whole");
+        new NotionExporter(notion.baseUrl(), "test", 4).exportSite(ROOT, streamed);
+        int streamedRequests = notion.requests("blocks");
+        notion.resetCounts();
+        new NotionExporter(notion.baseUrl(), "test", 4).streaming(false).exportSite(ROOT, whole);
+
+        String html = Files.readString(streamed.resolve("index.html"));
+        assertEquals(Files.readString(whole.resolve("index.html")), html);
+        assertArrayEquals(Files.readAllBytes(whole.resolve(SearchIndex.FILE_NAME)),
+                Files.readAllBytes(streamed.resolve(SearchIndex.FILE_NAME)));
+        assertEquals(notion.requests("blocks"), streamedRequests);
+        // 배치 경계에서 목록이 끊기지 않음
+        assertTrue(html.contains("<ul><li>item 0</li><li>item 1</li><li>item 2</li><li>item 3</li><li>item 4</li></ul>"
+                + "<ol><li>step</li></ol>"), html);
+        assertTrue(html.contains("Row post"), html);
+        try (var files = Files.list(streamed)) {
+            assertEquals(2, files.filter(p -> p.toString().endsWith(".html")).count()); // index + DB row
+        }
+    }
+
+    @Test
+    void replaysRecordedWorkspaceThroughInjectedThrottling() throws Exception {
+        // 13 페이지 (DB row 포함), 블록 100개 넘는 페이지 → 커서 페이지네이션
+        String root = notion.workspace(13, 2, 101, 7);
+        Path tape = tmp.resolve("tape");
+        Path recorded = tmp.resolve("recorded"), replayed = tmp.resolve("replayed");
+        try (StubNotionServer proxy = StubNotionServer.record(tape, notion.baseUrl())) {
+            assertEquals(13, export(proxy, root, recorded).rendered());
+        }
+        assertTrue(notion.requests("query") > 0);
+
+        try (StubNotionServer replay = StubNotionServer.replay(tape).throttle(5, Duration.ofMillis(20))) {
+            assertEquals(13, export(replay, root, replayed).rendered());
+            assertTrue(replay.requests("throttled") > 0);
+        }
+        for (String file : List.of("index.html", SearchIndex.FILE_NAME))
+            assertArrayEquals(Files.readAllBytes(recorded.resolve(file)), Files.readAllBytes(replayed.resolve(file)),
+                    file);
+    }
+
+    @Test
+    void sitesExportedTogetherDownloadAndStoreSharedImagesOnce() throws Exception {
+        String logo = notion.file("logo.png", png(40, 20));
+        notion.image(ROOT, logo);
+        notion.page(OTHER_ROOT, "Docs", "2024-01-01T00:00:00.000Z");
+        notion.image(OTHER_ROOT, logo);
+        notion.image(OTHER_ROOT, notion.file("docs-only.png", png(10, 10)));
+
+        SharedImages shared = new SharedImages(tmp.resolve("shared"));
+        ExportBudget budget = new ExportBudget(2, 1);
+        Path blog = tmp.resolve("blog"), docs = tmp.resolve("docs");
+        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            var a = exec.submit(() -> new NotionExporter(notion.baseUrl(), "test", 4).budget(budget)
+                    .sharedImages(shared).exportSite(ROOT, blog));
+            var b = exec.submit(() -> new NotionExporter(notion.baseUrl(), "test", 4).budget(budget)
+                    .sharedImages(shared).exportSite(OTHER_ROOT, docs));
+            a.get();
+            b.get();
+        }
+
+        // 같은 URL 은 두 사이트 합쳐 한 번만 받고, 두 사이트 파일은 같은 inode
+        assertEquals(2, notion.requests("files"));
+        Matcher m = Pattern.compile("assets/images/[0-9a-f]{64}\\.png")
+                .matcher(Files.readString(blog.resolve("index.html")));
+        assertTrue(m.find());
+        assertTrue(Files.isSameFile(blog.resolve(m.group()), docs.resolve(m.group())));
+        assertEquals(2, shared.sweep());
+    }
+
+    /** img src 의 내용 해시 파일 경로 (나온 순서대로) */
+    private static List<String> localImages(String html) {
+        Matcher m = Pattern.compile("src='(assets/images/[0-9a-f]{64}\\.[a-z]+)'").matcher(html);
+        List<String> srcs = new java.util.ArrayList<>();
+        while (m.find())
+            srcs.add(m.group(1));
+        return srcs;
+    }
+
+    private Path cold(String root, String name) throws Exception {
+        Path dir = tmp.resolve(name);
+        new NotionExporter(notion.baseUrl(), "test", 4).exportSite(root, dir);
+        return dir;
+    }
+
+    /** 상대 경로 → 내용 해시 (실행 시각이 들어가는 manifest / 이미지 인덱스는 제외) */
+    private static java.util.Map<String, String> siteFiles(Path dir) throws Exception {
+        java.util.Map<String, String> files = new java.util.TreeMap<>();
+        Path real = dir.toRealPath();
+        try (var walk = Files.walk(real)) {
+            for (Path p : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(PageManifest.FILE_NAME) || name.startsWith(ImageStore.INDEX_FILE))
+                    continue;
+                files.put(real.relativize(p).toString(), java.util.HexFormat.of().formatHex(
+                        java.security.MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(p))));
+            }
+        }
+        return files;
+    }
+
+    private static byte[] png(int w, int h) throws Exception {
+        var out = new java.io.ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    /** 기본 3 req/s 로는 느려서 제한만 풀어서 */
+    private static NotionExporter.Result export(StubNotionServer server, String root, Path out) throws Exception {
+        try (NotionClient client = new NotionClient(server.baseUrl(), "test", 4, 1000, Duration.ofSeconds(10), 6)) {
+            return new NotionExporter(client, 4).exportSite(root, out);
+        }
+    }
+
+    private static long countJs(Path out) throws Exception {
+        try (var files = Files.list(out.resolve(SiteAssets.JS_DIR))) {
+            return files.filter(p -> p.toString().endsWith(".js")).count();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.blog.hyowon.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 스트리밍 파서만 (서버 없이 응답 문자열로) */
+class NotionJsonTests {
+
+    @Test
+    void skipsUnknownFieldsAtEveryLevel() throws Exception {
+        NotionJson.Batch<NotionBlock> batch = NotionJson.readBlocks(json("""
+                {"object":"list","request_id":"r1","block":{},"type":"block",
+                 "results":[
+                  {"object":"block","id":"b1","parent":{"type":"page_id","page_id":"p"},
+                   "created_by":{"object":"user","id":"u"},"archived":false,"in_trash":false,
+                   "new_field":[{"deep":[1,2,{"x":null}]}],
+                   "paragraph":{"color":"default","rich_text":[
+                     {"type":"text","text":{"content":"hi","link":null},"plain_text":"hi","href":null,
+                      "annotations":{"bold":true,"color":"red","new_flag":true}}],
+                     "children_hint":{"a":[]}},
+                   "type":"paragraph","has_children":true},
+                  {"object":"block","id":"b2","type":"unsupported_kind","has_children":false,
+                   "unsupported_kind":{"rich_text":[{"plain_text":"ignored"}]}}
+                 ],
+                 "next_cursor":null,"has_more":false,"developer_survey":"https://example.com"}
+                """));
+
+        assertEquals(2, batch.results().size());
+        assertFalse(batch.hasMore());
+        assertNull(batch.nextCursor());
+
+        // payload 가 type 보다 먼저 와도
+        NotionBlock p = batch.results().get(0);
+        assertEquals("b1", p.id());
+        assertEquals("paragraph", p.type());
+        assertTrue(p.hasChildren());
+        assertEquals(List.of(new NotionBlock.TextRun("hi", null, NotionBlock.TextRun.BOLD)), p.text());
+
+        // 모르는 타입은 빈 본문
+        NotionBlock u = batch.results().get(1);
+        assertEquals("unsupported_kind", u.type());
+        assertTrue(u.text().isEmpty());
+    }
+
+    @Test
+    void readsNestedRichTextInTablesImagesAndTitles() throws Exception {
+        NotionJson.Batch<NotionBlock> batch = NotionJson.readBlocks(json("""
+                {"results":[
+                  {"id":"row","type":"table_row","has_children":false,"table_row":{"cells":[
+                    [{"plain_text":"a","annotations":{"code":true,"italic":true}},
+                     {"plain_text":"link","href":"https://x.dev","text":{"content":"link","link":{"url":"https://x.dev"}}}],
+                    [],
+                    [{"type":"mention","mention":{"type":"page","page":{"id":"p"}},"plain_text":"@Page"}]]}},
+                  {"id":"img","type":"image","has_children":false,"image":{
+                    "caption":[{"plain_text":"caption is skipped"}],"type":"external",
+                    "external":{"url":"https://img.example/a.png","extra":{}},
+                    "file":{"url":"https://s3/ignored","expiry_time":"2024-01-01T00:00:00.000Z"}}},
+                  {"id":"code","type":"code","has_children":false,"code":{
+                    "caption":[],"rich_text":[{"plain_text":"int x;"}],"language":"java"}},
+                  {"id":"copy","type":"synced_block","has_children":true,"synced_block":{
+                    "synced_from":{"type":"block_id","block_id":"orig"}}}
+                 ],"has_more":false}
+                """));
+
+        NotionBlock row = batch.results().get(0);
+        assertEquals(3, row.cells().size());
+        assertEquals(List.of(
+                new NotionBlock.TextRun("a", null, NotionBlock.TextRun.CODE | NotionBlock.TextRun.ITALIC),
+                new NotionBlock.TextRun("link", "https://x.dev", 0)), row.cells().get(0));
+        assertTrue(row.cells().get(1).isEmpty());
+        assertEquals("@Page", row.cells().get(2).get(0).text());
+
+        NotionBlock img = batch.results().get(1);
+        assertEquals("https://img.example/a.png", img.imageUrl());
+        assertTrue(img.imageExternal());
+        assertTrue(img.text().isEmpty()); // caption 은 rich_text 가 아님
+
+        NotionBlock code = batch.results().get(2);
+        assertEquals("java", code.language());
+        assertEquals("int x;", code.text().get(0).text());
+
+        assertEquals("orig", batch.results().get(3).syncedFrom());
+    }
+
+    @Test
+    void readsCursorsAndPageTitles() throws Exception {
+        NotionJson.Batch<NotionPage> more = NotionJson.readPages(json("""
+                {"object":"list","results":[
+                  {"object":"page","id":"p1","last_edited_time":"2024-01-02T00:00:00.000Z",
+                   "properties":{
+                     "Tags":{"id":"t","type":"multi_select","multi_select":[{"name":"title"}]},
+                     "Name":{"id":"title","type":"title","title":[
+                       {"plain_text":"첫 조각","annotations":{"bold":true}},{"plain_text":" 두번째"}]}}},
+                  {"object":"page","id":"p2","last_edited_time":null,
+                   "properties":{"Name":{"type":"title","title":[]}}},
+                  {"object":"page","id":"p3","properties":{}}
+                 ],"next_cursor":"cursor-2","has_more":true}
+                """));
+        assertTrue(more.hasMore());
+        assertEquals("cursor-2", more.nextCursor());
+        assertEquals(new NotionPage("p1", "첫 조각", "2024-01-02T00:00:00.000Z"), more.results().get(0));
+        assertEquals(new NotionPage("p2", "(Untitled)", null), more.results().get(1));
+        assertEquals("(Untitled)", more.results().get(2).title());
+
+        // 끝 페이지에 커서가 남아 있어도 has_more=false 면 없음으로
+        NotionJson.Batch<NotionPage> last = NotionJson.readPages(json("""
+                {"has_more":false,"next_cursor":"stale","results":[]}
+                """));
+        assertFalse(last.hasMore());
+        assertNull(last.nextCursor());
+
+        NotionPage page = NotionJson.readPage(json("""
+                {"object":"page","id":"p9","url":"https://notion.so/p9","icon":{"emoji":"📄"},
+                 "properties":{"title":{"title":[{"plain_text":"단일 페이지"}]}},
+                 "last_edited_time":"2024-03-01T00:00:00.000Z"}
+                """));
+        assertEquals(new NotionPage("p9", "단일 페이지", "2024-03-01T00:00:00.000Z"), page);
+
+        assertThrows(IOException.class, () -> NotionJson.readBlocks(json("[]")));
+    }
+
+    private static InputStream json(String s) {
+        return new ByteArrayInputStream(s.getBytes(UTF_8));
+    }
+}
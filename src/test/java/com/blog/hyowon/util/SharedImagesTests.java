@@ -0,0 +1,46 @@
+package com.blog.hyowon.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 같은 공유 폴더를 두 노드(인스턴스)가 쓸 때: 링크된 파일은 남기고, 인덱스는 서로 덮어쓰지 않음 */
+class SharedImagesTests {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void nodesSharingOneStoreKeepEachOthersFilesAndIndex() throws Exception {
+        Path dir = tmp.resolve(".site.shared");
+        Path siteA = Files.createDirectories(tmp.resolve("a/assets/images"));
+        Path siteB = Files.createDirectories(tmp.resolve("b/assets/images"));
+        SharedImages nodeA = new SharedImages(dir);
+        SharedImages nodeB = new SharedImages(dir); // a 가 인덱스를 쓰기 전에 뜬 노드
+
+        ImageStore.IndexEntry entry = new ImageStore.IndexEntry("https://img.example/a.png", "abc.png", null, null,
+                true, 10, 10, List.of(), "https://img.example/a.png");
+        Files.write(siteA.resolve("abc.png"), new byte[] { 1, 2, 3 });
+        nodeA.share(entry, siteA);
+        assertEquals(1, nodeA.sweep());
+
+        // b 의 sweep: a 의 사이트 폴더가 링크 중이라 남기고, a 가 쓴 인덱스 항목도 그대로 (이어받아서 링크까지)
+        assertEquals(1, nodeB.sweep());
+        assertTrue(Files.readString(dir.resolve(".index.json")).contains("abc.png"));
+        assertEquals(entry, nodeB.adopt(entry.key(), siteB));
+        assertTrue(Files.isSameFile(siteA.resolve("abc.png"), siteB.resolve("abc.png")));
+
+        // 아무도 링크하지 않으면 어느 노드의 sweep 이든 삭제
+        Files.delete(siteA.resolve("abc.png"));
+        Files.delete(siteB.resolve("abc.png"));
+        assertEquals(0, nodeA.sweep());
+        assertFalse(Files.exists(dir.resolve("abc.png")));
+        assertFalse(Files.readString(dir.resolve(".index.json")).contains("abc.png"));
+        assertNull(nodeB.adopt(entry.key(), siteB));
+    }
+}
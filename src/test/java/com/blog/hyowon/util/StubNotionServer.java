@@ -0,0 +1,663 @@
+package com.blog.hyowon.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 테스트/벤치마크용 로컬 Notion API (/v1/search, /v1/pages/{id}, /v1/blocks/{id}/children, /v1/databases/{id}/query)
+ * - 페이지/블록은 메모리에 들고 있고, touch() 로 last_edited_time 을 바꿔서 수정 흉내
+ * - 경로별 요청 수를 세서 "변경 없으면 전체 export 안 함" 같은 걸 확인
+ * - block() 으로 블록 아래에 블록을 달면 부모는 has_children=true (중첩 블록)
+ * - workspace() 로 크기/깊이를 정한 가짜 워크스페이스 생성 (seed 가 같으면 같은 내용)
+ * - latency() / throttle() 로 응답 지연, 429 + Retry-After 주입, fail() 로 다음 n 개 요청을 지정한 상태로 (모든 모드 공통)
+ * - record() 는 실제 Notion 앞에서 응답을 파일로 저장, replay() 는 그 파일만으로 응답
+ * - file() 로 올린 바이트는 /files/<name> 에서 (Notion 업로드 이미지 흉내, 요청 수는 "files", ETag / 304 지원)
+ *   externalFile() 은 쿼리까지 이름에 들어가는 외부 URL (쿼리가 내용을 고르는 image.php?id=... 흉내)
+ * - @SpringBootTest 용: register() 로 notion.* 속성 등록, awaitIdle() 로 시작 export 기다림
+ *   (스텁을 @AfterAll 에서 닫으니까 테스트 클래스에 @DirtiesContext 를 붙여서 컨텍스트 스케줄러도 같이 닫음)
+ */
+public class StubNotionServer implements AutoCloseable {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final class Page {
+        final String id;
+        final String title;
+        volatile String lastEdited;
+        final List<ObjectNode> blocks = Collections.synchronizedList(new ArrayList<>());
+
+        Page(String id, String title, String lastEdited) {
+            this.id = id;
+            this.title = title;
+            this.lastEdited = lastEdited;
+        }
+    }
+
+    private static final String EDITED = "2024-01-01T00:00:00.000Z";
+    private static final String[] WORDS = {"트랜잭션", "인덱스", "캐시", "스프링", "쿼리", "배포", "로그", "테스트",
+            "transaction", "index", "cache", "latency", "thread", "buffer", "request", "export"};
+    private static final String[] CODE = {"java", "sql", "yaml", "bash", "kotlin"};
+
+    private final HttpServer server;
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+    // DB id → row 페이지들 (query 결과 순서)
+    private final Map<String, List<Page>> databases = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    // 블록 id → 블록 JSON / 자식 블록들 (페이지 바로 아래 블록은 Page.blocks)
+    private final Map<String, ObjectNode> blocks = new ConcurrentHashMap<>();
+    private final Map<String, List<ObjectNode>> blockChildren = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+    // 장애 주입
+    private volatile Duration latency = Duration.ZERO;
+    private volatile int throttleEvery;
+    private volatile Duration retryAfter = Duration.ofSeconds(1);
+    private final AtomicLong seen = new AtomicLong();
+    private final Set<String> throttled = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile int failStatus;
+    private volatile String failRetryAfter;
+
+    // record / replay (둘 다 null 이면 메모리 내용으로 응답)
+    private Path tape;
+    private String upstream;
+    private HttpClient http;
+
+    private StubNotionServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static StubNotionServer start() throws IOException {
+        // 헤더/본문을 따로 쓰는 JDK 서버 + Nagle 이면 응답마다 delayed ACK(~40ms) 만큼 멈춤
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        StubNotionServer stub = new StubNotionServer(server);
+        server.createContext("/v1/", stub::handle);
+        server.createContext("/files/", stub::file);
+        server.setExecutor(java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    /**
+     * 실제 Notion(upstream, 예: https://api.notion.com/v1) 으로 그대로 넘기고 200 응답은 dir 에 저장
+     * 토큰/버전 헤더는 들어온 요청 것을 그대로 씀
+     */
+    public static StubNotionServer record(Path dir, String upstream) throws IOException {
+        Files.createDirectories(dir);
+        StubNotionServer stub = start();
+        stub.tape = dir;
+        stub.upstream = upstream.endsWith("/") ? upstream.substring(0, upstream.length() - 1) : upstream;
+        stub.http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(10)).build();
+        return stub;
+    }
+
+    /** record() 로 저장한 응답만으로 응답 (저장 안 된 요청은 404) */
+    public static StubNotionServer replay(Path dir) throws IOException {
+        if (!Files.isDirectory(dir))
+            throw new IOException("no recorded responses: " + dir);
+        StubNotionServer stub = start();
+        stub.tape = dir;
+        return stub;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /* ===================== 내용 구성 ===================== */
+
+    public StubNotionServer page(String id, String title, String lastEdited) {
+        pages.put(key(id), new Page(NotionExporter.hyphenize(id), title, lastEdited));
+        return this;
+    }
+
+    public StubNotionServer paragraph(String pageId, String text) {
+        ObjectNode b = block("paragraph");
+        b.putObject("paragraph").set("rich_text", richText(text));
+        pages.get(key(pageId)).blocks.add(b);
+        return this;
+    }
+
+    public StubNotionServer childPage(String parentId, String childId, String title, String lastEdited) {
+        page(childId, title, lastEdited);
+        ObjectNode b = block("child_page");
+        b.put("id", NotionExporter.hyphenize(childId));
+        b.putObject("child_page").put("title", title);
+        add(parentId, b);
+        return this;
+    }
+
+    /**
+     * 페이지 또는 블록 아래에 블록 추가, 새 블록 id 반환
+     * text 는 rich_text 로 들어감 (toggle / column_list / column / synced_block 처럼 자식만 있는 블록은 무시됨)
+     */
+    public String block(String parentId, String type, String text) {
+        ObjectNode b = block(type);
+        b.putObject(type).set("rich_text", richText(text));
+        return add(parentId, b);
+    }
+
+    /** 코드 블록 (language 는 Notion 표기 그대로: "java", "plain text" ...) */
+    public String code(String parentId, String language, String text) {
+        ObjectNode b = block("code");
+        ObjectNode code = b.putObject("code");
+        code.set("rich_text", richText(text));
+        code.put("language", language);
+        return add(parentId, b);
+    }
+
+    /** 업로드 파일, 서명 쿼리가 붙은 URL 반환 (쿼리는 호출마다 다르지만 경로는 같음) */
+    public String file(String name, byte[] bytes) {
+        files.put(name, bytes);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/files/" + name + "?X-Amz-Signature="
+                + UUID.randomUUID();
+    }
+
+    /** 쿼리까지 포함한 이름으로 올림 (예: "chart.php?id=1"), 서명 없는 URL 반환 */
+    public String externalFile(String nameWithQuery, byte[] bytes) {
+        files.put(nameWithQuery, bytes);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/files/" + nameWithQuery;
+    }
+
+    /** Notion 업로드 이미지 블록 (url 은 file() 결과) */
+    public String image(String parentId, String url) {
+        ObjectNode b = block("image");
+        ObjectNode image = b.putObject("image").put("type", "file");
+        image.putObject("file").put("url", url);
+        image.set("caption", OM.createArrayNode());
+        return add(parentId, b);
+    }
+
+    /** 외부 링크 이미지 블록 (url 이 file() 경로면 ETag / 304 로 재검증됨) */
+    public String externalImage(String parentId, String url) {
+        ObjectNode b = block("image");
+        ObjectNode image = b.putObject("image").put("type", "external");
+        image.putObject("external").put("url", url);
+        image.set("caption", OM.createArrayNode());
+        return add(parentId, b);
+    }
+
+    /** 표 (행은 tableRow 로) */
+    public String table(String parentId, int width) {
+        ObjectNode b = block("table");
+        b.putObject("table").put("table_width", width).put("has_column_header", true).put("has_row_header", false);
+        return add(parentId, b);
+    }
+
+    public StubNotionServer tableRow(String tableId, String... cells) {
+        ObjectNode b = block("table_row");
+        ArrayNode arr = b.putObject("table_row").putArray("cells");
+        for (String c : cells)
+            arr.add(richText(c));
+        add(tableId, b);
+        return this;
+    }
+
+    private String add(String parentId, ObjectNode b) {
+        String id = b.get("id").asText();
+        blocks.put(key(id), b);
+        Page page = pages.get(key(parentId));
+        if (page != null) {
+            page.blocks.add(b);
+        } else {
+            blocks.get(key(parentId)).put("has_children", true);
+            blockChildren.computeIfAbsent(key(parentId), k -> Collections.synchronizedList(new ArrayList<>())).add(b);
+        }
+        return id;
+    }
+
+    /** 페이지(또는 블록) 아래에서 블록 하나 빼기 (하위 페이지 삭제 흉내면 child_page 블록 id = 페이지 id) */
+    public void remove(String parentId, String blockId) {
+        String id = NotionExporter.hyphenize(blockId);
+        Page page = pages.get(key(parentId));
+        List<ObjectNode> list = page != null ? page.blocks : blockChildren.getOrDefault(key(parentId), List.of());
+        if (!list.removeIf(b -> id.equals(b.get("id").asText())))
+            throw new IllegalArgumentException("no block " + blockId + " under " + parentId);
+    }
+
+    /** 페이지(또는 블록) 아래 DB 블록 추가, row 는 row() 로 */
+    public StubNotionServer database(String parentId, String dbId, String title) {
+        databases.putIfAbsent(key(dbId), Collections.synchronizedList(new ArrayList<>()));
+        ObjectNode b = block("child_database");
+        b.put("id", NotionExporter.hyphenize(dbId));
+        b.putObject("child_database").put("title", title);
+        add(parentId, b);
+        return this;
+    }
+
+    /** DB row (= 페이지, 블록은 paragraph() 등으로) */
+    public StubNotionServer row(String dbId, String pageId, String title, String lastEdited) {
+        page(pageId, title, lastEdited);
+        databases.get(key(dbId)).add(pages.get(key(pageId)));
+        return this;
+    }
+
+    /**
+     * 가짜 워크스페이스: 루트 아래로 depth 단계까지 고르게 퍼진 pages 개 페이지 (루트 포함)
+     * - 페이지마다 top-level 블록 blocksPerPage 개 (문단/제목/목록/코드/토글, 목록·토글은 자식 블록 있음)
+     * - 부모 다섯 중 하나는 자식을 하위 페이지 대신 DB row 로 가짐 (query 페이지네이션 포함)
+     * @return 루트 페이지 id
+     */
+    public String workspace(int pages, int depth, int blocksPerPage, long seed) {
+        Random rnd = new Random(seed);
+        int fanout = 1;
+        while (reach(fanout, depth) < pages - 1)
+            fanout++;
+        String root = id(seed, 0);
+        page(root, "Workspace " + seed, EDITED);
+        fill(root, blocksPerPage, rnd);
+
+        int made = 1;
+        ArrayDeque<String> parents = new ArrayDeque<>(List.of(root));
+        Map<String, Integer> level = new HashMap<>(Map.of(root, 0));
+        while (made < pages && !parents.isEmpty()) {
+            String parent = parents.poll();
+            int children = Math.min(fanout, pages - made);
+            String db = made % 5 == 1 ? id(seed, 1_000_000 + made) : null;
+            if (db != null)
+                database(parent, db, "DB " + made);
+            for (int i = 0; i < children; i++, made++) {
+                String child = id(seed, made);
+                String title = words(rnd, 2) + " " + made;
+                if (db != null)
+                    row(db, child, title, EDITED);
+                else
+                    childPage(parent, child, title, EDITED);
+                fill(child, blocksPerPage, rnd);
+                level.put(child, level.get(parent) + 1);
+                if (level.get(child) < depth)
+                    parents.add(child);
+            }
+        }
+        return root;
+    }
+
+    /** fanout^1 + ... + fanout^depth */
+    private static long reach(int fanout, int depth) {
+        long total = 0, level = 1;
+        for (int d = 0; d < depth; d++) {
+            level *= fanout;
+            total += level;
+        }
+        return total;
+    }
+
+    private void fill(String pageId, int count, Random rnd) {
+        for (int i = 0; i < count; i++) {
+            switch (i % 8) {
+                case 0 -> block(pageId, "heading_2", words(rnd, 3));
+                case 3 -> {
+                    String item = block(pageId, "bulleted_list_item", words(rnd, 5));
+                    block(item, "bulleted_list_item", words(rnd, 4));
+                }
+                case 5 -> code(pageId, CODE[rnd.nextInt(CODE.length)],
+                        "select id, title from page where id = " + rnd.nextInt(1000) + ";\n" + words(rnd, 6));
+                case 7 -> {
+                    String toggle = block(pageId, "toggle", words(rnd, 3));
+                    block(toggle, "paragraph", words(rnd, 12));
+                    block(toggle, "quote", words(rnd, 6));
+                }
+                default -> block(pageId, "paragraph", words(rnd, 20 + rnd.nextInt(30)));
+            }
+        }
+    }
+
+    private static String words(Random rnd, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            sb.append(i == 0 ? "" : " ").append(WORDS[rnd.nextInt(WORDS.length)]);
+        return sb.toString();
+    }
+
+    private static String id(long seed, int n) {
+        return String.format("%08x0000400080%014x", seed & 0xffffffffL, n);
+    }
+
+    /* ===================== 장애 주입 ===================== */
+
+    /** 모든 요청에 지연 (Notion 왕복 시간 흉내) */
+    public StubNotionServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** every 번째 요청마다 429 + Retry-After (0 이면 끔) */
+    public StubNotionServer throttle(int every, Duration retryAfter) {
+        this.throttleEvery = every;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /** 다음 count 개 요청은 status 로 응답 (retryAfter 가 null 이 아니면 Retry-After 헤더 그대로), 요청 수는 "failed" */
+    public StubNotionServer fail(int count, int status, String retryAfter) {
+        this.failStatus = status;
+        this.failRetryAfter = retryAfter;
+        failures.set(count);
+        return this;
+    }
+
+    /** 페이지 수정 흉내 */
+    public void touch(String pageId, String lastEdited) {
+        pages.get(key(pageId)).lastEdited = lastEdited;
+    }
+
+    /** route: search / pages / blocks / query, 주입한 429 는 throttled, fail() 로 돌려보낸 건 failed */
+    public int requests(String route) {
+        AtomicInteger n = hits.get(route);
+        return n == null ? 0 : n.get();
+    }
+
+    /** 받은 요청 전체 (429 로 돌려보낸 것 포함) */
+    public int totalRequests() {
+        return hits.entrySet().stream().filter(e -> !"throttled".equals(e.getKey()) && !"failed".equals(e.getKey()))
+                .mapToInt(e -> e.getValue().get()).sum();
+    }
+
+    public void resetCounts() {
+        hits.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /* ===================== 스프링 테스트 ===================== */
+
+    /**
+     * @DynamicPropertySource 에서: 이 스텁 주소, 테스트 키, 임시 export 폴더(<tmp>/site)를 등록하고 그 폴더 반환
+     * rootPageId 가 null 이면 notion.page.id 는 빼고 (notion.sites 를 따로 등록할 때)
+     * 1분 cron 은 끔 (테스트가 exportNotion() 으로 직접 확인하는데 정각에 cron 확인이 끼어들면 요청 수가 섞임)
+     */
+    public Path register(DynamicPropertyRegistry registry, String rootPageId) throws IOException {
+        Path exportDir = Files.createTempDirectory("export").resolve("site");
+        registry.add("notion.api.base-url", this::baseUrl);
+        registry.add("notion.api.key", () -> "test");
+        if (rootPageId != null)
+            registry.add("notion.page.id", () -> rootPageId);
+        registry.add("notion.export.dir", exportDir::toString);
+        registry.add("notion.export.cron", () -> "-");
+        return exportDir;
+    }
+
+    /** ready 가 참이고 스케줄러가 export 중이 아닐 때까지 (최대 30초, 시간이 지나도 예외 없이 돌아옴) */
+    public static void awaitIdle(NotionExportScheduler scheduler, BooleanSupplier ready) throws InterruptedException {
+        long until = System.nanoTime() + 30_000_000_000L;
+        while ((!ready.getAsBoolean() || scheduler.isExporting()) && System.nanoTime() < until)
+            Thread.sleep(50);
+    }
+
+    /* ===================== 요청 처리 ===================== */
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath().substring("/v1/".length());
+            String[] seg = path.split("/");
+            byte[] raw = "POST".equals(ex.getRequestMethod()) ? ex.getRequestBody().readAllBytes() : new byte[0];
+            count(route(seg));
+            if (!inject(ex, raw))
+                return;
+            if (tape != null) {
+                tape(ex, raw);
+                return;
+            }
+            JsonNode body = raw.length > 0 ? OM.readTree(raw) : OM.createObjectNode();
+            Map<String, String> query = query(ex.getRequestURI());
+
+            ObjectNode res;
+            if (seg.length == 1 && "search".equals(seg[0])) {
+                res = search(body);
+            } else if (seg.length == 2 && "pages".equals(seg[0])) {
+                Page p = pages.get(key(seg[1]));
+                if (p == null) {
+                    send(ex, 404, error("object_not_found"));
+                    return;
+                }
+                res = pageObject(p);
+            } else if (seg.length == 3 && "blocks".equals(seg[0]) && "children".equals(seg[2])) {
+                Page p = pages.get(key(seg[1]));
+                List<ObjectNode> children = p != null ? p.blocks : blockChildren.getOrDefault(key(seg[1]), List.of());
+                res = list(new ArrayList<>(children), query.get("start_cursor"), size(query.get("page_size")));
+            } else if (seg.length == 3 && "databases".equals(seg[0]) && "query".equals(seg[2])) {
+                List<Page> rows = databases.get(key(seg[1]));
+                if (rows == null) {
+                    send(ex, 404, error("object_not_found"));
+                    return;
+                }
+                List<ObjectNode> results = new ArrayList<>();
+                for (Page p : new ArrayList<>(rows))
+                    results.add(pageObject(p));
+                res = list(results, body.path("start_cursor").asText(null), size(body.path("page_size").asText(null)));
+            } else {
+                send(ex, 404, error("invalid_request_url"));
+                return;
+            }
+            send(ex, 200, res);
+        }
+    }
+
+    private void file(HttpExchange ex) throws IOException {
+        try (ex) {
+            count("files");
+            String name = ex.getRequestURI().getPath().substring("/files/".length());
+            String query = ex.getRequestURI().getRawQuery();
+            byte[] body = query == null ? null : files.get(name + "?" + query);
+            if (body == null)
+                body = files.get(name);
+            if (body == null) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+            ex.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+            ex.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+        }
+    }
+
+    private static String route(String[] seg) {
+        if (seg.length == 1 && "search".equals(seg[0]))
+            return "search";
+        if (seg.length == 2 && "pages".equals(seg[0]))
+            return "pages";
+        if (seg.length == 3 && "blocks".equals(seg[0]))
+            return "blocks";
+        if (seg.length == 3 && "databases".equals(seg[0]))
+            return "query";
+        return "other";
+    }
+
+    /**
+     * 지연 + 429 주입, 429 로 끝냈으면 false
+     * 429 받은 요청의 재시도는 통과 (재시도들이 한꺼번에 몰려도 같은 요청만 계속 걸리지 않게)
+     */
+    private boolean inject(HttpExchange ex, byte[] body) throws IOException {
+        long n = seen.incrementAndGet();
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failures.getAndUpdate(n2 -> Math.max(0, n2 - 1)) > 0) {
+            count("failed");
+            if (failRetryAfter != null)
+                ex.getResponseHeaders().set("Retry-After", failRetryAfter);
+            send(ex, failStatus, error("injected"));
+            return false;
+        }
+        int every = throttleEvery;
+        String request = ex.getRequestMethod() + " " + ex.getRequestURI() + " " + new String(body, StandardCharsets.UTF_8);
+        if (every > 0 && n % every == 0 && throttled.add(request)) {
+            count("throttled");
+            ex.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter.toMillis() / 1000.0));
+            send(ex, 429, error("rate_limited"));
+            return false;
+        }
+        throttled.remove(request);
+        return true;
+    }
+
+    /** record: upstream 으로 넘기고 200 이면 저장 / replay: 저장된 응답 */
+    private void tape(HttpExchange ex, byte[] body) throws IOException {
+        URI uri = ex.getRequestURI();
+        String pathAndQuery = uri.getRawPath().substring("/v1".length())
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        Path file = tape.resolve(tapeKey(ex.getRequestMethod(), pathAndQuery, body) + ".json");
+        if (upstream == null) {
+            if (Files.isRegularFile(file))
+                send(ex, 200, Files.readAllBytes(file));
+            else
+                send(ex, 404, OM.writeValueAsBytes(error("not_recorded")));
+            return;
+        }
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(upstream + pathAndQuery))
+                .timeout(Duration.ofSeconds(30))
+                .method(ex.getRequestMethod(), body.length == 0 ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String h : List.of("Authorization", "Notion-Version", "Content-Type")) {
+            String v = ex.getRequestHeaders().getFirst(h);
+            if (v != null)
+                req.header(h, v);
+        }
+        HttpResponse<byte[]> res;
+        try {
+            res = http.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (res.statusCode() == 200)
+            Files.write(file, res.body());
+        res.headers().firstValue("Retry-After").ifPresent(v -> ex.getResponseHeaders().set("Retry-After", v));
+        send(ex, res.statusCode(), res.body());
+    }
+
+    /** 요청 하나 = 파일 하나 (순서와 상관없이 같은 요청이면 같은 응답) */
+    private static String tapeKey(String method, String pathAndQuery, byte[] body) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update((method + " " + pathAndQuery + "\n").getBytes(StandardCharsets.UTF_8));
+            md.update(body);
+            return HexFormat.of().formatHex(md.digest()).substring(0, 32);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ObjectNode search(JsonNode body) {
+        List<Page> all = new ArrayList<>(pages.values());
+        Comparator<Page> byEdited = Comparator.comparing(p -> p.lastEdited);
+        if ("descending".equals(body.path("sort").path("direction").asText()))
+            byEdited = byEdited.reversed();
+        all.sort(byEdited.thenComparing(p -> p.id));
+        List<ObjectNode> results = new ArrayList<>();
+        for (Page p : all)
+            results.add(pageObject(p));
+        return list(results, body.path("start_cursor").asText(null), size(body.path("page_size").asText(null)));
+    }
+
+    /** 커서는 그냥 시작 인덱스 */
+    private static ObjectNode list(List<ObjectNode> all, String cursor, int pageSize) {
+        int from = cursor == null ? 0 : Integer.parseInt(cursor);
+        int to = Math.min(all.size(), from + pageSize);
+        ObjectNode res = OM.createObjectNode().put("object", "list");
+        ArrayNode results = res.putArray("results");
+        all.subList(from, to).forEach(results::add);
+        boolean more = to < all.size();
+        res.put("has_more", more);
+        if (more)
+            res.put("next_cursor", String.valueOf(to));
+        else
+            res.putNull("next_cursor");
+        return res;
+    }
+
+    private static ObjectNode pageObject(Page p) {
+        ObjectNode o = OM.createObjectNode().put("object", "page").put("id", p.id)
+                .put("last_edited_time", p.lastEdited);
+        ObjectNode title = o.putObject("properties").putObject("title");
+        title.put("id", "title").put("type", "title").set("title", richText(p.title));
+        return o;
+    }
+
+    private static ObjectNode block(String type) {
+        return OM.createObjectNode().put("object", "block").put("id", UUID.randomUUID().toString())
+                .put("type", type).put("has_children", false);
+    }
+
+    private static ArrayNode richText(String text) {
+        ArrayNode arr = OM.createArrayNode();
+        ObjectNode run = arr.addObject().put("type", "text").put("plain_text", text);
+        run.putNull("href");
+        run.putObject("annotations");
+        return arr;
+    }
+
+    private static ObjectNode error(String code) {
+        return OM.createObjectNode().put("object", "error").put("code", code);
+    }
+
+    private void count(String route) {
+        hits.computeIfAbsent(route, r -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static void send(HttpExchange ex, int status, JsonNode body) throws IOException {
+        send(ex, status, OM.writeValueAsBytes(body));
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] bytes) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        ex.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> out = new HashMap<>();
+        if (uri.getRawQuery() == null)
+            return out;
+        for (String kv : uri.getRawQuery().split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0 && eq < kv.length() - 1)
+                out.put(kv.substring(0, eq), java.net.URLDecoder.decode(kv.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static int size(String pageSize) {
+        return pageSize == null || pageSize.isBlank() ? 100 : Math.min(100, Integer.parseInt(pageSize));
+    }
+
+    private static String key(String id) {
+        return id.replace("-", "");
+    }
+}